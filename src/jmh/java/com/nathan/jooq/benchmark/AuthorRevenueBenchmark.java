@@ -0,0 +1,78 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.dto.AuthorRevenueDTO;
+import com.nathan.jooq.service.AuthorService;
+import org.jooq.DSLContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+
+/**
+ * {@link AuthorService#topAuthorsByRevenue} and {@link AuthorService#revenueRank} from the leaderboard
+ * ({@code leaderboard=true}) or from SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AuthorRevenueBenchmark {
+
+    @Param({"true", "false"})
+    public boolean leaderboard;
+
+    @Param("10000")
+    public int authors;
+
+    @Param("200000")
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private AuthorService authorService;
+    private Long authorId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(authors, books, "app.authors.revenue-leaderboard.enabled=" + leaderboard);
+        authorService = context.getBean(AuthorService.class);
+        authorId = context.getBean(DSLContext.class)
+                .select(AUTHOR.ID).from(AUTHOR).orderBy(AUTHOR.ID).offset(authors / 2).limit(1).fetchOne(AUTHOR.ID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<AuthorRevenueDTO> top5() {
+        return authorService.topAuthorsByRevenue(5);
+    }
+
+    @Benchmark
+    public List<AuthorRevenueDTO> top100() {
+        return authorService.topAuthorsByRevenue(100);
+    }
+
+    @Benchmark
+    public AuthorRevenueDTO revenueRank() {
+        return authorService.revenueRank(authorId);
+    }
+}
@@ -0,0 +1,40 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.JooqApplication;
+import com.nathan.jooq.service.AuthorNameIndex;
+import com.nathan.jooq.service.AuthorRevenueLeaderboard;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+
+/**
+ * Boots the application against the in-memory H2 of the {@code h2} profile and seeds it.
+ * Each JMH fork gets its own context and database.
+ */
+final class BenchmarkApplication {
+
+    static ConfigurableApplicationContext start(int authors, int books, String... properties) {
+        return start(WebApplicationType.NONE, authors, books, properties);
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType web, int authors, int books, String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(JooqApplication.class)
+                .profiles("h2")
+                .web(web)
+                .properties("logging.level.root=WARN")
+                // as arguments: default properties would lose to application.properties
+                .run(Arrays.stream(properties).map(p -> "--" + p).toArray(String[]::new));
+        TestData.seed(context.getBean(DSLContext.class), authors, books, 42);
+        // seeded behind the application's back, so the index and leaderboard would only see it on their next reload
+        context.getBean(AuthorNameIndex.class).reload();
+        context.getBean(AuthorRevenueLeaderboard.class).reload();
+        return context;
+    }
+
+    private BenchmarkApplication() {
+    }
+}
@@ -0,0 +1,152 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.BookCursor;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.CursorPage;
+import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.service.BookLoader;
+import com.nathan.jooq.service.BookService;
+import org.apache.coyote.BadRequestException;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+
+/**
+ * Hot paths of {@link BookService}. Run with {@code -t N} to see how {@link #create} scales with writer threads.
+ * The author filter exercises the nested author fetch that used to be a separate enrichment query;
+ * {@link #loadPageInBatches} is that two-step approach (the page's ids, then its books and authors by {@code IN}
+ * through a {@link BookLoader}), to compare with the MULTISET page of {@link #searchPageWithoutTotal}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    @Param("200")
+    public int authors;
+
+    @Param("10000")
+    public int books;
+
+    /** 0 disables the book cache so getBookById always reaches the database. */
+    @Param({"0", "100000"})
+    public int bookCacheSize;
+
+    private ConfigurableApplicationContext context;
+    private DSLContext ctx;
+    private BookService bookService;
+    private long minId;
+    private long maxId;
+    private int deepPage;
+    private String deepCursor;
+    private final AtomicLong titles = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(authors, books, "app.books.cache.max-size=" + bookCacheSize);
+        bookService = context.getBean(BookService.class);
+
+        ctx = context.getBean(DSLContext.class);
+        minId = ctx.select(org.jooq.impl.DSL.min(BOOK.ID)).from(BOOK).fetchOne().value1();
+        maxId = ctx.select(org.jooq.impl.DSL.max(BOOK.ID)).from(BOOK).fetchOne().value1();
+        deepPage = books / 10 * 9 / 10;
+
+        // the keyset position equivalent to deepPage, so both pagination modes read the same rows
+        Record2<LocalDateTime, Long> anchor = ctx.select(BOOK.CREATED_AT, BOOK.ID)
+                .from(BOOK)
+                .orderBy(BOOK.CREATED_AT.desc(), BOOK.ID.desc())
+                .limit(1)
+                .offset(deepPage * 10 - 1)
+                .fetchOne();
+        deepCursor = new BookCursor(anchor.value1(), anchor.value2()).encode();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchShallowPage() {
+        return bookService.search(null, null, null, null, 0, 10, TotalMode.EXACT);
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchDeepPage() {
+        return bookService.search(null, null, null, null, deepPage, 10, TotalMode.EXACT);
+    }
+
+    @Benchmark
+    public CursorPage<BookDTO> searchDeepPageByCursor() throws BadRequestException {
+        return bookService.searchByCursor(null, null, null, null, deepCursor, 10);
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchPageWithoutTotal() {
+        return bookService.search(null, null, null, null, 0, 10, TotalMode.NONE);
+    }
+
+    @Benchmark
+    public List<BookDTO> loadPageInBatches() {
+        List<Long> ids = ctx.select(BOOK.ID)
+                .from(BOOK)
+                .orderBy(BOOK.CREATED_AT.desc(), BOOK.ID.desc())
+                .limit(10)
+                .fetch(BOOK.ID);
+        return new BookLoader(ctx).books(ids);
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchByAuthor() {
+        return bookService.search("Author 1", null, null, null, 0, 10, TotalMode.EXACT);
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchByAuthorWindowTotal() {
+        return bookService.search("Author 1", null, null, null, 0, 10, TotalMode.WINDOW);
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchByYearAndPrice() {
+        return bookService.search(null, 2010, new BigDecimal("20"), new BigDecimal("150"), 0, 10, TotalMode.EXACT);
+    }
+
+    @Benchmark
+    public BookDTO getBookById() {
+        return bookService.getBookById(ThreadLocalRandom.current().nextLong(minId, maxId + 1));
+    }
+
+    @Benchmark
+    public BookDTO create() throws BadRequestException {
+        return bookService.create(new BookCreateRequest(
+                "Benchmark " + titles.incrementAndGet() + " " + System.nanoTime(),
+                "isbn", 2024, BigDecimal.TEN, List.of()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.dto.AuthorRankingDTO;
+import com.nathan.jooq.dto.AuthorReportDTO;
+import com.nathan.jooq.dto.BookYearReportDTO;
+import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.YearlyStatsDTO;
+import com.nathan.jooq.service.ColumnarReportEngine;
+import com.nathan.jooq.service.ColumnarTables;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reports {@link ColumnarTables} answers, one benchmark per report; compare with {@link ReportServiceBenchmark}
+ * run with the same parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ColumnarReportBenchmark {
+
+    @Param("10000")
+    public int authors;
+
+    @Param("1000000")
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private ColumnarTables tables;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(authors, books, "app.reports.columnar.enabled=true");
+        ColumnarReportEngine engine = context.getBean(ColumnarReportEngine.class);
+        // seeded behind the application's back
+        engine.reload();
+        tables = engine.current();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<YearlyStatsDTO> yearlyStats() {
+        return tables.yearlyStats(2000);
+    }
+
+    @Benchmark
+    public List<BookYearReportDTO> reportBookByYear() {
+        return tables.bookByYear();
+    }
+
+    @Benchmark
+    public List<AuthorReportDTO> topAuthorsByAvgPrice() {
+        return tables.topAuthorsByAvgPrice();
+    }
+
+    @Benchmark
+    public List<CountryRankingDTO> rankCountriesByBookValue() {
+        return tables.countryRankings();
+    }
+
+    @Benchmark
+    public List<AuthorRankingDTO> getAuthorRankings() {
+        return tables.authorRankings();
+    }
+}
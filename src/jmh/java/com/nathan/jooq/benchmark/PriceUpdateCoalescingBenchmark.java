@@ -0,0 +1,79 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.service.BookService;
+import org.jooq.DSLContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+
+/**
+ * {@code PUT /books/{id}/price} as the controller calls it, synchronous (one optimistic transaction per update) or
+ * coalesced (group commit every {@code window}), from many threads at once: throughput, and the latency a caller
+ * waits for its commit. With few hot books most coalesced updates are absorbed by a later one in the same flush.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class PriceUpdateCoalescingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean coalescing;
+
+    @Param({"10", "1000"})
+    public int hotBooks;
+
+    @Param("2ms")
+    public String window;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(100, 10_000,
+                "app.books.price-update.coalescing.enabled=" + coalescing,
+                "app.books.price-update.coalescing.window=" + window,
+                // a give-up would abort the benchmark thread, so retry for as long as it takes
+                "app.books.price-update.max-attempts=" + Integer.MAX_VALUE);
+        bookService = context.getBean(BookService.class);
+        ids = context.getBean(DSLContext.class)
+                .select(BOOK.ID).from(BOOK).orderBy(BOOK.ID).limit(hotBooks)
+                .fetch(BOOK.ID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long updatePrice() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return bookService.updatePriceAsync(ids.get(random.nextInt(ids.size())),
+                BigDecimal.valueOf(random.nextInt(1, 100_000), 2)).join();
+    }
+}
@@ -0,0 +1,71 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.service.PriceUpdater;
+import org.jooq.DSLContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+
+/**
+ * Single-book price updates under both {@link PriceUpdater.Strategy strategies}. Run with {@code -t N}: with one hot
+ * book every writer contends for the same row, with 100 they rarely meet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PriceUpdateContentionBenchmark {
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC"})
+    public PriceUpdater.Strategy strategy;
+
+    @Param({"1", "100"})
+    public int hotBooks;
+
+    private ConfigurableApplicationContext context;
+    private PriceUpdater priceUpdater;
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(10, 1000,
+                "app.books.price-update.strategy=" + strategy,
+                // a give-up would abort the benchmark thread, so retry for as long as it takes
+                "app.books.price-update.max-attempts=" + Integer.MAX_VALUE);
+        priceUpdater = context.getBean(PriceUpdater.class);
+        ids = context.getBean(DSLContext.class)
+                .select(BOOK.ID).from(BOOK).orderBy(BOOK.ID).limit(hotBooks)
+                .fetch(BOOK.ID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void updatePrice() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        priceUpdater.update(ids.get(random.nextInt(ids.size())), BigDecimal.valueOf(random.nextInt(1, 100_000), 2));
+    }
+}
@@ -0,0 +1,93 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.dto.AuthorRankingDTO;
+import com.nathan.jooq.dto.AuthorReportDTO;
+import com.nathan.jooq.dto.BookYearReportDTO;
+import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.InactiveAuthorDTO;
+import com.nathan.jooq.dto.YearlyStatsDTO;
+import com.nathan.jooq.service.ReportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The live (SQL) {@link ReportService} queries, one benchmark per report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReportServiceBenchmark {
+
+    @Param("200")
+    public int authors;
+
+    @Param("10000")
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private ReportService reportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(authors, books);
+        reportService = context.getBean(ReportService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<YearlyStatsDTO> yearlyStats() {
+        return reportService.yearlyStats(2000);
+    }
+
+    @Benchmark
+    public List<AuthorReportDTO> reportAuthorBookValue() {
+        return reportService.reportAuthorBookValue();
+    }
+
+    @Benchmark
+    public List<BookYearReportDTO> reportBookByYear() {
+        return reportService.reportBookByYear();
+    }
+
+    @Benchmark
+    public List<AuthorReportDTO> topAuthorsByAvgPrice() {
+        return reportService.topAuthorsByAvgPrice();
+    }
+
+    @Benchmark
+    public List<CountryRankingDTO> rankCountriesByBookValue() {
+        return reportService.rankCountriesByBookValue();
+    }
+
+    @Benchmark
+    public List<InactiveAuthorDTO> findInactiveAuthors() {
+        return reportService.findInactiveAuthors(2);
+    }
+
+    @Benchmark
+    public List<AuthorRankingDTO> getAuthorRankings() {
+        return reportService.getAuthorRankings();
+    }
+}
@@ -0,0 +1,105 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.CursorPage;
+import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.dto.YearlyStatsDTO;
+import com.nathan.jooq.service.BookService;
+import com.nathan.jooq.service.ReportService;
+import org.apache.coyote.BadRequestException;
+import org.jooq.DSLContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search and report access paths with and without the indexes of {@code V2__search_and_report_indexes.sql}
+ * ({@code indexed=false} drops them after seeding).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SchemaIndexBenchmark {
+    private static final List<String> INDEXES = List.of(
+            "idx_book_created_at", "idx_book_year_created_price", "idx_book_price", "idx_author_country");
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    @Param("200")
+    public int authors;
+
+    @Param("100000")
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private ReportService reportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(authors, books);
+        bookService = context.getBean(BookService.class);
+        reportService = context.getBean(ReportService.class);
+        DSLContext ctx = context.getBean(DSLContext.class);
+        if (!indexed) {
+            INDEXES.forEach(index -> ctx.execute("DROP INDEX jooq." + index));
+        }
+        ctx.execute("ANALYZE");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchNewestFirst() {
+        return bookService.search(null, null, null, null, 0, 10, TotalMode.NONE);
+    }
+
+    @Benchmark
+    public CursorPage<BookDTO> searchByCursor() throws BadRequestException {
+        return bookService.searchByCursor(null, null, null, null, null, 10);
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchByYear() {
+        return bookService.search(null, 2010, null, null, 0, 10, TotalMode.EXACT);
+    }
+
+    @Benchmark
+    public PageResult<BookDTO> searchByPriceRange() {
+        return bookService.search(null, null, new BigDecimal("20"), new BigDecimal("25"), 0, 10, TotalMode.EXACT);
+    }
+
+    @Benchmark
+    public List<YearlyStatsDTO> yearlyStats() {
+        return reportService.yearlyStats(2015);
+    }
+
+    @Benchmark
+    public List<CountryRankingDTO> countryRankings() {
+        return reportService.rankCountriesByBookValue();
+    }
+}
@@ -0,0 +1,68 @@
+package com.nathan.jooq.benchmark;
+
+import com.nathan.jooq.service.AuthorNameIndex;
+import com.nathan.jooq.service.BookSearchQueries;
+import org.jooq.DSLContext;
+import org.jooq.Select;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side cost of producing the SQL and bind values for one search page, with no database involved:
+ * building and rendering the jOOQ query on every call versus binding into the SQL cached for its shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchQueryRenderBenchmark {
+    private static final String AUTHOR = "Author 1";
+    private static final Integer YEAR = 2015;
+    private static final BigDecimal MIN = new BigDecimal("10");
+    private static final BigDecimal MAX = new BigDecimal("80");
+
+    private DSLContext ctx;
+    private BookSearchQueries queries;
+
+    @Setup
+    public void setUp() {
+        ctx = DSL.using(SQLDialect.MYSQL);
+        // never loaded, so the author filter takes the LIKE shape, as before the name index existed
+        queries = new BookSearchQueries(ctx, new AuthorNameIndex(ctx, false, 0));
+    }
+
+    @Benchmark
+    public void renderPerCall(Blackhole bh) {
+        Map<String, Object> values = queries.filter(AUTHOR, YEAR, MIN, MAX);
+        values.put(BookSearchQueries.LIMIT, 20);
+        values.put(BookSearchQueries.OFFSET, 200L);
+        Select<?> select = queries.build(BookSearchQueries.Kind.PAGE, values.keySet(),
+                (name, type) -> DSL.val(values.get(name), type));
+        bh.consume(ctx.render(select));
+        bh.consume(ctx.extractBindValues(select));
+    }
+
+    @Benchmark
+    public void cachedShape(Blackhole bh) {
+        var query = queries.page(AUTHOR, YEAR, MIN, MAX, false, 20, 200L);
+        bh.consume(query.getSQL());
+        bh.consume(query.getBindValues());
+    }
+}
@@ -0,0 +1,120 @@
+package com.nathan.jooq.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.export.CompactPageWriter;
+import com.nathan.jooq.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A search page as {@code /books/search} writes it (the {@link PageResult} of DTOs) against the compact layout of
+ * {@code /books/search/compact}, in each encoding. {@code dtoPage}/{@code compactPage} time the serialization alone;
+ * {@code searchThenSerialize}/{@code streamSearch} include the query, the second without the intermediate list.
+ * The encoded size of each is printed once at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SerializationBenchmark {
+
+    public enum Encoding {JSON, SMILE, CBOR}
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public Encoding encoding;
+
+    @Param("100")
+    public int pageSize;
+
+    @Param("200")
+    public int authors;
+
+    @Param("20000")
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private ObjectMapper mapper;
+    private PageResult<BookDTO> page;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start(authors, books);
+        bookService = context.getBean(BookService.class);
+        mapper = switch (encoding) {
+            case JSON -> context.getBean(MappingJackson2HttpMessageConverter.class).getObjectMapper();
+            case SMILE -> context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+            case CBOR -> context.getBean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+        };
+        page = bookService.search(null, null, null, null, 0, pageSize, TotalMode.NONE);
+        out = new ByteArrayOutputStream(1 << 16);
+        System.out.printf("%n%s, %d books: dto %d bytes, compact %d bytes%n",
+                encoding, page.content().size(), dtoPage().size(), compactPage().size());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream dtoPage() throws IOException {
+        out.reset();
+        mapper.writeValue(out, page);
+        return out;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream compactPage() throws IOException {
+        out.reset();
+        try (CompactPageWriter writer = new CompactPageWriter(mapper, out)) {
+            for (BookDTO book : page.content()) {
+                writer.book(book.id(), book.title(), book.isbn(), book.publishedYear(), book.price(),
+                        book.createdAt(), book.authors());
+            }
+            writer.finish(page.page(), page.size(), page.total(), page.hasNext(), page.totalMode());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream searchThenSerialize() throws IOException {
+        out.reset();
+        mapper.writeValue(out, bookService.search(null, null, null, null, 0, pageSize, TotalMode.NONE));
+        return out;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream streamSearch() throws IOException {
+        out.reset();
+        try (CompactPageWriter writer = new CompactPageWriter(mapper, out)) {
+            bookService.writeSearchPage(null, null, null, null, 0, pageSize, TotalMode.NONE, writer);
+        }
+        return out;
+    }
+}
@@ -1,16 +1,13 @@
 package com.nathan.jooq.config;
 
-import jakarta.persistence.EntityManagerFactory;
-import org.jooq.DSLContext;
-import org.jooq.impl.DSL;
 import org.jooq.impl.DefaultDSLContext;
-import org.springframework.boot.autoconfigure.jooq.SpringTransactionProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.orm.jpa.JpaTransactionManager;
-
-import javax.sql.DataSource;
 
+/**
+ * Transactions go through Spring Boot's auto-configured {@code SpringTransactionProvider}, backed by the
+ * JDBC {@code DataSourceTransactionManager}, so {@code @Transactional} and jOOQ share the same connection.
+ */
 @Configuration
 public class JooqConfig {
 
@@ -19,11 +16,4 @@ public class JooqConfig {
         return new DefaultDSLContext(jooqConfig);
     }
 
-    @Bean
-    public SpringTransactionProvider transactionProvider(EntityManagerFactory emf) {
-        return new SpringTransactionProvider(
-                new JpaTransactionManager(emf)
-        );
-    }
-
 }
@@ -1,15 +1,33 @@
 package com.nathan.jooq.config;
 
+import com.nathan.jooq.metrics.QueryMetricsListener;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.jooq.DefaultConfigurationCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Arrays;
+
 @Configuration
 public class JooqOptimisticLockConfig {
     @Bean
-    public DefaultConfigurationCustomizer jooqConfigCustomizer() {
-        return c -> c.settings()
-                .withExecuteWithOptimisticLocking(true)
-                .withUpdateRecordTimestamp(true);
+    public DefaultConfigurationCustomizer jooqConfigCustomizer(ObjectProvider<QueryMetricsListener> queryMetrics) {
+        return c -> {
+            // book.version / book.updated_at are the generated records' version and timestamp fields (see the
+            // codegen config), so BookRecord.store() is one "UPDATE ... WHERE id = ? AND version = ?" that
+            // throws DataChangedException when another writer got there first
+            c.settings()
+                    .withExecuteWithOptimisticLocking(true)
+                    .withUpdateRecordTimestamp(true);
+            // appended, so Boot's exception translator and other listener beans stay registered
+            queryMetrics.ifAvailable(listener -> {
+                ExecuteListenerProvider[] current = c.executeListenerProviders();
+                ExecuteListenerProvider[] providers = Arrays.copyOf(current, current.length + 1);
+                providers[current.length] = new DefaultExecuteListenerProvider(listener);
+                c.set(providers);
+            });
+        };
     }
 }
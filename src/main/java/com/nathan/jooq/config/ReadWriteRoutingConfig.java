@@ -0,0 +1,88 @@
+package com.nathan.jooq.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * With {@code app.datasource.routing.enabled=true} the application {@code DataSource} is a
+ * {@link ReadWriteRoutingDataSource} over the {@code spring.datasource.*} primary and one pool per
+ * {@code app.datasource.replicas.urls} entry; Boot's own pool then backs off. Every pool takes its settings from
+ * {@code spring.datasource.hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class ReadWriteRoutingConfig {
+
+    @Bean
+    public ReadWriteRoutingDataSource dataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${app.datasource.replicas.urls}") String[] replicaUrls,
+            @Value("${app.datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${app.datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${app.datasource.routing.health-check-interval:5s}") Duration healthCheckInterval) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(properties.initializeDataSourceBuilder().type(HikariDataSource.class).build(),
+                "primary", binder, meterRegistry);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            HikariDataSource replica = pool(properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(replicaUrls[i].trim())
+                    .username(username)
+                    .password(password)
+                    .build(), "replica-" + i, binder, meterRegistry);
+            // a replica that is down at startup is only skipped until it comes up
+            replica.setInitializationFailTimeout(-1);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas, healthCheckInterval);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${app.datasource.routing.read-your-writes:5s}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+
+    @Bean
+    public MeterBinder replicaHealthMetrics(DataSource routing) throws SQLException {
+        // unwrapped: in virtual-thread mode the bean is wrapped in a ConcurrencyLimitingDataSource
+        ReadWriteRoutingDataSource dataSource = routing.unwrap(ReadWriteRoutingDataSource.class);
+        return registry -> {
+            Gauge.builder("db.replicas.healthy", dataSource, ReadWriteRoutingDataSource::healthyReplicas)
+                    .description("Replicas currently receiving reads")
+                    .register(registry);
+            Gauge.builder("db.replicas.configured", dataSource, ReadWriteRoutingDataSource::replicas)
+                    .description("Configured replicas")
+                    .register(registry);
+        };
+    }
+
+    private static HikariDataSource pool(HikariDataSource pool, String name, Binder binder,
+                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        // Boot only instruments DataSource beans, and these pools are not beans
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        return pool;
+    }
+}
@@ -0,0 +1,225 @@
+package com.nathan.jooq.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Sends writes to the primary and reads to the replicas.
+ * <p>
+ * A connection is only fetched once the first statement runs, so by then a {@code @Transactional(readOnly = true)}
+ * has marked it read-only: those go to a replica, everything else (including {@code forUpdate()} reads inside
+ * read-write transactions) to the primary. {@link #onReplica} and {@link #onPrimary} override that for a block of
+ * work on the current thread. Replicas take turns; one that cannot connect is skipped until a later check succeeds,
+ * and with no healthy replica left reads go to the primary. A replica whose pool is merely busy (every connection
+ * lent out until the pool's timeout) stays in rotation: the read moves on to the next one this once.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    public enum Target {PRIMARY, REPLICA}
+
+    private static final ThreadLocal<Target> PINNED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Lock markingDown = new ReentrantLock();
+    private final ScheduledExecutorService healthChecks;
+    private volatile List<DataSource> healthy = List.of();
+
+    /**
+     * @param replicas replica pools by name; none is used before its first successful health check
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration healthCheckInterval) {
+        this.primary = primary;
+        this.replicas = Map.copyOf(replicas);
+        setTargetDataSource(new Router(false));
+        setReadOnlyDataSource(new Router(true));
+        afterPropertiesSet();
+        this.healthChecks = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecks.scheduleWithFixedDelay(this::checkReplicas, 0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Runs {@code work} with its reads on a replica, even outside a read-only transaction. */
+    public static <T> T onReplica(Supplier<T> work) {
+        return pinned(Target.REPLICA, work);
+    }
+
+    /** Runs {@code work} entirely on the primary, e.g. to read back something just written. */
+    public static <T> T onPrimary(Supplier<T> work) {
+        return pinned(Target.PRIMARY, work);
+    }
+
+    private static <T> T pinned(Target target, Supplier<T> work) {
+        Target previous = pin(target);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    static Target pin(Target target) {
+        Target previous = PINNED.get();
+        PINNED.set(target);
+        return previous;
+    }
+
+    static void restore(Target previous) {
+        if (previous == null) {
+            PINNED.remove();
+        } else {
+            PINNED.set(previous);
+        }
+    }
+
+    public int healthyReplicas() {
+        return healthy.size();
+    }
+
+    public int replicas() {
+        return replicas.size();
+    }
+
+    @Override
+    public void close() {
+        healthChecks.shutdownNow();
+        for (DataSource dataSource : replicas.values()) {
+            closePool(dataSource);
+        }
+        closePool(primary);
+    }
+
+    void checkReplicas() {
+        List<DataSource> up = new ArrayList<>(replicas.size());
+        replicas.forEach((name, replica) -> {
+            boolean wasUp = healthy.contains(replica);
+            boolean isUp = isValid(replica);
+            if (isUp) {
+                up.add(replica);
+            }
+            if (isUp != wasUp) {
+                log.info("Replica {} is {}", name, isUp ? "up" : "down");
+            }
+        });
+        healthy = List.copyOf(up);
+    }
+
+    private static boolean isValid(DataSource replica) {
+        try (Connection connection = replica.getConnection()) {
+            if (connection.isValid(1)) {
+                return true;
+            }
+            // otherwise the pool would keep handing out the same dead connection
+            if (replica instanceof HikariDataSource hikari) {
+                hikari.evictConnection(connection);
+            }
+            return false;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection replicaConnection(Connect connect) throws SQLException {
+        List<DataSource> candidates = healthy;
+        for (int i = 0; i < candidates.size(); i++) {
+            DataSource replica = candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+            try {
+                return connect.to(replica);
+            } catch (SQLException e) {
+                if (!isConnectionFailure(e)) {
+                    log.debug("Replica gave no connection, trying the next one: {}", e.getMessage());
+                    continue;
+                }
+                log.warn("Replica connection failed, trying the next one", e);
+                markDown(replica);
+            }
+        }
+        return connect.to(primary);
+    }
+
+    /**
+     * Whether {@code e} means the replica cannot be reached, rather than that its pool had no connection free in
+     * time. HikariCP reports both as a timeout, with the last failed attempt to connect (if any) as the cause.
+     */
+    static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof SQLTransientConnectionException) {
+            return e.getCause() != null;
+        }
+        return !(e instanceof SQLFeatureNotSupportedException);
+    }
+
+    private void markDown(DataSource replica) {
+        markingDown.lock();
+        try {
+            List<DataSource> up = new ArrayList<>(healthy);
+            up.remove(replica);
+            healthy = List.copyOf(up);
+        } finally {
+            markingDown.unlock();
+        }
+    }
+
+    private static void closePool(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Closing {} failed", dataSource, e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Connect {
+        Connection to(DataSource dataSource) throws SQLException;
+    }
+
+    /** The target for read-write (or read-only) connections, given the current thread's pin. */
+    private final class Router extends AbstractDataSource {
+        private final boolean readOnly;
+
+        Router(boolean readOnly) {
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return route(DataSource::getConnection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return route(dataSource -> dataSource.getConnection(username, password));
+        }
+
+        private Connection route(Connect connect) throws SQLException {
+            Target pinned = PINNED.get();
+            boolean replica = pinned == null ? readOnly : pinned == Target.REPLICA;
+            return replica ? replicaConnection(connect) : connect.to(primary);
+        }
+    }
+}
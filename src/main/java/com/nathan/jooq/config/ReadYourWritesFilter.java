@@ -0,0 +1,93 @@
+package com.nathan.jooq.config;
+
+import com.nathan.jooq.event.AuthorCreatedEvent;
+import com.nathan.jooq.event.BooksChangedEvent;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes on top of {@link ReadWriteRoutingDataSource}: a request that writes books or authors gets a
+ * cookie, and for the next {@code window} that client's requests read from the primary, so it does not get an older
+ * replica copy of what it just wrote. {@code window} should cover the usual replication lag.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE = "read-primary-until";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!wroteRecently(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ReadWriteRoutingDataSource.Target previous = ReadWriteRoutingDataSource.pin(ReadWriteRoutingDataSource.Target.PRIMARY);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.restore(previous);
+        }
+    }
+
+    /** Runs after the writing transaction commits, or immediately when there is none. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksChanged(BooksChangedEvent event) {
+        markWritten();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorCreated(AuthorCreatedEvent event) {
+        markWritten();
+    }
+
+    /**
+     * Gives the client of the current request the cookie; for writes committed on a thread that has no request,
+     * call it from the request thread.
+     */
+    public void markWritten() {
+        // writes from jobs and other background threads have no client to tell
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && attributes.getResponse() != null) {
+            long until = System.currentTimeMillis() + window.toMillis();
+            attributes.getResponse().addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(until))
+                    .path("/")
+                    .maxAge(window)
+                    .httpOnly(true)
+                    .build()
+                    .toString());
+        }
+    }
+
+    private static boolean wroteRecently(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package com.nathan.jooq.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * With {@code spring.threads.virtual.enabled=true} Spring Boot runs Tomcat request handling, {@code @Scheduled}
+ * and {@code @Async} work on virtual threads, and every jOOQ call made from them blocks only its virtual thread.
+ * The database is then the only bound on concurrency, so its connections are rationed here (see
+ * {@link ConcurrencyLimitingDataSource}); pinned virtual threads are reported at {@code /actuator/pinning}.
+ * <p>
+ * Application code that may block while holding a lock (a query, a batch load) uses
+ * {@link java.util.concurrent.locks.ReentrantLock} rather than {@code synchronized}, which would pin the virtual
+ * thread to its carrier for as long as it blocks.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(
+            @Value("${app.db.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${app.db.acquire-timeout:5s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitingDataSource)
+                        ? new ConcurrencyLimitingDataSource(dataSource, maxConcurrency, acquireTimeout)
+                        : bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder dataSourceConcurrencyMetrics(DataSource dataSource) throws SQLException {
+        ConcurrencyLimitingDataSource limited = dataSource.unwrap(ConcurrencyLimitingDataSource.class);
+        return registry -> {
+            Gauge.builder("db.concurrency.in-use", limited, ConcurrencyLimitingDataSource::inUse)
+                    .description("Connections checked out through the concurrency limiter")
+                    .register(registry);
+            Gauge.builder("db.concurrency.waiting", limited, ConcurrencyLimitingDataSource::waiting)
+                    .description("Threads waiting for a database permit")
+                    .register(registry);
+        };
+    }
+}
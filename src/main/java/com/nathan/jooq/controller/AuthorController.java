@@ -3,6 +3,7 @@ package com.nathan.jooq.controller;
 import com.nathan.jooq.dto.AuthorDTO;
 import com.nathan.jooq.dto.AuthorRevenueDTO;
 import com.nathan.jooq.service.AuthorService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -26,4 +27,11 @@ public class AuthorController {
     public List<AuthorRevenueDTO> topRevenue(@RequestParam(defaultValue = "5") int limit) {
         return service.topAuthorsByRevenue(limit);
     }
+
+    /** The author's revenue and rank on the top-revenue board; 404 if they have no books. */
+    @GetMapping("/{id}/revenue-rank")
+    public ResponseEntity<AuthorRevenueDTO> revenueRank(@PathVariable Long id) {
+        AuthorRevenueDTO rank = service.revenueRank(id);
+        return rank == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(rank);
+    }
 }
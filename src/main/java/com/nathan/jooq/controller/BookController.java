@@ -1,28 +1,92 @@
 package com.nathan.jooq.controller;
 
+import com.nathan.jooq.config.ReadYourWritesFilter;
 import com.nathan.jooq.dto.*;
+import com.nathan.jooq.export.CompactPageWriter;
+import com.nathan.jooq.service.BookImportService;
+import com.nathan.jooq.service.BookLoader;
 import com.nathan.jooq.service.BookService;
 import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/books")
 public class BookController {
+    private static final String SMILE = "application/x-jackson-smile";
+    private static final String CBOR = "application/cbor";
+
     private final BookService service;
-    public BookController(BookService service) { this.service = service; }
+    private final BookImportService importService;
+    /** Request-scoped. */
+    private final BookLoader loader;
+    /** Only with read/write routing. */
+    private final ObjectProvider<ReadYourWritesFilter> readYourWrites;
+    /** JSON first, so that a wildcard {@code Accept} gets JSON. */
+    private final List<AbstractJackson2HttpMessageConverter> encodings;
+
+    public BookController(BookService service, BookImportService importService, BookLoader loader,
+                          ObjectProvider<ReadYourWritesFilter> readYourWrites,
+                          MappingJackson2HttpMessageConverter json,
+                          MappingJackson2SmileHttpMessageConverter smile,
+                          MappingJackson2CborHttpMessageConverter cbor) {
+        this.service = service;
+        this.importService = importService;
+        this.loader = loader;
+        this.readYourWrites = readYourWrites;
+        this.encodings = List.of(json, smile, cbor);
+    }
 
     @PostMapping
     public BookDTO create(@RequestBody BookCreateRequest req) throws BadRequestException {
         return service.create(req);
     }
 
+    /** Body is a JSON array of {@link BookCreateRequest}s, or one per line as NDJSON; it is read as a stream. */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkImportResult bulkCreate(InputStream body,
+                                       @RequestParam(required = false) Integer batchSize,
+                                       @RequestParam(required = false) Integer commitSize) throws IOException {
+        return importService.importBooks(body, batchSize, commitSize);
+    }
+
     @PutMapping("/{id}/price")
-    public Long updatePrice(@PathVariable Long id, @RequestParam BigDecimal newPrice) {
-        return service.updatePrice(id, newPrice);
+    public CompletableFuture<Long> updatePrice(@PathVariable Long id, @RequestParam BigDecimal newPrice) {
+        if (service.priceUpdatesCoalesced()) {
+            // the coalescer commits on its own thread, where the write listener finds no response for the cookie
+            readYourWrites.ifAvailable(ReadYourWritesFilter::markWritten);
+        }
+        return service.updatePriceAsync(id, newPrice);
+    }
+
+    /** The optimistic price update ran out of retries; the client may simply try again. */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> conflict(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    /** The coalesced price update queue is full (or stopping); the client should back off and retry. */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> overloaded(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
     }
 
     @GetMapping("/{id}")
@@ -30,6 +94,12 @@ public class BookController {
         return service.getBookById(id);
     }
 
+    /** {@code GET /books?ids=1,2,3}: the books in that order, minus unknown ids; at most three queries per 500 ids. */
+    @GetMapping(params = "ids")
+    public List<BookDTO> getByIds(@RequestParam List<Long> ids) {
+        return loader.books(ids);
+    }
+
     @GetMapping("/search")
     public PageResult<BookDTO> search(
             @RequestParam(required = false) String author,
@@ -37,9 +107,66 @@ public class BookController {
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "EXACT") TotalMode totalMode,
+            @RequestParam(defaultValue = "true") boolean includeTotal
     ) {
-        return service.search(author, publishedYear, minPrice, maxPrice, page, size);
+        return service.search(author, publishedYear, minPrice, maxPrice, page, size,
+                includeTotal ? totalMode : TotalMode.NONE);
+    }
+
+    /**
+     * {@link #search} in the compact page layout of {@link CompactPageWriter} (authors written once per page), as
+     * JSON, Smile or CBOR by {@code Accept}, streamed from the result rows.
+     */
+    @GetMapping(value = "/search/compact", produces = {MediaType.APPLICATION_JSON_VALUE, SMILE, CBOR})
+    public ResponseEntity<StreamingResponseBody> searchCompact(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Integer publishedYear,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "EXACT") TotalMode totalMode,
+            @RequestParam(defaultValue = "true") boolean includeTotal,
+            @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.APPLICATION_JSON_VALUE) String accept
+    ) {
+        AbstractJackson2HttpMessageConverter encoding = encodingFor(MediaType.parseMediaTypes(accept));
+        TotalMode mode = includeTotal ? totalMode : TotalMode.NONE;
+        return ResponseEntity.ok()
+                .contentType(encoding.getSupportedMediaTypes().get(0))
+                .body(out -> {
+                    try (CompactPageWriter writer = new CompactPageWriter(encoding.getObjectMapper(), out)) {
+                        service.writeSearchPage(author, publishedYear, minPrice, maxPrice, page, size, mode, writer);
+                    }
+                });
+    }
+
+    private AbstractJackson2HttpMessageConverter encodingFor(List<MediaType> accepted) {
+        for (MediaType type : accepted) {
+            for (AbstractJackson2HttpMessageConverter encoding : encodings) {
+                if (encoding.getSupportedMediaTypes().get(0).isCompatibleWith(type)) {
+                    return encoding;
+                }
+            }
+        }
+        return encodings.get(0);
+    }
+
+    /**
+     * {@link #search} by keyset: the first page without {@code cursor}, each following one with the
+     * {@code nextCursor} of the page before.
+     */
+    @GetMapping("/search/cursor")
+    public CursorPage<BookDTO> searchByCursor(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Integer publishedYear,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size
+    ) throws BadRequestException {
+        return service.searchByCursor(author, publishedYear, minPrice, maxPrice, cursor, size);
     }
 
     @PutMapping("/update-price-by-author")
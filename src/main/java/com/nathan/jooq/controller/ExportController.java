@@ -0,0 +1,45 @@
+package com.nathan.jooq.controller;
+
+import com.nathan.jooq.export.ExportFormat;
+import com.nathan.jooq.service.ExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.math.BigDecimal;
+
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+    private final ExportService service;
+    public ExportController(ExportService service) { this.service = service; }
+
+    @GetMapping("/books")
+    public ResponseEntity<StreamingResponseBody> books(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Integer publishedYear,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format
+    ) {
+        return stream("books", format,
+                out -> service.exportBooks(author, publishedYear, minPrice, maxPrice, format, out));
+    }
+
+    @GetMapping("/reports/author-ranking")
+    public ResponseEntity<StreamingResponseBody> authorRankings(@RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+        return stream("author-ranking", format, out -> service.exportAuthorRankings(format, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name, ExportFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.extension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
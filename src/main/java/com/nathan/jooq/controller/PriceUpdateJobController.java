@@ -0,0 +1,36 @@
+package com.nathan.jooq.controller;
+
+import com.nathan.jooq.dto.PriceUpdateJobDTO;
+import com.nathan.jooq.dto.UpdateBookPriceRequest;
+import com.nathan.jooq.service.PriceUpdateJobService;
+import org.apache.coyote.BadRequestException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/books/price-jobs")
+public class PriceUpdateJobController {
+    private final PriceUpdateJobService service;
+
+    public PriceUpdateJobController(PriceUpdateJobService service) {
+        this.service = service;
+    }
+
+    /** Chunked alternative to {@code PUT /books/update-price-by-author}; poll the returned job for progress. */
+    @PostMapping
+    public ResponseEntity<PriceUpdateJobDTO> submit(@RequestBody UpdateBookPriceRequest req,
+                                                    @RequestParam(required = false) Integer chunkSize) throws BadRequestException {
+        return ResponseEntity.accepted().body(service.submit(req, chunkSize));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<PriceUpdateJobDTO> get(@PathVariable Long id) {
+        PriceUpdateJobDTO job = service.get(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    @PostMapping("/{id}/resume")
+    public PriceUpdateJobDTO resume(@PathVariable Long id) throws BadRequestException {
+        return service.resume(id);
+    }
+}
@@ -0,0 +1,91 @@
+package com.nathan.jooq.controller;
+
+import com.nathan.jooq.dto.AuthorRankingDTO;
+import com.nathan.jooq.dto.AuthorReportDTO;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.BookYearReportDTO;
+import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.InactiveAuthorDTO;
+import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.dto.YearlyStatsDTO;
+import com.nathan.jooq.service.ReactiveReadService;
+import org.apache.coyote.BadRequestException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Non-blocking mirror of the book reads and {@code /reports/*} (profile {@code reactive}). Spring MVC subscribes to
+ * the returned {@link Mono}/{@link Flux} and completes the request asynchronously, so no request thread waits on
+ * the database.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/reactive")
+public class ReactiveReadController {
+    private final ReactiveReadService service;
+
+    public ReactiveReadController(ReactiveReadService service) {
+        this.service = service;
+    }
+
+    @GetMapping("/books/{id}")
+    public Mono<BookDTO> getById(@PathVariable Long id) {
+        return service.getBookById(id);
+    }
+
+    @GetMapping("/books/search")
+    public Mono<PageResult<BookDTO>> search(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Integer publishedYear,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "EXACT") TotalMode totalMode
+    ) throws BadRequestException {
+        if (totalMode == TotalMode.CACHED) {
+            throw new BadRequestException("totalMode=CACHED is only available on /books/search");
+        }
+        return service.search(author, publishedYear, minPrice, maxPrice, page, size, totalMode);
+    }
+
+    @GetMapping("/reports/yearly")
+    public Flux<YearlyStatsDTO> yearly(@RequestParam(defaultValue = "2000") int minPublishedYear) {
+        return service.yearlyStats(minPublishedYear);
+    }
+
+    @GetMapping("/reports/authors/value")
+    public Flux<AuthorReportDTO> reportAuthorBookValue() {
+        return service.reportAuthorBookValue();
+    }
+
+    @GetMapping("/reports/books/year")
+    public Flux<BookYearReportDTO> reportBookByYear() {
+        return service.reportBookByYear();
+    }
+
+    @GetMapping("/reports/authors/top-avg")
+    public Flux<AuthorReportDTO> topAuthorsByAvgPrice() {
+        return service.topAuthorsByAvgPrice();
+    }
+
+    @GetMapping("/reports/countries/rank")
+    public Flux<CountryRankingDTO> rankCountriesByBookValue() {
+        return service.rankCountriesByBookValue();
+    }
+
+    @GetMapping("/reports/authors/inactive-authors")
+    public Flux<InactiveAuthorDTO> findInactiveAuthors(@RequestParam(defaultValue = "2") int yearsThreshold) {
+        return service.findInactiveAuthors(yearsThreshold);
+    }
+
+    @GetMapping("/reports/authors/author-ranking")
+    public Flux<AuthorRankingDTO> getRankings() {
+        return service.getAuthorRankings();
+    }
+}
@@ -4,42 +4,70 @@ import com.nathan.jooq.dto.AuthorRankingDTO;
 import com.nathan.jooq.dto.AuthorReportDTO;
 import com.nathan.jooq.dto.BookYearReportDTO;
 import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.DashboardDTO;
+import com.nathan.jooq.dto.DashboardReport;
 import com.nathan.jooq.dto.InactiveAuthorDTO;
 import com.nathan.jooq.dto.YearlyStatsDTO;
+import com.nathan.jooq.service.ColumnarReportEngine;
+import com.nathan.jooq.service.ColumnarTables;
+import com.nathan.jooq.service.DashboardService;
 import com.nathan.jooq.service.ReportService;
+import com.nathan.jooq.service.ReportSnapshot;
+import com.nathan.jooq.service.ReportSnapshotService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/reports")
 public class ReportController {
+    /** {@code columnar}, {@code snapshot} or {@code live}: where the report rows came from. */
+    static final String SOURCE_HEADER = "X-Report-Source";
+    /** Point in time the report reflects. */
+    static final String AS_OF_HEADER = "X-Report-As-Of";
+
     private final ReportService service;
-    public ReportController(ReportService service) { this.service = service; }
+    private final ColumnarReportEngine columnar;
+    private final ReportSnapshotService snapshots;
+    private final DashboardService dashboards;
+
+    public ReportController(ReportService service, ColumnarReportEngine columnar, ReportSnapshotService snapshots,
+                            DashboardService dashboards) {
+        this.service = service;
+        this.columnar = columnar;
+        this.snapshots = snapshots;
+        this.dashboards = dashboards;
+    }
 
     @GetMapping("/yearly")
-    public List<YearlyStatsDTO> yearly(@RequestParam(defaultValue = "2000") int minPublishedYear) {
-        return service.yearlyStats(minPublishedYear);
+    public ResponseEntity<List<YearlyStatsDTO>> yearly(@RequestParam(defaultValue = "2000") int minPublishedYear) {
+        return serve(c -> c.yearlyStats(minPublishedYear), s -> s.yearlyStats(minPublishedYear),
+                () -> service.yearlyStats(minPublishedYear));
     }
 
     @GetMapping("/authors/value")
-    public List<AuthorReportDTO> reportAuthorBookValue() {
-        return service.reportAuthorBookValue();
+    public ResponseEntity<List<AuthorReportDTO>> reportAuthorBookValue() {
+        return serve(null, ReportSnapshot::authorBookValue, service::reportAuthorBookValue);
     }
 
     @GetMapping("/books/year")
-    public List<BookYearReportDTO> reportBookByYear() {
-        return service.reportBookByYear();
+    public ResponseEntity<List<BookYearReportDTO>> reportBookByYear() {
+        return serve(ColumnarTables::bookByYear, ReportSnapshot::bookByYear, service::reportBookByYear);
     }
 
     @GetMapping("/authors/top-avg")
-    public List<AuthorReportDTO> topAuthorsByAvgPrice() {
-        return service.topAuthorsByAvgPrice();
+    public ResponseEntity<List<AuthorReportDTO>> topAuthorsByAvgPrice() {
+        return serve(ColumnarTables::topAuthorsByAvgPrice, ReportSnapshot::topAuthorsByAvgPrice, service::topAuthorsByAvgPrice);
     }
 
     @GetMapping("/countries/rank")
-    public List<CountryRankingDTO> rankCountriesByBookValue() {
-        return service.rankCountriesByBookValue();
+    public ResponseEntity<List<CountryRankingDTO>> rankCountriesByBookValue() {
+        return serve(ColumnarTables::countryRankings, ReportSnapshot::countryRankings, service::rankCountriesByBookValue);
     }
 
     @GetMapping("/authors/inactive-authors")
@@ -50,7 +78,43 @@ public class ReportController {
     }
 
     @GetMapping("/authors/author-ranking")
-    public List<AuthorRankingDTO> getRankings() {
-        return service.getAuthorRankings();
+    public ResponseEntity<List<AuthorRankingDTO>> getRankings() {
+        return serve(ColumnarTables::authorRankings, ReportSnapshot::authorRankings, service::getAuthorRankings);
+    }
+
+    /**
+     * The selected reports (all by default, e.g. {@code ?reports=YEARLY_STATS,COUNTRY_RANKINGS}) in one response,
+     * queried in parallel. Failed or timed-out reports are marked as such instead of failing the whole response.
+     */
+    @GetMapping("/dashboard")
+    public DashboardDTO dashboard(@RequestParam(required = false) Set<DashboardReport> reports,
+                                  @RequestParam(defaultValue = "2000") int minPublishedYear,
+                                  @RequestParam(defaultValue = "2") int yearsThreshold) {
+        return dashboards.dashboard(reports, minPublishedYear, yearsThreshold);
+    }
+
+    /** From the columnar tables if enabled and loaded ({@code fromColumns} may be null), else as before. */
+    private <T> ResponseEntity<List<T>> serve(Function<ColumnarTables, List<T>> fromColumns,
+                                              Function<ReportSnapshot, List<T>> fromSnapshot, Supplier<List<T>> live) {
+        ColumnarTables columns = fromColumns == null ? null : columnar.current();
+        if (columns != null) {
+            // current() has applied every committed change
+            return ResponseEntity.ok()
+                    .header(SOURCE_HEADER, "columnar")
+                    .header(AS_OF_HEADER, LocalDateTime.now().toString())
+                    .body(fromColumns.apply(columns));
+        }
+        ReportSnapshot snapshot = snapshots.freshSnapshot();
+        if (snapshot == null) {
+            LocalDateTime asOf = LocalDateTime.now();
+            return ResponseEntity.ok()
+                    .header(SOURCE_HEADER, "live")
+                    .header(AS_OF_HEADER, asOf.toString())
+                    .body(live.get());
+        }
+        return ResponseEntity.ok()
+                .header(SOURCE_HEADER, "snapshot")
+                .header(AS_OF_HEADER, snapshot.refreshedAt().toString())
+                .body(fromSnapshot.apply(snapshot));
     }
 }
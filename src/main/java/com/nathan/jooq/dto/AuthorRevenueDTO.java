@@ -2,4 +2,4 @@ package com.nathan.jooq.dto;
 
 import java.math.BigDecimal;
 
-public record AuthorRevenueDTO(String name, BigDecimal totalRevenue) {}
+public record AuthorRevenueDTO(Long id, String name, BigDecimal totalRevenue, Integer rank) {}
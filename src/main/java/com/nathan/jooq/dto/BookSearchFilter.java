@@ -0,0 +1,20 @@
+package com.nathan.jooq.dto;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Book search criteria in normalized form, so equivalent requests compare (and hash) equal.
+ */
+public record BookSearchFilter(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice) {
+
+    public static BookSearchFilter of(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice) {
+        String author = authorName == null || authorName.isBlank() ? null : authorName.trim().toLowerCase(Locale.ROOT);
+        return new BookSearchFilter(
+                author,
+                publishedYear,
+                minPrice == null ? null : minPrice.stripTrailingZeros(),
+                maxPrice == null ? null : maxPrice.stripTrailingZeros()
+        );
+    }
+}
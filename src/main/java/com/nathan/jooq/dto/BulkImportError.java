@@ -0,0 +1,6 @@
+package com.nathan.jooq.dto;
+
+/**
+ * A rejected row of a bulk import; {@code row} is its zero-based position in the request body.
+ */
+public record BulkImportError(int row, String title, String message) {}
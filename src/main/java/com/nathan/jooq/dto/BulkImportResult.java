@@ -0,0 +1,15 @@
+package com.nathan.jooq.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of {@code POST /books/bulk}. {@code errors} is capped; {@code failed} always counts every rejected row.
+ */
+public record BulkImportResult(
+        int received,
+        int inserted,
+        int failed,
+        List<BulkImportError> errors,
+        long elapsedMillis,
+        double rowsPerSecond
+) {}
@@ -0,0 +1,13 @@
+package com.nathan.jooq.dto;
+
+import java.util.List;
+
+/**
+ * Keyset-paginated page. Pass {@code nextCursor} back as {@code cursor} to fetch the following page;
+ * it is {@code null} on the last page.
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor) {
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
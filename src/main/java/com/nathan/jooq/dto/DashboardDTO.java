@@ -0,0 +1,13 @@
+package com.nathan.jooq.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Several reports fetched in parallel. A report that failed or timed out does not fail the others.
+ */
+public record DashboardDTO(
+        LocalDateTime generatedAt,
+        long millis,
+        Map<DashboardReport, DashboardSection> reports
+) {}
@@ -0,0 +1,14 @@
+package com.nathan.jooq.dto;
+
+/**
+ * The reports {@code GET /reports/dashboard} can include, one per {@code /reports/*} endpoint.
+ */
+public enum DashboardReport {
+    YEARLY_STATS,
+    AUTHOR_BOOK_VALUE,
+    BOOKS_BY_YEAR,
+    TOP_AUTHORS_BY_AVG_PRICE,
+    COUNTRY_RANKINGS,
+    INACTIVE_AUTHORS,
+    AUTHOR_RANKINGS
+}
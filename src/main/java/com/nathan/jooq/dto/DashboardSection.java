@@ -0,0 +1,19 @@
+package com.nathan.jooq.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One report of a {@link DashboardDTO}. {@code rows} is {@code null} unless {@code status} is {@code OK};
+ * {@code source} and {@code asOf} mean the same as the {@code X-Report-Source} / {@code X-Report-As-Of} headers.
+ */
+public record DashboardSection(
+        Status status,
+        String source,
+        LocalDateTime asOf,
+        long millis,
+        List<?> rows,
+        String error
+) {
+    public enum Status {OK, TIMEOUT, FAILED}
+}
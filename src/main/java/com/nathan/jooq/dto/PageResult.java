@@ -2,8 +2,17 @@ package com.nathan.jooq.dto;
 
 import java.util.List;
 
-public record PageResult<T>(List<T> content, int page, int size, int total) {
-    public int totalPages() {
+/**
+ * Offset-paginated page. {@code total} is {@code null} when the page was fetched with {@link TotalMode#NONE}.
+ */
+public record PageResult<T>(List<T> content, int page, int size, Integer total, boolean hasNext, TotalMode totalMode) {
+
+    public PageResult(List<T> content, int page, int size, int total) {
+        this(content, page, size, total, (long) (page + 1) * size < total, TotalMode.EXACT);
+    }
+
+    public Integer totalPages() {
+        if (total == null) return null;
         return size == 0 ? 0 : (int) Math.ceil((double) total / size);
     }
 }
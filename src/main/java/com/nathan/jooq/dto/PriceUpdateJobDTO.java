@@ -0,0 +1,24 @@
+package com.nathan.jooq.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a chunked price update ({@code /books/price-jobs}). {@code booksPerSecond} is measured from
+ * {@code startedAt} to {@code finishedAt}, or to now while the job runs.
+ */
+public record PriceUpdateJobDTO(
+        Long id,
+        PriceUpdateJobStatus status,
+        String authorName,
+        String authorCountry,
+        BigDecimal percent,
+        int chunkSize,
+        int totalBooks,
+        int updatedBooks,
+        LocalDateTime createdAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        double booksPerSecond,
+        String error
+) {}
@@ -0,0 +1,10 @@
+package com.nathan.jooq.dto;
+
+public enum PriceUpdateJobStatus {
+    /** Target books resolved, not started yet. */
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    /** Stopped on an error; the books updated so far stay updated and the job can be resumed. */
+    FAILED
+}
@@ -0,0 +1,15 @@
+package com.nathan.jooq.dto;
+
+/**
+ * How {@link PageResult#total()} is computed for a search page.
+ */
+public enum TotalMode {
+    /** Separate {@code COUNT(DISTINCT)} query before the page query. */
+    EXACT,
+    /** {@code count(*) over ()} computed in the page query itself; one round trip. */
+    WINDOW,
+    /** Served from a short-lived cache keyed by the normalized filter; may lag recent writes. */
+    CACHED,
+    /** No total at all; only {@link PageResult#hasNext()} is reported. */
+    NONE
+}
@@ -0,0 +1,8 @@
+package com.nathan.jooq.event;
+
+/**
+ * Published by {@code AuthorService.create} for every author it inserts.
+ * Listeners that index authors should react after commit.
+ */
+public record AuthorCreatedEvent(Long authorId, String name) {
+}
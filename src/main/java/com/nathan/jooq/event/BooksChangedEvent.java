@@ -0,0 +1,15 @@
+package com.nathan.jooq.event;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by the book write paths for every book row they insert or update.
+ * Listeners that derive state from books should react after commit.
+ */
+public record BooksChangedEvent(Collection<Long> bookIds) {
+
+    public static BooksChangedEvent of(Long bookId) {
+        return new BooksChangedEvent(List.of(bookId));
+    }
+}
@@ -0,0 +1,19 @@
+package com.nathan.jooq.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed book or author change, as relayed from the outbox. Delivered at least once and in {@code sequence}
+ * order, which is commit order as the relay saw it: consumers should skip sequences they have already applied.
+ * {@code id} is assigned at insert and is not ordered by commit. The payload is the JSON after-image of the row.
+ */
+public record ChangeEvent(long id, long sequence, String aggregateType, long aggregateId, String type, String payload,
+                          LocalDateTime createdAt) {
+
+    public static final String BOOK = "BOOK";
+    public static final String AUTHOR = "AUTHOR";
+
+    public static final String BOOK_CREATED = "BOOK_CREATED";
+    public static final String BOOK_PRICE_CHANGED = "BOOK_PRICE_CHANGED";
+    public static final String AUTHOR_CREATED = "AUTHOR_CREATED";
+}
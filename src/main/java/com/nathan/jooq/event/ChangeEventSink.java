@@ -0,0 +1,18 @@
+package com.nathan.jooq.event;
+
+import java.util.List;
+
+/**
+ * Destination of the outbox relay besides the in-process {@link ChangeEvent} listeners, e.g. a message broker.
+ * Every bean of this type receives every batch.
+ */
+public interface ChangeEventSink {
+
+    /**
+     * Called with consecutive batches, each in {@link ChangeEvent#sequence()} order. Throwing makes the relay
+     * redeliver the same events later, possibly one at a time, so a sink may see events again, including after it
+     * returned normally but before the batch was marked published. An event that keeps failing on its own is
+     * dead-lettered and never delivered.
+     */
+    void publish(List<ChangeEvent> batch) throws Exception;
+}
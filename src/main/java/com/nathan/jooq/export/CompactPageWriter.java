@@ -0,0 +1,94 @@
+package com.nathan.jooq.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.TotalMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a search page as it is read, in whichever encoding {@code mapper} produces (JSON, Smile, CBOR):
+ * <pre>
+ * {"books": [{"id", "title", "isbn", "publishedYear", "price", "createdAt",
+ *             "authors": [{"id", "contribution"}, ...]}, ...],
+ *  "authors": [{"id", "name", "email", "birthDate", "country", "createdAt"}, ...],
+ *  "page", "size", "total", "hasNext", "totalMode"}
+ * </pre>
+ * Each author is written once, in {@code authors}, however many books on the page share them; the books only refer
+ * to them by id. The paging fields come last because {@code total} and {@code hasNext} may only be known once the
+ * rows have been read.
+ */
+public class CompactPageWriter implements AutoCloseable {
+    private final JsonGenerator out;
+    private final Map<Long, AuthorDTO> authors = new LinkedHashMap<>();
+
+    public CompactPageWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+        // the caller owns the stream
+        this.out = mapper.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.out.writeStartObject();
+        this.out.writeArrayFieldStart("books");
+    }
+
+    public void book(Long id, String title, String isbn, Integer publishedYear, BigDecimal price,
+                     LocalDateTime createdAt, List<AuthorDTO> bookAuthors) throws IOException {
+        out.writeStartObject();
+        out.writeNumberField("id", id);
+        out.writeStringField("title", title);
+        out.writeStringField("isbn", isbn);
+        writeNumberField("publishedYear", publishedYear);
+        out.writeNumberField("price", price);
+        out.writePOJOField("createdAt", createdAt);
+        out.writeArrayFieldStart("authors");
+        for (AuthorDTO author : bookAuthors) {
+            authors.putIfAbsent(author.id(), author);
+            out.writeStartObject();
+            out.writeNumberField("id", author.id());
+            out.writeStringField("contribution", author.contribution());
+            out.writeEndObject();
+        }
+        out.writeEndArray();
+        out.writeEndObject();
+    }
+
+    public void finish(int page, int size, Integer total, boolean hasNext, TotalMode totalMode) throws IOException {
+        out.writeEndArray();
+        out.writeArrayFieldStart("authors");
+        for (AuthorDTO author : authors.values()) {
+            out.writeStartObject();
+            out.writeNumberField("id", author.id());
+            out.writeStringField("name", author.name());
+            out.writeStringField("email", author.email());
+            out.writePOJOField("birthDate", author.birthDate());
+            out.writeStringField("country", author.country());
+            out.writePOJOField("createdAt", author.createdAt());
+            out.writeEndObject();
+        }
+        out.writeEndArray();
+        out.writeNumberField("page", page);
+        out.writeNumberField("size", size);
+        writeNumberField("total", total);
+        out.writeBooleanField("hasNext", hasNext);
+        out.writeStringField("totalMode", totalMode.name());
+        out.writeEndObject();
+    }
+
+    private void writeNumberField(String name, Integer value) throws IOException {
+        if (value == null) {
+            out.writeNullField(name);
+        } else {
+            out.writeNumberField(name, value.intValue());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.nathan.jooq.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * RFC 4180 CSV with a header line; {@code null} values are written as empty fields.
+ */
+public class CsvRowWriter<T> implements RowWriter<T> {
+    private final Writer out;
+    private final Function<T, List<?>> columns;
+
+    public CsvRowWriter(OutputStream out, List<String> header, Function<T, List<?>> columns) throws IOException {
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        this.columns = columns;
+        writeLine(header);
+    }
+
+    @Override
+    public void write(T row) throws IOException {
+        writeLine(columns.apply(row));
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+
+    private void writeLine(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) out.write(',');
+            Object value = values.get(i);
+            if (value != null) out.write(escape(value.toString()));
+        }
+        out.write("\r\n");
+    }
+
+    static String escape(String value) {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
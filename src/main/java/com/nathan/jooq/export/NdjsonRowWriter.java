@@ -0,0 +1,56 @@
+package com.nathan.jooq.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Newline-delimited JSON: one object per line, each ended by a newline; no rows write nothing.
+ */
+public class NdjsonRowWriter<T> implements RowWriter<T> {
+    private final OutputStream out;
+    private final SequenceWriter writer;
+    private boolean written;
+
+    public NdjsonRowWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+        this.out = out;
+        this.writer = mapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n")
+                .writeValues(new NonClosingOutputStream(out));
+    }
+
+    @Override
+    public void write(T row) throws IOException {
+        writer.write(row);
+        written = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        // the separator only goes between rows
+        if (written) out.write('\n');
+        out.flush();
+    }
+
+    /** Lets the sequence writer finish without closing the response stream underneath it. */
+    private static final class NonClosingOutputStream extends java.io.FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
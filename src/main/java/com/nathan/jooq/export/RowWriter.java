@@ -0,0 +1,29 @@
+package com.nathan.jooq.export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes rows to an output stream one at a time, so nothing beyond a small write buffer is held in memory.
+ * A slow client blocks {@link #write}, which in turn pauses the database cursor feeding it.
+ */
+public interface RowWriter<T> extends AutoCloseable {
+
+    void write(T row) throws IOException;
+
+    /** Flushes buffered output; does not close the underlying stream. */
+    @Override
+    void close() throws IOException;
+
+    /** Adapts {@link #write} for cursor callbacks that cannot throw checked exceptions. */
+    default Consumer<T> asConsumer() {
+        return row -> {
+            try {
+                write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
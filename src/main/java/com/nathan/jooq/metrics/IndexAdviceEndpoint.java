@@ -0,0 +1,26 @@
+package com.nathan.jooq.metrics;
+
+import com.nathan.jooq.service.IndexAdvisor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/indexadvice} explains the search and report queries and lists what each plan is missing.
+ */
+@Component
+@Endpoint(id = "indexadvice")
+public class IndexAdviceEndpoint {
+    private final IndexAdvisor advisor;
+
+    public IndexAdviceEndpoint(IndexAdvisor advisor) {
+        this.advisor = advisor;
+    }
+
+    @ReadOperation
+    public List<IndexAdvisor.Advice> advice() {
+        return advisor.advise();
+    }
+}
@@ -0,0 +1,34 @@
+package com.nathan.jooq.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/pinning} lists the call sites where virtual threads were pinned; {@code DELETE} clears them.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Endpoint(id = "pinning")
+public class PinningEndpoint {
+    private final VirtualThreadPinningMonitor monitor;
+
+    public PinningEndpoint(VirtualThreadPinningMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    @ReadOperation
+    public List<VirtualThreadPinningMonitor.PinnedSite> pinnedSites() {
+        return monitor.sites();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        monitor.clear();
+    }
+}
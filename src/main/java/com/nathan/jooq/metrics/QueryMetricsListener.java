@@ -0,0 +1,218 @@
+package com.nathan.jooq.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per-query Micrometer metrics for every statement jOOQ executes:
+ * <ul>
+ *     <li>{@code jooq.query} – end-to-end latency (percentile histogram), tagged by query, type and outcome</li>
+ *     <li>{@code jooq.query.phase} – time spent rendering, binding, executing and fetching</li>
+ *     <li>{@code jooq.query.rows} – rows fetched (result queries) or affected (DML)</li>
+ * </ul>
+ * The logical query name is the first {@code com.nathan.jooq.service} frame on the calling stack,
+ * e.g. {@code BookService.search}, so cardinality is bounded by the number of service methods. Walking the stack
+ * costs more than the rest of the listener together, so it is only done for statements slower than
+ * {@code app.jooq.metrics.slow-query-threshold}, which go to the {@link SlowQueryLog}. The name found is remembered
+ * for the statement's SQL, and later executions of it are tagged with it; statements that have never been slow are
+ * tagged {@code unattributed}.
+ * <p>
+ * Registered by {@code JooqOptimisticLockConfig} only when {@code app.jooq.metrics.enabled} is true;
+ * when disabled the bean does not exist and jOOQ never calls into it.
+ */
+@Component
+@ConditionalOnProperty(name = "app.jooq.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryMetricsListener implements ExecuteListener {
+    private static final String SAMPLE_KEY = QueryMetricsListener.class.getName();
+    private static final String SERVICE_PACKAGE = "com.nathan.jooq.service.";
+    private static final String UNKNOWN = "unknown";
+    private static final String UNATTRIBUTED = "unattributed";
+    /** Bounds {@link #names}; statements past it stay unattributed unless slow. */
+    private static final int MAX_NAMED_STATEMENTS = 10_000;
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final MeterRegistry registry;
+    private final SlowQueryLog slowQueryLog;
+    private final long slowThresholdNanos;
+    private final Map<String, QueryMeters> meters = new ConcurrentHashMap<>();
+    // query name by SQL, learnt from slow executions
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+
+    public QueryMetricsListener(MeterRegistry registry,
+                                SlowQueryLog slowQueryLog,
+                                @Value("${app.jooq.metrics.slow-query-threshold:200ms}") Duration slowThreshold) {
+        this.registry = registry;
+        this.slowQueryLog = slowQueryLog;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    public void start(ExecuteContext ctx) {
+        ctx.data(SAMPLE_KEY, new Sample(System.nanoTime()));
+    }
+
+    @Override
+    public void renderStart(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void renderEnd(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.render += System.nanoTime() - s.phaseStart;
+    }
+
+    @Override
+    public void bindStart(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void bindEnd(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.bind += System.nanoTime() - s.phaseStart;
+    }
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.execute += System.nanoTime() - s.phaseStart;
+    }
+
+    @Override
+    public void fetchStart(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void recordEnd(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.rows++;
+    }
+
+    @Override
+    public void fetchEnd(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s != null) s.fetch += System.nanoTime() - s.phaseStart;
+    }
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        Sample s = sample(ctx);
+        if (s == null) return;
+
+        long elapsed = System.nanoTime() - s.start;
+        boolean failed = ctx.exception() != null;
+        // DML reports affected rows instead of fetching records
+        long rows = s.rows > 0 ? s.rows : Math.max(ctx.rows(), 0);
+        boolean slow = elapsed >= slowThresholdNanos;
+        String sql = ctx.sql();
+        // still called from the service: end() runs on the executing thread, before control returns to it
+        String name = slow ? learnName(sql) : sql == null ? UNATTRIBUTED : names.getOrDefault(sql, UNATTRIBUTED);
+
+        QueryMeters m = meters.computeIfAbsent(name + '|' + ctx.type() + '|' + failed,
+                k -> new QueryMeters(registry, name, ctx.type().name(), failed));
+        m.total.record(elapsed, TimeUnit.NANOSECONDS);
+        m.render.record(s.render, TimeUnit.NANOSECONDS);
+        m.bind.record(s.bind, TimeUnit.NANOSECONDS);
+        m.execute.record(s.execute, TimeUnit.NANOSECONDS);
+        if (s.fetch > 0) m.fetch.record(s.fetch, TimeUnit.NANOSECONDS);
+        m.rows.record(rows);
+
+        if (slow) slowQueryLog.record(name, sql, Duration.ofNanos(elapsed), rows);
+    }
+
+    private String learnName(String sql) {
+        String name = queryName();
+        if (sql != null && (names.size() < MAX_NAMED_STATEMENTS || names.containsKey(sql))) names.put(sql, name);
+        return name;
+    }
+
+    private static Sample sample(ExecuteContext ctx) {
+        return (Sample) ctx.data(SAMPLE_KEY);
+    }
+
+    private static String queryName() {
+        Optional<StackWalker.StackFrame> frame = STACK_WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(SERVICE_PACKAGE))
+                .findFirst());
+        return frame.map(f -> simpleName(f.getClassName()) + "." + f.getMethodName()).orElse(UNKNOWN);
+    }
+
+    private static String simpleName(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1);
+        int nested = name.indexOf('$');
+        return nested < 0 ? name : name.substring(0, nested);
+    }
+
+    private static final class Sample {
+        final long start;
+        long phaseStart;
+        long render;
+        long bind;
+        long execute;
+        long fetch;
+        long rows;
+
+        Sample(long start) {
+            this.start = start;
+        }
+    }
+
+    private static final class QueryMeters {
+        final Timer total;
+        final Timer render;
+        final Timer bind;
+        final Timer execute;
+        final Timer fetch;
+        final DistributionSummary rows;
+
+        QueryMeters(MeterRegistry registry, String query, String type, boolean failed) {
+            this.total = Timer.builder("jooq.query")
+                    .description("jOOQ statement latency")
+                    .tag("query", query)
+                    .tag("type", type)
+                    .tag("outcome", failed ? "error" : "success")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.render = phase(registry, query, "render");
+            this.bind = phase(registry, query, "bind");
+            this.execute = phase(registry, query, "execute");
+            this.fetch = phase(registry, query, "fetch");
+            this.rows = DistributionSummary.builder("jooq.query.rows")
+                    .description("Rows fetched or affected per statement")
+                    .tag("query", query)
+                    .register(registry);
+        }
+
+        private static Timer phase(MeterRegistry registry, String query, String phase) {
+            return Timer.builder("jooq.query.phase")
+                    .description("jOOQ statement time by execution phase")
+                    .tag("query", query)
+                    .tag("phase", phase)
+                    .register(registry);
+        }
+    }
+}
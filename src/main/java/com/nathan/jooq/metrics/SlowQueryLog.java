@@ -0,0 +1,71 @@
+package com.nathan.jooq.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded log of the most recent slow statements, with literals and IN lists normalized away so
+ * that statements of the same shape read the same. Served by {@link SlowQueryEndpoint}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.jooq.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryLog {
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern ROW_LIST = Pattern.compile("(\\(\\?(?:, \\.\\.\\.)?\\))(?:\\s*,\\s*\\1)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int capacity;
+    private final Deque<SlowQuery> entries = new ArrayDeque<>();
+
+    public SlowQueryLog(@Value("${app.jooq.metrics.slow-query-log-size:100}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    public record SlowQuery(String query, String sql, long millis, long rows, Instant executedAt) {
+    }
+
+    void record(String query, String sql, Duration elapsed, long rows) {
+        SlowQuery entry = new SlowQuery(query, normalize(sql), elapsed.toMillis(), rows, Instant.now());
+        log.warn("Slow query {} took {} ms ({} rows): {}", entry.query(), entry.millis(), rows, entry.sql());
+        synchronized (entries) {
+            if (entries.size() == capacity) entries.removeFirst();
+            entries.addLast(entry);
+        }
+    }
+
+    /** Most recent first. */
+    public List<SlowQuery> recent() {
+        synchronized (entries) {
+            List<SlowQuery> copy = new ArrayList<>(entries);
+            return copy.reversed();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    static String normalize(String sql) {
+        if (sql == null) return null;
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        s = PLACEHOLDER_LIST.matcher(s).replaceAll("?, ...");
+        s = ROW_LIST.matcher(s).replaceAll("$1, ...");
+        return WHITESPACE.matcher(s).replaceAll(" ").trim();
+    }
+}
@@ -1,26 +0,0 @@
-package com.nathan.jooq.repository.entity;
-
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
-import lombok.Data;
-
-import java.math.BigDecimal;
-import java.sql.Timestamp;
-
-@Entity
-@Table(name = "book")
-@Data
-public class BookEntity {
-
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-    private String title;
-    private String isbn;
-    private String publishedYear;
-    private BigDecimal price;
-    private Timestamp createdAt;
-}
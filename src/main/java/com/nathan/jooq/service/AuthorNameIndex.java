@@ -0,0 +1,243 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.event.AuthorCreatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+
+/**
+ * In-memory trigram index over author names, answering "which authors' names contain this fragment"
+ * without the full scan a leading-wildcard {@code LIKE} forces on {@code author}.
+ * <p>
+ * Names are folded like MySQL's {@code _ai_ci} collations (case and accents ignored). A lookup intersects the
+ * posting lists of the fragment's trigrams, starting from the shortest, and verifies each candidate against
+ * its full name, so its cost follows the number of candidates rather than the number of authors.
+ * <p>
+ * Authors created through {@code AuthorService} are added after commit. Rows inserted behind the application's
+ * back are picked up by an incremental refresh ({@code id} above the highest one seen) and a slower full
+ * reload; this application never renames or deletes authors, so reloading only ever adds.
+ */
+@Slf4j
+@Component
+public class AuthorNameIndex {
+    private static final int GRAM = 3;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final DSLContext ctx;
+    private final boolean enabled;
+    private final int maxIds;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // serializes refresh/reload
+    private final Lock loading = new ReentrantLock();
+    private final Map<Long, String> names = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private long maxId;
+    private volatile boolean loaded;
+
+    public AuthorNameIndex(DSLContext ctx,
+                           @Value("${app.authors.name-index.enabled:true}") boolean enabled,
+                           @Value("${app.authors.name-index.max-ids:1024}") int maxIds) {
+        this.ctx = ctx;
+        this.enabled = enabled;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * @return ids of the authors whose name contains {@code fragment}, ascending; empty if the index cannot
+     * answer (disabled, not loaded yet, or more than {@code app.authors.name-index.max-ids} matches, where
+     * a scan is as good as any) and the caller should fall back to {@code LIKE}
+     */
+    public Optional<List<Long>> find(String fragment) {
+        if (!enabled || !loaded) return Optional.empty();
+        String needle = fold(fragment);
+
+        lock.readLock().lock();
+        try {
+            List<Long> ids = needle.length() < GRAM ? scan(needle) : lookup(needle);
+            return ids == null ? Optional.empty() : Optional.of(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorCreated(AuthorCreatedEvent event) {
+        if (!enabled) return;
+        lock.writeLock().lock();
+        try {
+            add(event.authorId(), event.name());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds authors inserted since the highest id seen so far. */
+    @Scheduled(fixedDelayString = "${app.authors.name-index.refresh-interval:1m}")
+    public void refresh() {
+        if (!enabled || !loaded) return;
+        loading.lock();
+        try {
+            long after;
+            lock.readLock().lock();
+            try {
+                after = maxId;
+            } finally {
+                lock.readLock().unlock();
+            }
+            load(after);
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    /** (Re)reads every author, repairing anything the event and incremental paths missed. */
+    @Scheduled(initialDelayString = "${app.authors.name-index.initial-delay:0s}",
+            fixedDelayString = "${app.authors.name-index.reload-interval:30m}")
+    public void reload() {
+        if (!enabled) return;
+        loading.lock();
+        try {
+            int size = load(0);
+            loaded = true;
+            log.debug("Author name index reloaded: {} authors", size);
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    private int load(long afterId) {
+        List<Map.Entry<Long, String>> rows = ctx.select(AUTHOR.ID, AUTHOR.NAME)
+                .from(AUTHOR)
+                .where(AUTHOR.ID.gt(afterId))
+                .fetch(r -> Map.entry(r.value1(), r.value2() == null ? "" : r.value2()));
+
+        lock.writeLock().lock();
+        try {
+            rows.forEach(e -> add(e.getKey(), e.getValue()));
+            return names.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // write lock held
+    private void add(Long id, String name) {
+        String folded = fold(name);
+        String previous = names.put(id, folded);
+        if (folded.equals(previous)) return;
+        if (previous != null) {
+            for (long gram : grams(previous)) {
+                Postings p = postings.get(gram);
+                if (p != null) p.remove(id);
+            }
+        }
+        for (long gram : grams(folded)) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+        }
+        maxId = Math.max(maxId, id);
+    }
+
+    // read lock held; null when there are more than maxIds matches
+    private List<Long> lookup(String needle) {
+        List<Postings> lists = new ArrayList<>();
+        for (long gram : grams(needle)) {
+            Postings p = postings.get(gram);
+            if (p == null || p.size == 0) return List.of();
+            lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        Postings shortest = lists.getFirst();
+        List<Long> ids = new ArrayList<>();
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            long id = shortest.ids[i];
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(id)) continue candidates;
+            }
+            // all trigrams present, but not necessarily adjacent
+            if (!names.get(id).contains(needle)) continue;
+            if (ids.size() == maxIds) return null;
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    // read lock held; fragments shorter than a trigram can only be checked name by name
+    private List<Long> scan(String needle) {
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, String> e : names.entrySet()) {
+            if (!e.getValue().contains(needle)) continue;
+            if (ids.size() == maxIds) return null;
+            ids.add(e.getKey());
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    static String fold(String s) {
+        if (s == null) return "";
+        return MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> grams(String folded) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            grams.add(((long) folded.charAt(i) << 32) | ((long) folded.charAt(i + 1) << 16) | folded.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    /** Sorted set of author ids as a growable primitive array; ids mostly arrive in ascending order. */
+    private static final class Postings {
+        long[] ids = new long[4];
+        int size;
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(long id) {
+            int at = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                at = -at - 1;
+            } else if (at < size) {
+                return;
+            }
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) return;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+        }
+    }
+}
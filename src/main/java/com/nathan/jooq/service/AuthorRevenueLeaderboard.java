@@ -0,0 +1,291 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorRevenueDTO;
+import com.nathan.jooq.event.BooksChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+
+/**
+ * Live author revenue leaderboard: every author with at least one book, by total price of their books descending
+ * ({@code null} when none of them is priced, ranked last), then by id. Ranks are {@code RANK()}: authors with the
+ * same revenue share one.
+ * <p>
+ * The board is an immutable {@link Board} behind a volatile field, so readers never wait: {@link #top} copies the
+ * first {@code limit} entries and {@link #rank} is two binary searches. Committed book writes only record their ids;
+ * a frequent refresh re-sums just the authors of those books and merges them into a new board, and puts the ids
+ * back if it fails. The periodic reload repairs anything changed behind the application's back.
+ */
+@Slf4j
+@Component
+public class AuthorRevenueLeaderboard {
+    private static final int IN_LIST = 1000;
+
+    private final DSLContext ctx;
+    private final boolean enabled;
+
+    private final Set<Long> dirtyBooks = ConcurrentHashMap.newKeySet();
+    private volatile Board board;
+    // serializes loading and applying changes
+    private final Lock loading = new ReentrantLock();
+
+    public AuthorRevenueLeaderboard(DSLContext ctx,
+                                    @Value("${app.authors.revenue-leaderboard.enabled:true}") boolean enabled) {
+        this.ctx = ctx;
+        this.enabled = enabled;
+    }
+
+    /** @return whether {@link #top} and {@link #rank} can answer; callers fall back to SQL otherwise */
+    public boolean ready() {
+        return enabled && board != null;
+    }
+
+    /** The first {@code limit} authors; {@link #ready()} must be true. */
+    public List<AuthorRevenueDTO> top(int limit) {
+        Board b = board;
+        int size = Math.min(Math.max(limit, 0), b.rankedIds.length);
+        List<AuthorRevenueDTO> result = new ArrayList<>(size);
+        int rank = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || b.rankedRevenues[i] != b.rankedRevenues[i - 1]) rank = i + 1;
+            result.add(b.entry(b.rankedIds[i], b.rankedRevenues[i], rank));
+        }
+        return result;
+    }
+
+    /** @return the author's revenue and rank, or {@code null} if they have no books; {@link #ready()} must be true */
+    public AuthorRevenueDTO rank(long authorId) {
+        Board b = board;
+        int row = Arrays.binarySearch(b.ids, authorId);
+        if (row < 0) return null;
+        long revenue = b.revenues[row];
+        return b.entry(authorId, revenue, b.firstWith(revenue) + 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksChanged(BooksChangedEvent event) {
+        if (enabled) dirtyBooks.addAll(event.bookIds());
+    }
+
+    /** Re-sums the authors of the books changed since the last refresh. */
+    @Scheduled(fixedDelayString = "${app.authors.revenue-leaderboard.refresh-interval:1s}")
+    public void refresh() {
+        if (!enabled || board == null) return;
+        loading.lock();
+        try {
+            List<Long> books = drain();
+            if (books.isEmpty()) return;
+            try {
+                board = board.with(authorsOf(books));
+            } catch (RuntimeException e) {
+                dirtyBooks.addAll(books);
+                throw e;
+            }
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    /** (Re)sums every author. */
+    @Scheduled(initialDelayString = "${app.authors.revenue-leaderboard.initial-delay:0s}",
+            fixedDelayString = "${app.authors.revenue-leaderboard.reload-interval:30m}")
+    public void reload() {
+        if (!enabled) return;
+        loading.lock();
+        try {
+            // changes committed from here on are applied again on top of the load, which is harmless
+            List<Long> books = drain();
+            try {
+                Rows rows = new Rows();
+                rows.addAll(DSL.noCondition());
+                board = Board.EMPTY.with(rows);
+            } catch (RuntimeException e) {
+                dirtyBooks.addAll(books);
+                throw e;
+            }
+            log.debug("Author revenue leaderboard reloaded: {} authors", board.ids.length);
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    private Rows authorsOf(List<Long> books) {
+        List<Long> authorIds = new ArrayList<>();
+        for (List<Long> chunk : chunks(books)) {
+            authorIds.addAll(ctx.selectDistinct(BOOK_AUTHOR.AUTHOR_ID)
+                    .from(BOOK_AUTHOR)
+                    .where(BOOK_AUTHOR.BOOK_ID.in(chunk))
+                    .fetch(BOOK_AUTHOR.AUTHOR_ID));
+        }
+        Rows changed = new Rows();
+        for (List<Long> chunk : chunks(authorIds.stream().distinct().toList())) {
+            changed.addAll(AUTHOR.ID.in(chunk));
+        }
+        return changed;
+    }
+
+    private List<Long> drain() {
+        List<Long> drained = new ArrayList<>(dirtyBooks);
+        drained.forEach(dirtyBooks::remove);
+        return drained;
+    }
+
+    /**
+     * Immutable leaderboard. {@code ids}, {@code names} and {@code revenues} are by ascending author id;
+     * {@code rankedIds} and {@code rankedRevenues} the same authors in board order. Revenues are prices scaled
+     * by 10^{@link ColumnarTables#PRICE_SCALE}, {@link ColumnarTables#NULL_PRICE} for {@code null}, which sorts
+     * last as the smallest long.
+     */
+    private record Board(long[] ids, String[] names, long[] revenues, long[] rankedIds, long[] rankedRevenues) {
+        static final Board EMPTY = new Board(new long[0], new String[0], new long[0], new long[0], new long[0]);
+
+        AuthorRevenueDTO entry(long id, long revenue, int rank) {
+            String name = names[Arrays.binarySearch(ids, id)];
+            return new AuthorRevenueDTO(id, name,
+                    revenue == ColumnarTables.NULL_PRICE ? null : BigDecimal.valueOf(revenue, ColumnarTables.PRICE_SCALE),
+                    rank);
+        }
+
+        /** Position of the first author with {@code revenue} or less. */
+        int firstWith(long revenue) {
+            int low = 0, high = rankedRevenues.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (rankedRevenues[mid] > revenue) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * A copy with the {@code changed} authors added or replaced: linear in the board size, plus sorting the
+         * changes. Books are never unlinked from their authors, so an author once on the board stays on it.
+         */
+        Board with(Rows changed) {
+            changed.sortById();
+            int n = changed.size;
+
+            // by id: merge the changed rows into the untouched ones
+            long[] newIds = new long[ids.length + n];
+            String[] newNames = new String[newIds.length];
+            long[] newRevenues = new long[newIds.length];
+            int size = 0, i = 0, j = 0;
+            while (i < ids.length || j < n) {
+                if (j == n || (i < ids.length && ids[i] < changed.ids[j])) {
+                    newIds[size] = ids[i];
+                    newNames[size] = names[i];
+                    newRevenues[size++] = revenues[i++];
+                    continue;
+                }
+                if (i < ids.length && ids[i] == changed.ids[j]) i++;
+                newIds[size] = changed.ids[j];
+                newNames[size] = changed.names[j];
+                newRevenues[size++] = changed.revenues[j++];
+            }
+
+            // by rank: the untouched authors keep their order, the changed ones are sorted and merged in
+            long[] changedIds = Arrays.copyOf(changed.ids, n);
+            Integer[] order = new Integer[n];
+            for (int k = 0; k < n; k++) order[k] = k;
+            Arrays.sort(order, Comparator.<Integer>comparingLong(k -> changed.revenues[k]).reversed()
+                    .thenComparingLong(k -> changed.ids[k]));
+            long[] newRankedIds = new long[size];
+            long[] newRankedRevenues = new long[size];
+            int ranked = 0, k = 0;
+            for (i = 0; i < rankedIds.length; i++) {
+                if (Arrays.binarySearch(changedIds, rankedIds[i]) >= 0) continue;
+                while (k < n && before(changed.revenues[order[k]], changed.ids[order[k]], rankedRevenues[i], rankedIds[i])) {
+                    newRankedIds[ranked] = changed.ids[order[k]];
+                    newRankedRevenues[ranked++] = changed.revenues[order[k++]];
+                }
+                newRankedIds[ranked] = rankedIds[i];
+                newRankedRevenues[ranked++] = rankedRevenues[i];
+            }
+            while (k < n) {
+                newRankedIds[ranked] = changed.ids[order[k]];
+                newRankedRevenues[ranked++] = changed.revenues[order[k++]];
+            }
+            return new Board(Arrays.copyOf(newIds, size), Arrays.copyOf(newNames, size),
+                    Arrays.copyOf(newRevenues, size), newRankedIds, newRankedRevenues);
+        }
+
+        private static boolean before(long revenue, long id, long otherRevenue, long otherId) {
+            return revenue != otherRevenue ? revenue > otherRevenue : id < otherId;
+        }
+    }
+
+    /** Freshly summed authors, as growable columns. */
+    private final class Rows {
+        long[] ids = new long[16];
+        String[] names = new String[16];
+        long[] revenues = new long[16];
+        int size;
+
+        /** Sums the authors matching {@code condition} that have books. */
+        void addAll(Condition condition) {
+            ctx.select(AUTHOR.ID, AUTHOR.NAME, DSL.sum(BOOK.PRICE))
+                    .from(AUTHOR)
+                    .join(BOOK_AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
+                    .join(BOOK).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
+                    .where(condition)
+                    .groupBy(AUTHOR.ID, AUTHOR.NAME)
+                    .forEach(r -> add(r.value1(), r.value2(), ColumnarTables.scalePrice(r.value3())));
+        }
+
+        void add(long id, String name, long revenue) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+                revenues = Arrays.copyOf(revenues, size * 2);
+            }
+            ids[size] = id;
+            names[size] = name;
+            revenues[size] = revenue;
+            size++;
+        }
+
+        void sortById() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingLong(i -> ids[i]));
+            long[] sortedIds = new long[size];
+            String[] sortedNames = new String[size];
+            long[] sortedRevenues = new long[size];
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedNames[i] = names[order[i]];
+                sortedRevenues[i] = revenues[order[i]];
+            }
+            ids = sortedIds;
+            names = sortedNames;
+            revenues = sortedRevenues;
+        }
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_LIST) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + IN_LIST)));
+        }
+        return chunks;
+    }
+}
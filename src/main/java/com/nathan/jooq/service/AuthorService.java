@@ -2,25 +2,38 @@ package com.nathan.jooq.service;
 
 import com.nathan.jooq.dto.AuthorDTO;
 import com.nathan.jooq.dto.AuthorRevenueDTO;
+import com.nathan.jooq.event.AuthorCreatedEvent;
 import com.nathan.jooq.generated.tables.Author;
 import com.nathan.jooq.generated.tables.Book;
 import com.nathan.jooq.generated.tables.BookAuthor;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record4;
+import org.jooq.ResultQuery;
+import org.jooq.SelectHavingStep;
+import org.jooq.Table;
 import org.jooq.impl.DSL;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class AuthorService {
     private final DSLContext ctx;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuthorRevenueLeaderboard leaderboard;
+    private final ChangeOutbox outbox;
 
-    public AuthorService(DSLContext ctx) {
+    public AuthorService(DSLContext ctx, ApplicationEventPublisher eventPublisher, AuthorRevenueLeaderboard leaderboard,
+                         ChangeOutbox outbox) {
         this.ctx = ctx;
+        this.eventPublisher = eventPublisher;
+        this.leaderboard = leaderboard;
+        this.outbox = outbox;
     }
 
     @Transactional
@@ -31,6 +44,8 @@ public class AuthorService {
                 .returning(Author.AUTHOR.ID, Author.AUTHOR.CREATED_AT)
                 .fetchOne();
 
+        outbox.authorCreated(ctx, rec.get(Author.AUTHOR.ID));
+        eventPublisher.publishEvent(new AuthorCreatedEvent(rec.get(Author.AUTHOR.ID), name));
         return new AuthorDTO(
                 rec.get(Author.AUTHOR.ID),
                 name,
@@ -42,17 +57,40 @@ public class AuthorService {
         );
     }
 
+    /** Authors by total price of their books, from the live leaderboard once it is loaded. */
     public List<AuthorRevenueDTO> topAuthorsByRevenue(int limit) {
-        return ctx.select(Author.AUTHOR.NAME, DSL.sum(Book.BOOK.PRICE).as("total_revenue"))
+        if (leaderboard.ready()) return leaderboard.top(limit);
+        return topAuthorsByRevenueQuery(Math.max(limit, 0)).fetchInto(AuthorRevenueDTO.class);
+    }
+
+    /** @return the author's revenue and rank, or {@code null} if they have no books */
+    public AuthorRevenueDTO revenueRank(Long authorId) {
+        if (leaderboard.ready()) return leaderboard.rank(authorId);
+        return revenueRankQuery(authorId).fetchOneInto(AuthorRevenueDTO.class);
+    }
+
+    // The SQL behind the leaderboard, for before it is loaded (or when it is disabled)
+
+    ResultQuery<Record4<Long, String, BigDecimal, Integer>> topAuthorsByRevenueQuery(int limit) {
+        return revenueRanking()
+                .orderBy(DSL.sum(Book.BOOK.PRICE).desc(), Author.AUTHOR.ID)
+                .limit(limit);
+    }
+
+    ResultQuery<Record4<Long, String, BigDecimal, Integer>> revenueRankQuery(Long authorId) {
+        Table<Record4<Long, String, BigDecimal, Integer>> ranking = revenueRanking().asTable("ranking");
+        return ctx.selectFrom(ranking).where(ranking.field(Author.AUTHOR.ID).eq(authorId));
+    }
+
+    // grouped by id: namesakes are different authors
+    private SelectHavingStep<Record4<Long, String, BigDecimal, Integer>> revenueRanking() {
+        Field<BigDecimal> revenue = DSL.sum(Book.BOOK.PRICE);
+        return ctx.select(Author.AUTHOR.ID, Author.AUTHOR.NAME,
+                        revenue.as("total_revenue"),
+                        DSL.rank().over(DSL.orderBy(revenue.desc())).as("rank"))
                 .from(Author.AUTHOR)
                 .join(BookAuthor.BOOK_AUTHOR).on(Author.AUTHOR.ID.eq(BookAuthor.BOOK_AUTHOR.AUTHOR_ID))
                 .join(Book.BOOK).on(Book.BOOK.ID.eq(BookAuthor.BOOK_AUTHOR.BOOK_ID))
-                .groupBy(Author.AUTHOR.NAME)
-                .orderBy(DSL.sum(Book.BOOK.PRICE).desc())
-                .limit(limit)
-                .fetch(r -> new AuthorRevenueDTO(
-                        r.get(Author.AUTHOR.NAME),
-                        r.get("total_revenue", BigDecimal.class)
-                ));
+                .groupBy(Author.AUTHOR.ID, Author.AUTHOR.NAME);
     }
 }
@@ -0,0 +1,93 @@
+package com.nathan.jooq.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Batches and caches lookups by key, in the style of a DataLoader. {@link #load} only registers a key. The first
+ * {@link Supplier#get} of a registered key loads every key registered so far, with one call of the batch function
+ * per {@code maxBatchSize} keys. Each key is loaded at most once, so a loader should live only as long as the unit
+ * of work it serves (see {@link BookLoader}): it does not see changes made after a key was loaded.
+ * <p>
+ * A key the batch function leaves out loads as {@code null}. Safe to share between threads; a thread that needs a
+ * key waits for the batch already loading it.
+ */
+public final class BatchLoader<K, V> {
+    private final int maxBatchSize;
+    private final Function<List<K>, Map<K, V>> batch;
+
+    private final Map<K, V> loaded = new HashMap<>();
+    private final Set<K> pending = new LinkedHashSet<>();
+    private final Lock lock = new ReentrantLock();
+
+    public BatchLoader(int maxBatchSize, Function<List<K>, Map<K, V>> batch) {
+        this.maxBatchSize = maxBatchSize;
+        this.batch = batch;
+    }
+
+    /** Registers {@code key} for the next batch; the supplier loads that batch unless it is already loaded. */
+    public Supplier<V> load(K key) {
+        lock.lock();
+        try {
+            if (loaded.containsKey(key)) {
+                V value = loaded.get(key);
+                return () -> value;
+            }
+            pending.add(key);
+        } finally {
+            lock.unlock();
+        }
+        return () -> get(key);
+    }
+
+    /** The values of {@code keys} in order, minus the keys that do not exist; one batch for all keys not yet loaded. */
+    public List<V> loadMany(Collection<K> keys) {
+        List<Supplier<V>> loads = keys.stream().map(this::load).toList();
+        List<V> values = new ArrayList<>(loads.size());
+        for (Supplier<V> load : loads) {
+            V value = load.get();
+            if (value != null) values.add(value);
+        }
+        return values;
+    }
+
+    /** Loads every registered key now. */
+    public void dispatch() {
+        lock.lock();
+        try {
+            if (pending.isEmpty()) return;
+            List<K> keys = new ArrayList<>(pending);
+            pending.clear();
+            for (int from = 0; from < keys.size(); from += maxBatchSize) {
+                List<K> chunk = keys.subList(from, Math.min(from + maxBatchSize, keys.size()));
+                Map<K, V> values = batch.apply(chunk);
+                for (K key : chunk) loaded.put(key, values.get(key));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private V get(K key) {
+        lock.lock();
+        try {
+            if (!loaded.containsKey(key)) {
+                // registered again in case an earlier batch with this key failed
+                pending.add(key);
+                dispatch();
+            }
+            return loaded.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
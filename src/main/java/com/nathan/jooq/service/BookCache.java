@@ -0,0 +1,81 @@
+package com.nathan.jooq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.event.BooksChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of {@link BookDTO}s by id.
+ * <p>
+ * Every invalidation bumps a generation counter (striped by id) before evicting. A loader only
+ * publishes its result if the generation it observed before reading the database is still current,
+ * so a read that raced with a committed update can never re-insert the stale book.
+ */
+@Component
+public class BookCache {
+    private static final int STRIPES = 1024;
+
+    private final Cache<Long, BookDTO> books;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    public BookCache(@Value("${app.books.cache.ttl:10m}") Duration ttl,
+                     @Value("${app.books.cache.max-size:100000}") long maxSize,
+                     MeterRegistry meterRegistry) {
+        this.books = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, books, "books");
+    }
+
+    public BookDTO get(Long id, Function<Long, BookDTO> loader) {
+        BookDTO cached = books.getIfPresent(id);
+        if (cached != null) return cached;
+
+        long generation = generations.get(stripe(id));
+        BookDTO loaded = loader.apply(id);
+        if (loaded != null) publish(id, generation, loaded);
+        return loaded;
+    }
+
+    /** {@link #get} for a non-blocking loader, with the same generation check once it emits. */
+    public Mono<BookDTO> get(Long id, Mono<BookDTO> loader) {
+        return Mono.defer(() -> {
+            BookDTO cached = books.getIfPresent(id);
+            if (cached != null) return Mono.just(cached);
+
+            long generation = generations.get(stripe(id));
+            return loader.doOnNext(loaded -> publish(id, generation, loaded));
+        });
+    }
+
+    private void publish(Long id, long generation, BookDTO loaded) {
+        books.asMap().compute(id, (k, current) ->
+                generations.get(stripe(id)) != generation ? current : current != null ? current : loaded);
+    }
+
+    /** Runs after the writing transaction commits, or immediately when there is none. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksChanged(BooksChangedEvent event) {
+        for (Long id : event.bookIds()) {
+            generations.incrementAndGet(stripe(id));
+            books.invalidate(id);
+        }
+    }
+
+    private static int stripe(Long id) {
+        return (Long.hashCode(id) & Integer.MAX_VALUE) % STRIPES;
+    }
+}
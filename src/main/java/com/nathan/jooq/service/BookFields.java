@@ -0,0 +1,61 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.BookDTO;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Records;
+import org.jooq.SelectField;
+import org.jooq.impl.DSL;
+
+import java.util.List;
+
+import static com.nathan.jooq.generated.tables.Author.AUTHOR;
+import static com.nathan.jooq.generated.tables.Book.BOOK;
+import static com.nathan.jooq.generated.tables.BookAuthor.BOOK_AUTHOR;
+
+/**
+ * Book projections shared by the read paths.
+ */
+final class BookFields {
+
+    /**
+     * Authors of the current {@code BOOK} row by id, nested with MULTISET (emulated with JSON on MySQL)
+     * and converted straight into {@link AuthorDTO}s, so a book and its authors come back in one round trip.
+     */
+    static final Field<List<AuthorDTO>> AUTHORS = DSL.multiset(
+                    DSL.select(
+                                    AUTHOR.ID,
+                                    AUTHOR.NAME,
+                                    AUTHOR.EMAIL,
+                                    AUTHOR.BIRTH_DATE,
+                                    AUTHOR.COUNTRY,
+                                    AUTHOR.CREATED_AT,
+                                    BOOK_AUTHOR.CONTRIBUTION)
+                            .from(BOOK_AUTHOR)
+                            .join(AUTHOR).on(BOOK_AUTHOR.AUTHOR_ID.eq(AUTHOR.ID))
+                            .where(BOOK_AUTHOR.BOOK_ID.eq(BOOK.ID))
+                            .orderBy(AUTHOR.ID))
+            .as("authors")
+            .convertFrom(r -> r.map(Records.mapping(AuthorDTO::new)));
+
+    /** Columns read by {@link #toBookDTO(Record)}, in {@link BookDTO} component order. */
+    static List<SelectField<?>> bookWithAuthors() {
+        return List.of(BOOK.ID, BOOK.TITLE, BOOK.ISBN, BOOK.PUBLISHED_YEAR, BOOK.PRICE, BOOK.CREATED_AT, AUTHORS);
+    }
+
+    static BookDTO toBookDTO(Record r) {
+        return new BookDTO(
+                r.get(BOOK.ID),
+                r.get(BOOK.TITLE),
+                r.get(BOOK.ISBN),
+                r.get(BOOK.PUBLISHED_YEAR),
+                r.get(BOOK.PRICE),
+                r.get(BOOK.CREATED_AT),
+                r.get(AUTHORS)
+        );
+    }
+
+    private BookFields() {
+    }
+}
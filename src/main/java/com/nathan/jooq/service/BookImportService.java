@@ -0,0 +1,253 @@
+package com.nathan.jooq.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.jooq.dto.AuthorAssignment;
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.BulkImportError;
+import com.nathan.jooq.dto.BulkImportResult;
+import com.nathan.jooq.event.BooksChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Row4;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.nathan.jooq.generated.tables.Author.AUTHOR;
+import static com.nathan.jooq.generated.tables.Book.BOOK;
+import static com.nathan.jooq.generated.tables.BookAuthor.BOOK_AUTHOR;
+
+/**
+ * Bulk book import for publisher feeds.
+ * <p>
+ * The body (a JSON array or NDJSON) is parsed incrementally, so only one commit unit of rows is held in memory.
+ * Each unit of {@code commitSize} rows runs in its own transaction and is split into chunks of {@code batchSize}
+ * rows. Every chunk resolves duplicate titles and unknown authors with one query each, then writes books and
+ * author links as multi-row INSERTs; an author listed twice in a row is linked once, with its first contribution.
+ * A title inserted by someone else after that check fails the chunk's INSERT on {@code uk_book_title}: the chunk is
+ * rolled back to a savepoint and retried row by row, so only the rows whose titles were taken are rejected. Any
+ * other failure rolls back the whole unit and reports its rows; the import carries on.
+ */
+@Slf4j
+@Service
+public class BookImportService {
+    private final DSLContext ctx;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeOutbox outbox;
+    private final int defaultBatchSize;
+    private final int defaultCommitSize;
+    private final int maxReportedErrors;
+
+    public BookImportService(DSLContext ctx, ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                             ChangeOutbox outbox,
+                             @Value("${app.books.bulk.batch-size:500}") int defaultBatchSize,
+                             @Value("${app.books.bulk.commit-size:5000}") int defaultCommitSize,
+                             @Value("${app.books.bulk.max-reported-errors:1000}") int maxReportedErrors) {
+        this.ctx = ctx;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.outbox = outbox;
+        this.defaultBatchSize = defaultBatchSize;
+        this.defaultCommitSize = defaultCommitSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public BulkImportResult importBooks(InputStream body, Integer batchSize, Integer commitSize) throws IOException {
+        int batch = batchSize == null || batchSize <= 0 ? defaultBatchSize : batchSize;
+        int commit = Math.max(batch, commitSize == null || commitSize <= 0 ? defaultCommitSize : commitSize);
+
+        long started = System.nanoTime();
+        Progress progress = new Progress(maxReportedErrors);
+        List<PendingRow> unit = new ArrayList<>(commit);
+
+        try (MappingIterator<BookCreateRequest> rows = objectMapper.readerFor(BookCreateRequest.class).readValues(body)) {
+            while (hasNextRow(rows, progress)) {
+                int index = progress.received++;
+                BookCreateRequest req;
+                try {
+                    req = rows.nextValue();
+                } catch (JsonMappingException e) {
+                    // the iterator skips past the offending element, so the next one can still be read
+                    progress.reject(index, null, "Invalid row: " + e.getOriginalMessage());
+                    continue;
+                }
+                String invalid = validate(req);
+                if (invalid != null) {
+                    progress.reject(index, req == null ? null : req.title(), invalid);
+                    continue;
+                }
+                unit.add(new PendingRow(index, req));
+                if (unit.size() == commit) {
+                    importUnit(unit, batch, progress);
+                    unit.clear();
+                }
+            }
+        }
+        importUnit(unit, batch, progress);
+        progress.errors.sort(Comparator.comparingInt(BulkImportError::row));
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        double rowsPerSecond = elapsedMillis == 0 ? progress.received : progress.received * 1000.0 / elapsedMillis;
+        log.info("Bulk import: {} rows received, {} inserted, {} failed in {} ms ({} rows/s)",
+                progress.received, progress.inserted, progress.failed, elapsedMillis, Math.round(rowsPerSecond));
+        return new BulkImportResult(progress.received, progress.inserted, progress.failed,
+                progress.errors, elapsedMillis, rowsPerSecond);
+    }
+
+    /** A malformed element ends the import: the stream cannot be reliably resynchronised after it. */
+    private static boolean hasNextRow(MappingIterator<BookCreateRequest> rows, Progress progress) throws IOException {
+        try {
+            return rows.hasNextValue();
+        } catch (JsonProcessingException e) {
+            progress.reject(progress.received, null, "Malformed input, import stopped: " + e.getOriginalMessage());
+            return false;
+        }
+    }
+
+    private static String validate(BookCreateRequest req) {
+        if (req == null) return "Empty row";
+        if (req.title() == null || req.title().isBlank()) return "Title is required";
+        if (req.price() != null && req.price().signum() < 0) return "Price must not be negative";
+        if (req.authors() != null && req.authors().stream().anyMatch(a -> a == null || a.authorId() == null)) {
+            return "Author id is required";
+        }
+        return null;
+    }
+
+    private void importUnit(List<PendingRow> unit, int batchSize, Progress progress) {
+        if (unit.isEmpty()) return;
+        List<BulkImportError> rejected = new ArrayList<>();
+        try {
+            List<Long> ids = ctx.transactionResult(tx -> {
+                List<Long> inserted = new ArrayList<>();
+                for (int from = 0; from < unit.size(); from += batchSize) {
+                    inserted.addAll(importChunk(tx.dsl(), unit.subList(from, Math.min(from + batchSize, unit.size())), rejected));
+                }
+                outbox.booksCreated(tx.dsl(), inserted);
+                eventPublisher.publishEvent(new BooksChangedEvent(inserted));
+                return inserted;
+            });
+            progress.inserted += ids.size();
+            rejected.forEach(e -> progress.reject(e.row(), e.title(), e.message()));
+        } catch (RuntimeException e) {
+            log.warn("Bulk import unit of {} rows rolled back", unit.size(), e);
+            unit.forEach(r -> progress.reject(r.index(), r.req().title(), "Rolled back: " + e.getMessage()));
+        }
+    }
+
+    private List<Long> importChunk(DSLContext tx, List<PendingRow> chunk, List<BulkImportError> rejected) {
+        Set<String> titles = new HashSet<>();
+        Set<Long> authorIds = new HashSet<>();
+        for (PendingRow row : chunk) {
+            titles.add(row.req().title());
+            if (row.req().authors() != null) row.req().authors().forEach(a -> authorIds.add(a.authorId()));
+        }
+
+        Set<String> existingTitles = new HashSet<>(tx.select(BOOK.TITLE)
+                .from(BOOK)
+                .where(BOOK.TITLE.in(titles))
+                .fetch(BOOK.TITLE));
+        Set<Long> knownAuthors = authorIds.isEmpty() ? Set.of() : new HashSet<>(tx.select(AUTHOR.ID)
+                .from(AUTHOR)
+                .where(AUTHOR.ID.in(authorIds))
+                .fetch(AUTHOR.ID));
+
+        List<PendingRow> accepted = new ArrayList<>(chunk.size());
+        Set<String> seenTitles = new HashSet<>();
+        for (PendingRow row : chunk) {
+            String title = row.req().title();
+            List<AuthorAssignment> authors = Objects.requireNonNullElse(row.req().authors(), List.of());
+            if (existingTitles.contains(title) || !seenTitles.add(title)) {
+                rejected.add(new BulkImportError(row.index(), title, "Title already exists"));
+            } else if (!authors.stream().allMatch(a -> knownAuthors.contains(a.authorId()))) {
+                rejected.add(new BulkImportError(row.index(), title, "Unknown author id"));
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) return List.of();
+
+        try {
+            return tx.transactionResult(savepoint -> insert(savepoint.dsl(), accepted));
+        } catch (RuntimeException e) {
+            if (!UniqueTitle.violatedBy(e)) throw e;
+            log.debug("Bulk import chunk of {} rows hit a concurrently inserted title, inserting row by row",
+                    accepted.size());
+        }
+        List<Long> ids = new ArrayList<>(accepted.size());
+        for (PendingRow row : accepted) {
+            try {
+                ids.addAll(tx.transactionResult(savepoint -> insert(savepoint.dsl(), List.of(row))));
+            } catch (RuntimeException e) {
+                if (!UniqueTitle.violatedBy(e)) throw e;
+                rejected.add(new BulkImportError(row.index(), row.req().title(), "Title already exists"));
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> insert(DSLContext tx, List<PendingRow> accepted) {
+        List<Row4<String, String, Integer, BigDecimal>> bookRows = accepted.stream()
+                .map(r -> DSL.row(r.req().title(), r.req().isbn(), r.req().publishedYear(), r.req().price()))
+                .toList();
+        // generated keys come back in VALUES order
+        List<Long> ids = tx.insertInto(BOOK, BOOK.TITLE, BOOK.ISBN, BOOK.PUBLISHED_YEAR, BOOK.PRICE)
+                .valuesOfRows(bookRows)
+                .returningResult(BOOK.ID)
+                .fetch(BOOK.ID);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Row4<Long, Long, String, LocalDateTime>> links = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            Long bookId = ids.get(i);
+            List<AuthorAssignment> authors = accepted.get(i).req().authors();
+            if (authors == null) continue;
+            // book_author is keyed by (book_id, author_id)
+            Set<Long> linked = new HashSet<>();
+            for (AuthorAssignment a : authors) {
+                if (linked.add(a.authorId())) links.add(DSL.row(bookId, a.authorId(), a.contribution(), now));
+            }
+        }
+        if (!links.isEmpty()) {
+            tx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID, BOOK_AUTHOR.CONTRIBUTION, BOOK_AUTHOR.CREATED_AT)
+                    .valuesOfRows(links)
+                    .execute();
+        }
+        return ids;
+    }
+
+    private record PendingRow(int index, BookCreateRequest req) {}
+
+    private static final class Progress {
+        private final int maxErrors;
+        private final List<BulkImportError> errors = new ArrayList<>();
+        private int received;
+        private int inserted;
+        private int failed;
+
+        Progress(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void reject(int row, String title, String message) {
+            failed++;
+            if (errors.size() < maxErrors) errors.add(new BulkImportError(row, title, message));
+        }
+    }
+}
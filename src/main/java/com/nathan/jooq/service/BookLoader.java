@@ -0,0 +1,121 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.BookDTO;
+import org.jooq.DSLContext;
+import org.jooq.Record3;
+import org.jooq.Record6;
+import org.jooq.Result;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static com.nathan.jooq.generated.tables.Author.AUTHOR;
+import static com.nathan.jooq.generated.tables.Book.BOOK;
+import static com.nathan.jooq.generated.tables.BookAuthor.BOOK_AUTHOR;
+
+/**
+ * Books and authors by id, without N+1 queries, for one request: inject it into a controller, or construct one
+ * for a unit of work outside a request. Lookups go through {@link BatchLoader}s. All books registered before the
+ * first one is read take at most three {@code IN} queries: the books, their author links, and the authors not
+ * loaded yet. Each author is read once per loader. Books list their authors by id, as {@link BookService#getBookById}
+ * does, and share {@link AuthorDTO} instances, one per author and contribution.
+ * <p>
+ * Reads the database, not {@link BookCache}, and keeps each row as it was first loaded.
+ */
+@Component
+@RequestScope
+public class BookLoader {
+    static final int MAX_BATCH = 500;
+
+    private record Contribution(Long authorId, String contribution) {
+    }
+
+    private final DSLContext ctx;
+    private final BatchLoader<Long, AuthorDTO> authors = new BatchLoader<>(MAX_BATCH, this::loadAuthors);
+    private final BatchLoader<Long, BookDTO> books = new BatchLoader<>(MAX_BATCH, this::loadBooks);
+    private final Map<Contribution, AuthorDTO> contributions = new ConcurrentHashMap<>();
+
+    public BookLoader(DSLContext ctx) {
+        this.ctx = ctx;
+    }
+
+    /** Registers the book for the next batch; {@code null} from the supplier if there is no such book. */
+    public Supplier<BookDTO> book(Long id) {
+        return books.load(id);
+    }
+
+    /** The books in {@code ids} order, minus unknown ids. */
+    public List<BookDTO> books(Collection<Long> ids) {
+        return books.loadMany(ids);
+    }
+
+    /** Registers the author for the next batch; the {@link AuthorDTO} has no contribution. */
+    public Supplier<AuthorDTO> author(Long id) {
+        return authors.load(id);
+    }
+
+    /** The authors in {@code ids} order, minus unknown ids. */
+    public List<AuthorDTO> authors(Collection<Long> ids) {
+        return authors.loadMany(ids);
+    }
+
+    private Map<Long, AuthorDTO> loadAuthors(List<Long> ids) {
+        Map<Long, AuthorDTO> loaded = new HashMap<>();
+        ctx.select(AUTHOR.ID, AUTHOR.NAME, AUTHOR.EMAIL, AUTHOR.BIRTH_DATE, AUTHOR.COUNTRY, AUTHOR.CREATED_AT)
+                .from(AUTHOR)
+                .where(AUTHOR.ID.in(ids))
+                .forEach(r -> loaded.put(r.value1(),
+                        new AuthorDTO(r.value1(), r.value2(), r.value3(), r.value4(), r.value5(), r.value6(), null)));
+        return loaded;
+    }
+
+    private Map<Long, BookDTO> loadBooks(List<Long> ids) {
+        Result<Record6<Long, String, String, Integer, BigDecimal, LocalDateTime>> rows = ctx
+                .select(BOOK.ID, BOOK.TITLE, BOOK.ISBN, BOOK.PUBLISHED_YEAR, BOOK.PRICE, BOOK.CREATED_AT)
+                .from(BOOK)
+                .where(BOOK.ID.in(ids))
+                .fetch();
+        if (rows.isEmpty()) return Map.of();
+
+        Result<Record3<Long, Long, String>> links = ctx
+                .select(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID, BOOK_AUTHOR.CONTRIBUTION)
+                .from(BOOK_AUTHOR)
+                .where(BOOK_AUTHOR.BOOK_ID.in(ids))
+                .orderBy(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID)
+                .fetch();
+        // every author registered before the first get, so they load as one batch
+        Map<Long, Supplier<AuthorDTO>> authorLoads = new HashMap<>();
+        for (Record3<Long, Long, String> link : links) authorLoads.computeIfAbsent(link.value2(), authors::load);
+
+        Map<Long, List<AuthorDTO>> authorsByBook = new HashMap<>();
+        for (Record3<Long, Long, String> link : links) {
+            AuthorDTO author = authorLoads.get(link.value2()).get();
+            if (author == null) continue;
+            authorsByBook.computeIfAbsent(link.value1(), id -> new ArrayList<>()).add(contributed(author, link.value3()));
+        }
+
+        Map<Long, BookDTO> loaded = new HashMap<>();
+        for (Record6<Long, String, String, Integer, BigDecimal, LocalDateTime> r : rows) {
+            loaded.put(r.value1(), new BookDTO(r.value1(), r.value2(), r.value3(), r.value4(), r.value5(), r.value6(),
+                    authorsByBook.getOrDefault(r.value1(), List.of())));
+        }
+        return loaded;
+    }
+
+    private AuthorDTO contributed(AuthorDTO author, String contribution) {
+        if (contribution == null) return author;
+        return contributions.computeIfAbsent(new Contribution(author.id(), contribution), c -> new AuthorDTO(
+                author.id(), author.name(), author.email(), author.birthDate(), author.country(), author.createdAt(),
+                contribution));
+    }
+}
@@ -0,0 +1,285 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.BookCursor;
+import io.micrometer.common.util.StringUtils;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.DataType;
+import org.jooq.Field;
+import org.jooq.Param;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.Select;
+import org.jooq.SelectField;
+import org.jooq.SelectHavingStep;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.nathan.jooq.generated.tables.Author.AUTHOR;
+import static com.nathan.jooq.generated.tables.Book.BOOK;
+import static com.nathan.jooq.generated.tables.BookAuthor.BOOK_AUTHOR;
+
+/**
+ * The dynamic book search queries, rendered once per filter <em>shape</em> (which of author/year/min/max
+ * are present, plus paging kind) and re-used with fresh bind values on every call.
+ * <p>
+ * Each shape is built with named {@link DSL#param} placeholders, rendered to SQL and cached together with
+ * the order its parameters appear in; a parameter may appear more than once (a keyset seek repeats
+ * {@code created_at}) and is bound by name at every occurrence. A call then only binds values into the cached
+ * string, so jOOQ skips building and rendering the query tree, and the driver sees a small, fixed set of SQL
+ * strings it can keep as server-side prepared statements.
+ * <p>
+ * An author filter is resolved to author ids through the {@link AuthorNameIndex} first, and books are then found
+ * through {@code book_author(author_id)}. The id list is padded to the next power of two (repeating the last id)
+ * so that it only adds a handful of shapes. When the index cannot answer, the filter falls back to
+ * {@code LIKE '%name%'} on the author join, with the name's own {@code %} and {@code _} escaped.
+ */
+@Component
+public class BookSearchQueries {
+    static final Field<Integer> TOTAL_COUNT = DSL.field(DSL.name("total_count"), Integer.class);
+
+    static final String AUTHOR_PATTERN = "authorPattern";
+    static final String AUTHOR_ID = "authorId";
+    static final String YEAR = "year";
+    static final String MIN_PRICE = "minPrice";
+    static final String MAX_PRICE = "maxPrice";
+    public static final String LIMIT = "limit";
+    public static final String OFFSET = "offset";
+    static final String AFTER_CREATED_AT = "afterCreatedAt";
+    static final String AFTER_ID = "afterId";
+    /** Escapes {@code %} and {@code _} in {@link #AUTHOR_PATTERN}, as {@link Field#containsIgnoreCase} does. */
+    static final char LIKE_ESCAPE = '!';
+
+    private static final Map<String, DataType<?>> TYPES = Map.of(
+            AUTHOR_PATTERN, AUTHOR.NAME.getDataType(),
+            YEAR, BOOK.PUBLISHED_YEAR.getDataType(),
+            MIN_PRICE, BOOK.PRICE.getDataType(),
+            MAX_PRICE, BOOK.PRICE.getDataType(),
+            LIMIT, SQLDataType.INTEGER,
+            OFFSET, SQLDataType.BIGINT,
+            AFTER_CREATED_AT, BOOK.CREATED_AT.getDataType(),
+            AFTER_ID, BOOK.ID.getDataType());
+    private static final Pattern NAMED_PLACEHOLDER = Pattern.compile(":(\\w+)");
+
+    public enum Kind {
+        /** OFFSET page, newest first. */
+        PAGE,
+        /** {@link #PAGE} plus a {@code COUNT(*) OVER ()} column. */
+        PAGE_WINDOW_TOTAL,
+        /** Number of distinct matching books. */
+        COUNT,
+        /**
+         * Keyset scan on {@code (created_at, id)} desc, books without {@code created_at} last, optionally after a
+         * cursor and optionally limited.
+         */
+        SCAN
+    }
+
+    record Shape(Kind kind, Set<String> binds) {
+    }
+
+    /** @param params one per placeholder in {@code sql}, in order, so a repeated parameter is listed again */
+    private record Template(String sql, List<Param<?>> params, List<Field<?>> fields) {
+    }
+
+    private final DSLContext ctx;
+    private final AuthorNameIndex authorIndex;
+    private final Map<Shape, Template> templates = new ConcurrentHashMap<>();
+
+    public BookSearchQueries(DSLContext ctx, AuthorNameIndex authorIndex) {
+        this.ctx = ctx;
+        this.authorIndex = authorIndex;
+    }
+
+    public ResultQuery<Record> page(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice,
+                                    boolean windowTotal, int limit, long offset) {
+        Map<String, Object> values = filter(authorName, publishedYear, minPrice, maxPrice);
+        values.put(LIMIT, limit);
+        values.put(OFFSET, offset);
+        return query(windowTotal ? Kind.PAGE_WINDOW_TOTAL : Kind.PAGE, values);
+    }
+
+    ResultQuery<Record> count(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice) {
+        return query(Kind.COUNT, filter(authorName, publishedYear, minPrice, maxPrice));
+    }
+
+    /** @param limit {@code null} for an unbounded scan */
+    ResultQuery<Record> scan(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice,
+                             BookCursor after, Integer limit) {
+        Map<String, Object> values = filter(authorName, publishedYear, minPrice, maxPrice);
+        if (after != null) {
+            // absent rather than null: after a book without created_at is a different condition
+            if (after.createdAt() != null) values.put(AFTER_CREATED_AT, after.createdAt());
+            values.put(AFTER_ID, after.id());
+        }
+        if (limit != null) {
+            values.put(LIMIT, limit);
+        }
+        return query(Kind.SCAN, values);
+    }
+
+    public Map<String, Object> filter(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (StringUtils.isNotBlank(authorName)) {
+            // trimmed and matched ignoring case, so every spelling BookSearchFilter treats as equal finds the same;
+            // % and _ are literals, as they are to the index
+            String author = authorName.trim();
+            authorIndex.find(author).ifPresentOrElse(
+                    ids -> putAuthorIds(values, ids),
+                    () -> values.put(AUTHOR_PATTERN, "%" + DSL.escape(author, LIKE_ESCAPE) + "%"));
+        }
+        if (publishedYear != null) values.put(YEAR, publishedYear);
+        if (minPrice != null) values.put(MIN_PRICE, minPrice);
+        if (maxPrice != null) values.put(MAX_PRICE, maxPrice);
+        return values;
+    }
+
+    private static void putAuthorIds(Map<String, Object> values, List<Long> ids) {
+        if (ids.isEmpty()) {
+            // IN (NULL) matches nothing
+            values.put(AUTHOR_ID + 0, null);
+            return;
+        }
+        int bucket = Integer.highestOneBit(ids.size() - 1) << 1;
+        for (int i = 0; i < Math.max(bucket, 1); i++) {
+            values.put(AUTHOR_ID + i, ids.get(Math.min(i, ids.size() - 1)));
+        }
+    }
+
+    private ResultQuery<Record> query(Kind kind, Map<String, Object> values) {
+        Template template = templates.computeIfAbsent(new Shape(kind, Set.copyOf(values.keySet())), this::render);
+
+        Object[] binds = new Object[template.params().size()];
+        for (int i = 0; i < binds.length; i++) {
+            Param<?> param = template.params().get(i);
+            binds[i] = DSL.val(values.get(param.getParamName()), param.getDataType());
+        }
+        return ctx.resultQuery(template.sql(), binds).coerce(template.fields());
+    }
+
+    private Template render(Shape shape) {
+        Select<?> select = build(shape.kind(), shape.binds(), (name, type) -> DSL.param(name, type));
+        Map<String, Param<?>> named = select.getParams();
+
+        // Rendered with :name placeholders, which are turned back into ? while recording the name of each, so
+        // the binds follow rendering order. Inline params (e.g. the '[]' literals of the MySQL MULTISET
+        // emulation) are part of the SQL text; every other placeholder must be one of our named parameters.
+        List<Param<?>> params = new ArrayList<>();
+        Matcher placeholder = NAMED_PLACEHOLDER.matcher(ctx.renderNamedParams(select));
+        StringBuilder sql = new StringBuilder();
+        while (placeholder.find()) {
+            String name = placeholder.group(1);
+            if (!shape.binds().contains(name)) continue;
+            params.add(named.get(name));
+            placeholder.appendReplacement(sql, "?");
+        }
+        placeholder.appendTail(sql);
+
+        if (params.size() != ctx.extractBindValues(select).size()) {
+            throw new IllegalStateException("Search query for " + shape + " has unexpected bind values");
+        }
+        return new Template(sql.toString(), params, List.copyOf(select.getSelect()));
+    }
+
+    /**
+     * The query for {@code kind} with values present for {@code binds}, each bound through {@code param}:
+     * named placeholders when rendering a template, or the values themselves when building the query directly.
+     */
+    public Select<?> build(Kind kind, Set<String> binds, BiFunction<String, DataType<Object>, Param<?>> param) {
+        Map<String, Param<?>> p = new LinkedHashMap<>();
+        for (String name : binds) {
+            p.put(name, param.apply(name, dataType(name)));
+        }
+        boolean byAuthor = p.containsKey(AUTHOR_PATTERN);
+        List<Param<Long>> authorIds = p.keySet().stream()
+                .filter(name -> name.startsWith(AUTHOR_ID))
+                .sorted(Comparator.comparingInt(name -> Integer.parseInt(name.substring(AUTHOR_ID.length()))))
+                .map(name -> this.<Long>typed(p, name))
+                .toList();
+
+        Condition condition = DSL.noCondition();
+        if (byAuthor) condition = condition.and(AUTHOR.NAME.likeIgnoreCase(typed(p, AUTHOR_PATTERN), LIKE_ESCAPE));
+        if (!authorIds.isEmpty()) {
+            condition = condition.and(BOOK.ID.in(DSL.select(BOOK_AUTHOR.BOOK_ID)
+                    .from(BOOK_AUTHOR)
+                    .where(BOOK_AUTHOR.AUTHOR_ID.in(authorIds))));
+        }
+        if (p.containsKey(YEAR)) condition = condition.and(BOOK.PUBLISHED_YEAR.eq(typed(p, YEAR)));
+        if (p.containsKey(MIN_PRICE)) condition = condition.and(BOOK.PRICE.ge(typed(p, MIN_PRICE)));
+        if (p.containsKey(MAX_PRICE)) condition = condition.and(BOOK.PRICE.le(typed(p, MAX_PRICE)));
+        if (kind == Kind.SCAN && p.containsKey(AFTER_ID)) condition = condition.and(after(p));
+
+        List<SelectField<?>> fields = new ArrayList<>();
+        if (kind == Kind.COUNT) {
+            fields.add(DSL.countDistinct(BOOK.ID));
+        } else {
+            fields.addAll(BookFields.bookWithAuthors());
+            if (kind == Kind.PAGE_WINDOW_TOTAL) {
+                // evaluated after any GROUP BY, so this counts distinct books, like COUNT
+                fields.add(DSL.count().over().as(TOTAL_COUNT));
+            }
+        }
+
+        var from = ctx.select(fields).from(BOOK);
+        if (byAuthor) {
+            from = from.join(BOOK_AUTHOR).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
+                    .join(AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID));
+        }
+        var where = from.where(condition);
+        // only the author join repeats books; without it the GROUP BY would keep the newest-first order from
+        // being read off idx_book_created_at
+        SelectHavingStep<Record> grouped = byAuthor ? where.groupBy(BOOK.ID) : where;
+
+        return switch (kind) {
+            case COUNT -> where;
+            // id breaks ties, or books created in the same instant could repeat or go missing across offsets
+            case PAGE, PAGE_WINDOW_TOTAL -> grouped
+                    .orderBy(BOOK.CREATED_AT.desc(), BOOK.ID.desc())
+                    .limit(this.<Integer>typed(p, LIMIT))
+                    .offset(this.<Long>typed(p, OFFSET));
+            case SCAN -> {
+                // id breaks ties between books created in the same instant, keeping the order total; MySQL and
+                // H2 both sort a null created_at last when descending, which after() relies on
+                var ordered = grouped.orderBy(BOOK.CREATED_AT.desc(), BOOK.ID.desc());
+                yield p.containsKey(LIMIT) ? ordered.limit(this.<Integer>typed(p, LIMIT)) : ordered;
+            }
+        };
+    }
+
+    /**
+     * The books after the cursor in scan order. A seek() row comparison would never reach the books without
+     * {@code created_at}, so they are added to any dated cursor, and a cursor on one of them continues by id.
+     */
+    private Condition after(Map<String, Param<?>> p) {
+        Param<Long> id = typed(p, AFTER_ID);
+        if (!p.containsKey(AFTER_CREATED_AT)) return BOOK.CREATED_AT.isNull().and(BOOK.ID.lt(id));
+        Param<LocalDateTime> createdAt = typed(p, AFTER_CREATED_AT);
+        return BOOK.CREATED_AT.lt(createdAt)
+                .or(BOOK.CREATED_AT.eq(createdAt).and(BOOK.ID.lt(id)))
+                .or(BOOK.CREATED_AT.isNull());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DataType<Object> dataType(String name) {
+        return (DataType<Object>) (name.startsWith(AUTHOR_ID) ? BOOK_AUTHOR.AUTHOR_ID.getDataType() : TYPES.get(name));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Param<T> typed(Map<String, Param<?>> params, String name) {
+        return (Param<T>) params.get(name);
+    }
+}
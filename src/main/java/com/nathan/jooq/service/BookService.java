@@ -1,33 +1,38 @@
 package com.nathan.jooq.service;
 
-import com.nathan.jooq.dto.AuthorDTO;
 import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.BookCursor;
 import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.BookSearchFilter;
+import com.nathan.jooq.dto.CursorPage;
 import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
 import com.nathan.jooq.dto.UpdateBookPriceRequest;
+import com.nathan.jooq.event.BooksChangedEvent;
+import com.nathan.jooq.export.CompactPageWriter;
 import com.nathan.jooq.generated.tables.records.BookAuthorRecord;
 import com.nathan.jooq.generated.tables.records.BookRecord;
-import com.nathan.jooq.repository.BookRepository;
 import io.micrometer.common.util.StringUtils;
 import lombok.RequiredArgsConstructor;
 import org.apache.coyote.BadRequestException;
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Record;
-import org.jooq.Record1;
 import org.jooq.Result;
-import org.jooq.SelectJoinStep;
 import org.jooq.impl.DSL;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static com.nathan.jooq.generated.tables.Author.AUTHOR;
 import static com.nathan.jooq.generated.tables.Book.BOOK;
@@ -37,21 +42,31 @@ import static com.nathan.jooq.generated.tables.BookAuthor.BOOK_AUTHOR;
 @RequiredArgsConstructor
 public class BookService {
     private final DSLContext ctx;
-    private final BookRepository bookRepository;
+    private final BookSearchQueries searchQueries;
+    private final AuthorNameIndex authorIndex;
+    private final PriceUpdater priceUpdater;
+    private final SearchTotalCache totalCache;
+    private final BookCache bookCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeOutbox outbox;
+    private final PriceUpdateCoalescer coalescer;
 
     @Transactional
     public BookDTO create(BookCreateRequest req) throws BadRequestException {
-
-        if (bookRepository.findByTitle(req.title()).isPresent()) {
-            throw new BadRequestException("Title already exists");
+        // Insert book; uk_book_title enforces uniqueness, so concurrent creates never lock each other out.
+        // A plain INSERT: only a duplicate title is a bad request, any other failure of the row propagates
+        BookRecord inserted;
+        try {
+            inserted = ctx.insertInto(BOOK)
+                    .columns(BOOK.TITLE, BOOK.ISBN, BOOK.PUBLISHED_YEAR, BOOK.PRICE)
+                    .values(req.title(), req.isbn(), req.publishedYear(), req.price())
+                    .returning(BOOK.ID)
+                    .fetchOne();
+        } catch (RuntimeException e) {
+            if (UniqueTitle.violatedBy(e)) throw new BadRequestException("Title already exists");
+            throw e;
         }
-        // Insert book
-        Long bookId = ctx.insertInto(BOOK)
-                .columns(BOOK.TITLE, BOOK.ISBN, BOOK.PUBLISHED_YEAR, BOOK.PRICE)
-                .values(req.title(), req.isbn(), req.publishedYear(), req.price())
-                .returning(BOOK.ID)
-                .fetchOne()
-                .get(BOOK.ID);
+        Long bookId = inserted.getId();
 
         // Insert relations (book_author)
         if (req.authors() != null && !req.authors().isEmpty()) {
@@ -66,201 +81,252 @@ public class BookService {
             ).execute();
         }
 
-        return getBookById(bookId);
+        outbox.booksCreated(ctx, List.of(bookId));
+        eventPublisher.publishEvent(BooksChangedEvent.of(bookId));
+        return loadBookById(bookId);
     }
 
-    @Transactional
+    /**
+     * Not transactional itself: {@link PriceUpdater} runs each attempt in its own transaction so that
+     * optimistic retries see fresh data.
+     */
     public Long updatePrice(Long id, BigDecimal newPrice) {
-        BookRecord book = ctx.selectFrom(BOOK)
-                .where(BOOK.ID.eq(id))
-                .forUpdate()
-                .fetchOne();
-        Objects.requireNonNull(book, "Book not found with id: " + id);
+        priceUpdater.update(id, newPrice);
+        eventPublisher.publishEvent(BooksChangedEvent.of(id));
+        return id;
+    }
 
-        if(book.getPrice().compareTo(newPrice) != 0) {
-            book.setPrice(newPrice);
-            book.setUpdatedAt(LocalDateTime.now());
-        }
-        book.store();
-        return book.getId();
+    /**
+     * {@link #updatePrice}, or with {@code app.books.price-update.coalescing.enabled} queued for the next group commit
+     * of {@link PriceUpdateCoalescer}; the future completes once the new price is committed.
+     */
+    public CompletableFuture<Long> updatePriceAsync(Long id, BigDecimal newPrice) {
+        if (coalescer.enabled()) return coalescer.submit(id, newPrice);
+        return CompletableFuture.completedFuture(updatePrice(id, newPrice));
+    }
+
+    /** Whether {@link #updatePriceAsync} commits on the coalescer's thread rather than the caller's. */
+    public boolean priceUpdatesCoalesced() {
+        return coalescer.enabled();
     }
 
     @Transactional
     public int updateBookPriceByAuthor(UpdateBookPriceRequest req) {
-        Condition condition = DSL.noCondition();
+        Condition condition = authorCondition(req.getAuthorName(), req.getAuthorCountry());
+        if (condition == null) return 0;
 
-        if (req.getAuthorName() != null && !req.getAuthorName().isBlank()) {
-            condition = condition.and(AUTHOR.NAME.likeIgnoreCase("%" + req.getAuthorName() + "%"));
-        }
-        if (req.getAuthorCountry() != null && !req.getAuthorCountry().isBlank()) {
-            condition = condition.and(AUTHOR.COUNTRY.likeIgnoreCase("%" + req.getAuthorCountry() + "%"));
-        }
+        BigDecimal multiplier = priceMultiplier(req.getPercent());
 
-        BigDecimal multiplier = BigDecimal.ONE.add(req.getPercent().divide(BigDecimal.valueOf(100)));
+        // Resolve the ids up front so exactly the repriced books can be evicted
+        List<Long> bookIds = ctx.selectDistinct(BOOK_AUTHOR.BOOK_ID)
+                .from(BOOK_AUTHOR)
+                .join(AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
+                .where(condition)
+                .fetch(BOOK_AUTHOR.BOOK_ID);
+        if (bookIds.isEmpty()) return 0;
 
         int updated = ctx.update(BOOK)
                 .set(BOOK.PRICE, BOOK.PRICE.mul(multiplier))
-                .where(BOOK.ID.in(
-                        ctx.select(BOOK_AUTHOR.BOOK_ID)
-                                .from(BOOK_AUTHOR)
-                                .join(AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
-                                .where(AUTHOR.NAME.eq(req.getAuthorName()))
-                ))
+                .set(BOOK.VERSION, BOOK.VERSION.plus(1))
+                .set(BOOK.UPDATED_AT, LocalDateTime.now())
+                .where(BOOK.ID.in(bookIds))
                 .execute();
 
+        outbox.booksRepriced(ctx, bookIds);
+        eventPublisher.publishEvent(new BooksChangedEvent(bookIds));
         return updated;
     }
 
+    static BigDecimal priceMultiplier(BigDecimal percent) {
+        return BigDecimal.ONE.add(percent.divide(BigDecimal.valueOf(100)));
+    }
+
+    /**
+     * Authors whose name contains {@code authorName} and whose country contains {@code authorCountry}
+     * (both case-insensitive, either optional), or {@code null} if neither is given.
+     */
+    Condition authorCondition(String authorName, String authorCountry) {
+        boolean byName = StringUtils.isNotBlank(authorName);
+        boolean byCountry = StringUtils.isNotBlank(authorCountry);
+        if (!byName && !byCountry) return null;
+
+        Condition condition = DSL.noCondition();
+        if (byName) {
+            // Name fragments are resolved through the in-memory index; LIKE only if it cannot answer, with % and _
+            // escaped as the index takes them literally
+            condition = authorIndex.find(authorName)
+                    .map(AUTHOR.ID::in)
+                    .orElseGet(() -> AUTHOR.NAME.containsIgnoreCase(authorName));
+        }
+        if (byCountry) {
+            condition = condition.and(AUTHOR.COUNTRY.likeIgnoreCase("%" + authorCountry + "%"));
+        }
+        return condition;
+    }
+
     public BookDTO getBookById(Long id) {
-        var b = ctx.selectFrom(BOOK)
+        return bookCache.get(id, this::loadBookById);
+    }
+
+    private BookDTO loadBookById(Long id) {
+        return ctx.select(BookFields.bookWithAuthors())
+                .from(BOOK)
                 .where(BOOK.ID.eq(id))
-                .fetchOne();
-
-        if (b == null) return null;
-
-        List<AuthorDTO> authors = ctx.select(
-                        AUTHOR.ID,
-                        AUTHOR.NAME,
-                        AUTHOR.EMAIL,
-                        AUTHOR.BIRTH_DATE,
-                        AUTHOR.COUNTRY,
-                        AUTHOR.CREATED_AT,
-                        BOOK_AUTHOR.CONTRIBUTION)
-                .from(BOOK_AUTHOR)
-                .join(AUTHOR).on(BOOK_AUTHOR.AUTHOR_ID.eq(AUTHOR.ID))
-                .where(BOOK_AUTHOR.BOOK_ID.eq(id))
-                .fetch(r -> new AuthorDTO(
-                        r.get(AUTHOR.ID),
-                        r.get(AUTHOR.NAME),
-                        r.get(AUTHOR.EMAIL),
-                        r.get(AUTHOR.BIRTH_DATE),
-                        r.get(AUTHOR.COUNTRY),
-                        r.get(AUTHOR.CREATED_AT),
-                        r.get(BOOK_AUTHOR.CONTRIBUTION)
-                ));
-
-        return new BookDTO(
-                b.get(BOOK.ID),
-                b.get(BOOK.TITLE),
-                b.get(BOOK.ISBN),
-                b.get(BOOK.PUBLISHED_YEAR),
-                b.get(BOOK.PRICE),
-                b.get(BOOK.CREATED_AT),
-                authors
-        );
+                .fetchOne(BookFields::toBookDTO);
     }
 
     @Transactional(readOnly = true)
-    public PageResult<BookDTO> search(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice, int page, int size) {
-        Condition condition = buildCondition(authorName, publishedYear, minPrice, maxPrice);
+    public PageResult<BookDTO> search(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice,
+                                      int page, int size, TotalMode totalMode) {
+        List<BookDTO> content = new ArrayList<>(size);
+        PageEnd end = readPage(authorName, publishedYear, minPrice, maxPrice, page, size, totalMode,
+                r -> content.add(BookFields.toBookDTO(r)));
+        return new PageResult<>(content, page, size, end.total(), end.hasNext(), totalMode);
+    }
 
-        // base + count query
-        var baseQuery = buildBaseQuery(authorName);
-        var countQuery = buildCountQuery(authorName);
+    /** @param books the page rows, plus one more for {@link TotalMode#NONE} if there is a next page */
+    static PageResult<BookDTO> toPage(List<Record> books, int page, int size, Integer total, TotalMode totalMode) {
+        boolean extraRow = books.size() > size;
+        List<Record> pageRows = extraRow ? books.subList(0, size) : books;
+        List<BookDTO> content = pageRows.stream().map(BookFields::toBookDTO).toList();
+        return new PageResult<>(content, page, size, total, hasNext(page, size, total, totalMode, extraRow), totalMode);
+    }
 
-        Integer total = countQuery.where(condition).fetchOne(0, Integer.class);
-        // Get paging result
-        Result<? extends Record> books = baseQuery
-                .where(condition)
-                .groupBy(BOOK.ID)
-                .orderBy(BOOK.CREATED_AT.desc())
-                .limit(size)
-                .offset((long) page * size)
-                .fetch();
+    /**
+     * {@link #search} written straight from the result rows to {@code out}, without building {@link BookDTO}s or a
+     * page of them, and with each author written once per page (see {@link CompactPageWriter}).
+     */
+    @Transactional(readOnly = true)
+    public void writeSearchPage(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice,
+                                int page, int size, TotalMode totalMode, CompactPageWriter out) throws IOException {
+        PageEnd end = readPage(authorName, publishedYear, minPrice, maxPrice, page, size, totalMode,
+                r -> out.book(r.get(BOOK.ID), r.get(BOOK.TITLE), r.get(BOOK.ISBN), r.get(BOOK.PUBLISHED_YEAR),
+                        r.get(BOOK.PRICE), r.get(BOOK.CREATED_AT), r.get(BookFields.AUTHORS)));
+        out.finish(page, size, end.total(), end.hasNext(), totalMode);
+    }
 
-        if (books.isEmpty()) {
-            return new PageResult<>(Collections.emptyList(), page, size, total == null ? 0 : total);
+    /** Receives the rows of a search page as they are read. */
+    @FunctionalInterface
+    private interface PageRows<E extends Exception> {
+        void add(Record row) throws E;
+    }
+
+    private record PageEnd(Integer total, boolean hasNext) {
+    }
+
+    /**
+     * The paging shared by {@link #search} and {@link #writeSearchPage}: reads the page's rows into {@code rows}
+     * through a lazy cursor and works out the total and whether another page follows, as {@code totalMode} asks.
+     */
+    private <E extends Exception> PageEnd readPage(String authorName, Integer publishedYear, BigDecimal minPrice,
+                                                   BigDecimal maxPrice, int page, int size, TotalMode totalMode,
+                                                   PageRows<E> rows) throws E {
+        Integer total = totalBeforePage(authorName, publishedYear, minPrice, maxPrice, totalMode);
+
+        // Without a total, one extra row tells us whether another page exists
+        int limit = totalMode == TotalMode.NONE ? size + 1 : size;
+        int read = 0;
+        boolean extraRow = false;
+        try (Cursor<Record> books = searchQueries.page(authorName, publishedYear, minPrice, maxPrice,
+                        totalMode == TotalMode.WINDOW, limit, (long) page * size)
+                .fetchLazy()) {
+            for (Record r : books) {
+                if (read == size) {
+                    extraRow = true;
+                    break;
+                }
+                if (read == 0 && totalMode == TotalMode.WINDOW) {
+                    total = r.get(BookSearchQueries.TOTAL_COUNT);
+                }
+                rows.add(r);
+                read++;
+            }
         }
 
-        // Enrich Author data for each Book
-        List<BookDTO> content = enrichAuthors(books);
+        if (totalMode == TotalMode.WINDOW && read == 0) {
+            // Past the last page the window has no row to ride on, so fall back to counting
+            total = page == 0 ? 0 : countTotal(authorName, publishedYear, minPrice, maxPrice);
+        }
+        return new PageEnd(total, hasNext(page, size, total, totalMode, extraRow));
+    }
 
-        return new PageResult<>(content, page, size, total == null ? 0 : total);
+    /** @param extraRow whether a {@link TotalMode#NONE} page read a row past its end */
+    private static boolean hasNext(int page, int size, Integer total, TotalMode totalMode, boolean extraRow) {
+        return totalMode == TotalMode.NONE ? extraRow : (long) (page + 1) * size < total;
     }
 
-    private Condition buildCondition(String authorName, Integer publishedYear,
-                                     BigDecimal minPrice, BigDecimal maxPrice) {
-        Condition condition = DSL.noCondition();
+    /** The total for modes that count before fetching the page; {@code null} for the others. */
+    private Integer totalBeforePage(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice,
+                                    TotalMode totalMode) {
+        return switch (totalMode) {
+            case EXACT -> countTotal(authorName, publishedYear, minPrice, maxPrice);
+            case CACHED -> {
+                // counted from the key itself, so every request that shares it would count the same
+                BookSearchFilter filter = BookSearchFilter.of(authorName, publishedYear, minPrice, maxPrice);
+                yield totalCache.get(filter, () -> countTotal(
+                        filter.authorName(), filter.publishedYear(), filter.minPrice(), filter.maxPrice()));
+            }
+            case WINDOW, NONE -> null;
+        };
+    }
 
-        if (StringUtils.isNotBlank(authorName)) {
-            condition = condition.and(AUTHOR.NAME.like("%" + authorName + "%"));
-        }
-        if (publishedYear != null) {
-            condition = condition.and(BOOK.PUBLISHED_YEAR.eq(publishedYear));
-        }
-        if (minPrice != null) {
-            condition = condition.and(BOOK.PRICE.ge(minPrice));
+    private int countTotal(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice) {
+        Integer total = searchQueries.count(authorName, publishedYear, minPrice, maxPrice).fetchOne(0, Integer.class);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Keyset (seek) variant of {@link #search}: pages are anchored on the last {@code (created_at, id)} seen
+     * instead of an OFFSET, so every page costs the same regardless of how deep the client has scrolled.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<BookDTO> searchByCursor(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice,
+                                              String cursor, int size) throws BadRequestException {
+        if (size <= 0) {
+            throw new BadRequestException("size must be positive");
         }
-        if (maxPrice != null) {
-            condition = condition.and(BOOK.PRICE.le(maxPrice));
+        BookCursor after = null;
+        if (StringUtils.isNotBlank(cursor)) {
+            try {
+                after = BookCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException(e.getMessage());
+            }
         }
-        return condition;
-    }
 
-    private SelectJoinStep<? extends Record> buildBaseQuery(String authorName) {
-        var base = ctx.select(BOOK.ID, BOOK.TITLE, BOOK.ISBN, BOOK.PUBLISHED_YEAR, BOOK.PRICE, BOOK.CREATED_AT)
-                .from(BOOK);
-        if (StringUtils.isNotBlank(authorName)) {
-            base = base.join(BOOK_AUTHOR).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
-                    .join(AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID));
+        // one extra row tells us whether another page exists
+        Result<Record> books = searchQueries.scan(authorName, publishedYear, minPrice, maxPrice, after, size + 1)
+                .fetch();
+
+        if (books.isEmpty()) {
+            return new CursorPage<>(Collections.emptyList(), size, null);
         }
-        return base;
-    }
 
-    private SelectJoinStep<Record1<Integer>> buildCountQuery(String authorName) {
-        var countQuery = ctx.select(DSL.countDistinct(BOOK.ID))
-                .from(BOOK);
-        if (StringUtils.isNotBlank(authorName)) {
-            countQuery = countQuery.join(BOOK_AUTHOR).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
-                    .join(AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID));
+        String nextCursor = null;
+        List<Record> pageRows = books;
+        if (books.size() > size) {
+            pageRows = books.subList(0, size);
+            Record last = pageRows.get(size - 1);
+            nextCursor = new BookCursor(last.get(BOOK.CREATED_AT), last.get(BOOK.ID)).encode();
         }
-        return countQuery;
+
+        return new CursorPage<>(pageRows.stream().map(BookFields::toBookDTO).toList(), size, nextCursor);
     }
 
-    private List<BookDTO> enrichAuthors(Result<? extends Record> books) {
-        List<Long> bookIds = books.stream()
-                .map(r -> r.get(BOOK.ID))
-                .toList();
-
-        //Enrich Author data for each Book
-        Map<Long, List<AuthorDTO>> authorsMap = ctx.select(
-                        BOOK_AUTHOR.BOOK_ID,
-                        AUTHOR.ID,
-                        AUTHOR.NAME,
-                        AUTHOR.EMAIL,
-                        AUTHOR.BIRTH_DATE,
-                        AUTHOR.COUNTRY,
-                        AUTHOR.CREATED_AT,
-                        BOOK_AUTHOR.CONTRIBUTION)
-                .from(BOOK_AUTHOR)
-                .join(AUTHOR).on(BOOK_AUTHOR.AUTHOR_ID.eq(AUTHOR.ID))
-                .where(BOOK_AUTHOR.BOOK_ID.in(bookIds))
-                .fetchGroups(
-                        r -> r.get(BOOK_AUTHOR.BOOK_ID),
-                        r -> new AuthorDTO(
-                                r.get(AUTHOR.ID),
-                                r.get(AUTHOR.NAME),
-                                r.get(AUTHOR.EMAIL),
-                                r.get(AUTHOR.BIRTH_DATE),
-                                r.get(AUTHOR.COUNTRY),
-                                r.get(AUTHOR.CREATED_AT),
-                                r.get(BOOK_AUTHOR.CONTRIBUTION)
-                        )
-                );
-
-        return books.stream().map(r -> {
-            Long id = r.get(BOOK.ID);
-            List<AuthorDTO> a = authorsMap.getOrDefault(id, Collections.emptyList());
-            return new BookDTO(
-                    id,
-                    r.get(BOOK.TITLE),
-                    r.get(BOOK.ISBN),
-                    r.get(BOOK.PUBLISHED_YEAR),
-                    r.get(BOOK.PRICE),
-                    r.get(BOOK.CREATED_AT),
-                    a
-            );
-        }).toList();
+    /**
+     * Streams every book matching the filter to {@code consumer}, newest first, without materializing the result:
+     * rows are pulled through a lazy cursor {@code fetchSize} at a time.
+     */
+    @Transactional(readOnly = true)
+    public void forEachMatching(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice,
+                                int fetchSize, Consumer<BookDTO> consumer) {
+        try (Cursor<Record> cursor = searchQueries.scan(authorName, publishedYear, minPrice, maxPrice, null, null)
+                .fetchSize(fetchSize)
+                .fetchLazy()) {
+            for (Record r : cursor) {
+                consumer.accept(BookFields.toBookDTO(r));
+            }
+        }
     }
 
 }
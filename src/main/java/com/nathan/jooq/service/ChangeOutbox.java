@@ -0,0 +1,113 @@
+package com.nathan.jooq.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.jooq.event.ChangeEvent;
+import org.jooq.DSLContext;
+import org.jooq.Row5;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static com.nathan.jooq.generated.Tables.OUTBOX_EVENT;
+
+/**
+ * Writes {@link ChangeEvent}s to {@code outbox_event}. Each method must be called with the {@link DSLContext} of the
+ * transaction that made the change, after the change: the events commit or roll back with it, and their payload is
+ * the row as that transaction left it. {@link OutboxRelay} delivers them.
+ */
+@Component
+public class ChangeOutbox {
+    private static final int CHUNK = 500;
+
+    private final ObjectMapper objectMapper;
+
+    public ChangeOutbox(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void booksCreated(DSLContext tx, Collection<Long> bookIds) {
+        books(tx, ChangeEvent.BOOK_CREATED, bookIds, true);
+    }
+
+    public void booksRepriced(DSLContext tx, Collection<Long> bookIds) {
+        books(tx, ChangeEvent.BOOK_PRICE_CHANGED, bookIds, false);
+    }
+
+    public void authorCreated(DSLContext tx, Long authorId) {
+        List<Row5<String, Long, String, String, LocalDateTime>> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        tx.select(AUTHOR.ID, AUTHOR.NAME, AUTHOR.EMAIL, AUTHOR.BIRTH_DATE, AUTHOR.COUNTRY)
+                .from(AUTHOR)
+                .where(AUTHOR.ID.eq(authorId))
+                .forEach(r -> {
+                    Map<String, Object> payload = new LinkedHashMap<>();
+                    payload.put("id", r.value1());
+                    payload.put("name", r.value2());
+                    payload.put("email", r.value3());
+                    payload.put("birthDate", r.value4() == null ? null : r.value4().toString());
+                    payload.put("country", r.value5());
+                    rows.add(DSL.row(ChangeEvent.AUTHOR, r.value1(), ChangeEvent.AUTHOR_CREATED, json(payload), now));
+                });
+        insert(tx, rows);
+    }
+
+    private void books(DSLContext tx, String type, Collection<Long> bookIds, boolean withAuthors) {
+        List<Long> ids = new ArrayList<>(bookIds);
+        ids.sort(null);
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < ids.size(); from += CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK, ids.size()));
+            Map<Long, List<Long>> authors = withAuthors
+                    ? tx.select(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID)
+                        .from(BOOK_AUTHOR)
+                        .where(BOOK_AUTHOR.BOOK_ID.in(chunk))
+                        .orderBy(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID)
+                        .fetchGroups(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID)
+                    : Map.of();
+
+            List<Row5<String, Long, String, String, LocalDateTime>> rows = new ArrayList<>();
+            tx.select(BOOK.ID, BOOK.TITLE, BOOK.ISBN, BOOK.PUBLISHED_YEAR, BOOK.PRICE, BOOK.VERSION)
+                    .from(BOOK)
+                    .where(BOOK.ID.in(chunk))
+                    .orderBy(BOOK.ID)
+                    .forEach(r -> {
+                        Map<String, Object> payload = new LinkedHashMap<>();
+                        payload.put("id", r.value1());
+                        payload.put("title", r.value2());
+                        payload.put("isbn", r.value3());
+                        payload.put("publishedYear", r.value4());
+                        payload.put("price", r.value5());
+                        payload.put("version", r.value6());
+                        if (withAuthors) payload.put("authorIds", authors.getOrDefault(r.value1(), List.of()));
+                        rows.add(DSL.row(ChangeEvent.BOOK, r.value1(), type, json(payload), now));
+                    });
+            insert(tx, rows);
+        }
+    }
+
+    private static void insert(DSLContext tx, List<Row5<String, Long, String, String, LocalDateTime>> rows) {
+        if (rows.isEmpty()) return;
+        tx.insertInto(OUTBOX_EVENT, OUTBOX_EVENT.AGGREGATE_TYPE, OUTBOX_EVENT.AGGREGATE_ID, OUTBOX_EVENT.EVENT_TYPE,
+                        OUTBOX_EVENT.PAYLOAD, OUTBOX_EVENT.CREATED_AT)
+                .valuesOfRows(rows)
+                .execute();
+    }
+
+    private String json(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox payload", e);
+        }
+    }
+}
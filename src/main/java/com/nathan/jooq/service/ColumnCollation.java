@@ -0,0 +1,42 @@
+package com.nathan.jooq.service;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * How a column's collation compares strings, for Java code that groups or sorts what SQL would: strings with the
+ * same {@link #key} are one {@code GROUP BY} group, and {@link #order} sorts like {@code ORDER BY}, {@code null}
+ * first. Keys are ordered by UTF-16 code unit rather than by the collation's weights, which agrees for the
+ * Latin-script values of this schema.
+ */
+enum ColumnCollation {
+    /** Binary and case-sensitive collations, and H2's default. */
+    EXACT,
+    /** {@code _ci} collations that are not {@code _ai}: case is ignored. */
+    CASE_INSENSITIVE,
+    /** {@code _ai_ci}, such as MySQL's default {@code utf8mb4_0900_ai_ci}: case and accents are ignored. */
+    ACCENT_INSENSITIVE;
+
+    /** The collation for a MySQL collation name; {@link #EXACT} if {@code null}. */
+    static ColumnCollation named(String name) {
+        if (name == null) return EXACT;
+        String n = name.toLowerCase(Locale.ROOT);
+        if (n.endsWith("_ai_ci")) return ACCENT_INSENSITIVE;
+        // the pre-0900 _ci collations ignore most accents as well
+        if (n.endsWith("_ci")) return n.contains("_as_") ? CASE_INSENSITIVE : ACCENT_INSENSITIVE;
+        return EXACT;
+    }
+
+    String key(String value) {
+        if (value == null) return null;
+        return switch (this) {
+            case EXACT -> value;
+            case CASE_INSENSITIVE -> value.toLowerCase(Locale.ROOT);
+            case ACCENT_INSENSITIVE -> AuthorNameIndex.fold(value);
+        };
+    }
+
+    Comparator<String> order() {
+        return Comparator.nullsFirst(Comparator.comparing(this::key));
+    }
+}
@@ -0,0 +1,254 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.event.AuthorCreatedEvent;
+import com.nathan.jooq.event.BooksChangedEvent;
+import com.nathan.jooq.service.ColumnarTables.AuthorRows;
+import com.nathan.jooq.service.ColumnarTables.BookRows;
+import com.nathan.jooq.service.ColumnarTables.EdgeRows;
+import com.nathan.jooq.service.ColumnarTables.Semantics;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+
+/**
+ * Keeps the {@link ColumnarTables} the reports can be answered from in memory.
+ * <p>
+ * The tables are read in id-ordered batches on startup and every reload interval. Committed book and author
+ * writes only record their ids; the rows behind them are re-read and applied as a new copy of the tables
+ * before the next report is served (and on a short interval in between), so a report never misses a committed
+ * write made through the application. This application never rewrites the authors of an existing book, nor
+ * renames or deletes anything, so a changed book only needs its year and price re-read; the reload repairs
+ * anything changed behind the application's back.
+ */
+@Slf4j
+@Service
+public class ColumnarReportEngine {
+    private static final int IN_LIST = 1000;
+
+    private final DSLContext ctx;
+    private final boolean enabled;
+    private final int batchSize;
+
+    private final Set<Long> dirtyBooks = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyAuthors = ConcurrentHashMap.newKeySet();
+    private volatile ColumnarTables tables;
+    // serializes loading and applying changes
+    private final Lock loading = new ReentrantLock();
+
+    public ColumnarReportEngine(DSLContext ctx,
+                                @Value("${app.reports.columnar.enabled:false}") boolean enabled,
+                                @Value("${app.reports.columnar.load-batch-size:50000}") int batchSize) {
+        this.ctx = ctx;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the tables with every committed change applied, or {@code null} if there are none yet, or changes
+     * are pending while another thread is loading; callers then fall back to the other report sources
+     */
+    public ColumnarTables current() {
+        if (!enabled || tables == null) return null;
+        if (dirtyBooks.isEmpty() && dirtyAuthors.isEmpty()) return tables;
+        if (!loading.tryLock()) return null;
+        try {
+            applyDirty();
+            return tables;
+        } catch (RuntimeException e) {
+            log.warn("Could not apply changes to the columnar report tables", e);
+            return null;
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksChanged(BooksChangedEvent event) {
+        if (enabled) dirtyBooks.addAll(event.bookIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorCreated(AuthorCreatedEvent event) {
+        if (enabled) dirtyAuthors.add(event.authorId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.columnar.refresh-interval:1s}")
+    public void refresh() {
+        if (!enabled || tables == null) return;
+        loading.lock();
+        try {
+            applyDirty();
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    /** (Re)reads all three tables. */
+    @Scheduled(initialDelayString = "${app.reports.columnar.initial-delay:0s}",
+            fixedDelayString = "${app.reports.columnar.reload-interval:30m}")
+    public void reload() {
+        if (!enabled) return;
+        loading.lock();
+        try {
+            // changes committed from here on are applied again on top of the load, which is harmless
+            List<Long> books = drain(dirtyBooks);
+            List<Long> authors = drain(dirtyAuthors);
+            try {
+                long started = System.nanoTime();
+                tables = ColumnarTables.of(loadBooks(), loadAuthors(), loadEdges(), semantics(ctx));
+                log.debug("Columnar report tables loaded in {} ms: {} books, {} authors, {} edges",
+                        (System.nanoTime() - started) / 1_000_000, tables.books(), tables.authors(), tables.edges());
+            } catch (RuntimeException e) {
+                dirtyBooks.addAll(books);
+                dirtyAuthors.addAll(authors);
+                throw e;
+            }
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    // loading held
+    private void applyDirty() {
+        List<Long> books = drain(dirtyBooks);
+        List<Long> authors = drain(dirtyAuthors);
+        if (books.isEmpty() && authors.isEmpty()) return;
+        try {
+            BookRows bookRows = new BookRows(books.size());
+            List<Long> inserted = new ArrayList<>();
+            for (List<Long> chunk : chunks(books)) {
+                ctx.select(BOOK.ID, BOOK.PUBLISHED_YEAR, BOOK.PRICE)
+                        .from(BOOK)
+                        .where(BOOK.ID.in(chunk))
+                        .forEach(r -> {
+                            bookRows.add(r.value1(), r.value2(), r.value3());
+                            if (!tables.containsBook(r.value1())) inserted.add(r.value1());
+                        });
+            }
+
+            EdgeRows edgeRows = new EdgeRows(inserted.size() * 2);
+            Set<Long> authorIds = new HashSet<>(authors);
+            for (List<Long> chunk : chunks(inserted)) {
+                ctx.select(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID)
+                        .from(BOOK_AUTHOR)
+                        .where(BOOK_AUTHOR.BOOK_ID.in(chunk))
+                        .forEach(r -> {
+                            edgeRows.add(r.value1(), r.value2());
+                            if (!tables.containsAuthor(r.value2())) authorIds.add(r.value2());
+                        });
+            }
+
+            AuthorRows authorRows = new AuthorRows(authorIds.size());
+            for (List<Long> chunk : chunks(new ArrayList<>(authorIds))) {
+                ctx.select(AUTHOR.ID, AUTHOR.NAME, AUTHOR.COUNTRY)
+                        .from(AUTHOR)
+                        .where(AUTHOR.ID.in(chunk))
+                        .forEach(r -> authorRows.add(r.value1(), r.value2(), r.value3()));
+            }
+
+            tables = tables.with(bookRows, authorRows, edgeRows);
+        } catch (RuntimeException e) {
+            dirtyBooks.addAll(books);
+            dirtyAuthors.addAll(authors);
+            throw e;
+        }
+    }
+
+    /**
+     * Read from the server on every reload, so a changed setting is picked up with the data. The report snapshot
+     * reads them the same way.
+     */
+    static Semantics semantics(DSLContext ctx) {
+        if (ctx.dialect().family() == SQLDialect.H2) {
+            return new Semantics(ColumnarTables.PRICE_SCALE + 10, ColumnCollation.EXACT);
+        }
+        int increment = ctx.fetchValue(DSL.field("@@div_precision_increment", Integer.class));
+        String collation = ctx.resultQuery("select collation_name from information_schema.columns"
+                        + " where table_schema = database() and table_name = ? and column_name = ?",
+                        AUTHOR.getName(), AUTHOR.COUNTRY.getName())
+                .fetchOne(0, String.class);
+        return new Semantics(ColumnarTables.PRICE_SCALE + increment, ColumnCollation.named(collation));
+    }
+
+    private BookRows loadBooks() {
+        BookRows rows = new BookRows(batchSize);
+        int read;
+        do {
+            int before = rows.size;
+            ctx.select(BOOK.ID, BOOK.PUBLISHED_YEAR, BOOK.PRICE)
+                    .from(BOOK)
+                    .where(BOOK.ID.gt(rows.lastId()))
+                    .orderBy(BOOK.ID)
+                    .limit(batchSize)
+                    .forEach(r -> rows.add(r.value1(), r.value2(), r.value3()));
+            read = rows.size - before;
+        } while (read == batchSize);
+        return rows;
+    }
+
+    private AuthorRows loadAuthors() {
+        AuthorRows rows = new AuthorRows(batchSize);
+        int read;
+        do {
+            int before = rows.size;
+            ctx.select(AUTHOR.ID, AUTHOR.NAME, AUTHOR.COUNTRY)
+                    .from(AUTHOR)
+                    .where(AUTHOR.ID.gt(rows.lastId()))
+                    .orderBy(AUTHOR.ID)
+                    .limit(batchSize)
+                    .forEach(r -> rows.add(r.value1(), r.value2(), r.value3()));
+            read = rows.size - before;
+        } while (read == batchSize);
+        return rows;
+    }
+
+    /** In primary key order, {@code (book_id, author_id)}. */
+    private EdgeRows loadEdges() {
+        EdgeRows rows = new EdgeRows(batchSize);
+        int read;
+        do {
+            int before = rows.size;
+            long lastBook = before == 0 ? 0 : rows.bookIds[before - 1];
+            long lastAuthor = before == 0 ? 0 : rows.authorIds[before - 1];
+            ctx.select(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID)
+                    .from(BOOK_AUTHOR)
+                    .where(DSL.row(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID).gt(lastBook, lastAuthor))
+                    .orderBy(BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID)
+                    .limit(batchSize)
+                    .forEach(r -> rows.add(r.value1(), r.value2()));
+            read = rows.size - before;
+        } while (read == batchSize);
+        return rows;
+    }
+
+    private static List<Long> drain(Set<Long> dirty) {
+        List<Long> drained = new ArrayList<>(dirty);
+        drained.forEach(dirty::remove);
+        return drained;
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_LIST) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + IN_LIST)));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,727 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorRankingDTO;
+import com.nathan.jooq.dto.AuthorReportDTO;
+import com.nathan.jooq.dto.BookYearReportDTO;
+import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.YearlyStatsDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+
+/**
+ * Immutable column-oriented copy of {@code book}, {@code author} and {@code book_author} that answers the
+ * {@link ReportService} aggregates with parallel (fork-join) scans instead of SQL.
+ * <p>
+ * Books and authors are kept in ascending id order, one primitive array per column: prices as longs scaled by
+ * 10^{@link #PRICE_SCALE}, {@code null} year and price as sentinels, countries dictionary-encoded. The author-book
+ * edges are grouped by author: author row {@code a} wrote the book rows {@code edgeBooks[authorEdges[a]]} up to
+ * {@code edgeBooks[authorEdges[a + 1] - 1]}.
+ * <p>
+ * Results are those of the SQL reports, value for value: {@code null} groups and sums, {@code RANK()} ties and
+ * the scale and collation the database uses, which is why the {@link Semantics} are part of the tables: countries
+ * the collation considers equal are one group, shown with the first spelling loaded, and ties sort in its order.
+ */
+public final class ColumnarTables {
+    static final int PRICE_SCALE = BOOK.PRICE.getDataType().scale();
+    static final int NULL_YEAR = Integer.MIN_VALUE;
+    static final long NULL_PRICE = Long.MIN_VALUE;
+    /** Rows scanned by one fork-join leaf task. */
+    private static final int LEAF = 1 << 14;
+    private static final int TOP_AUTHORS = 5;
+
+    /**
+     * What the database does that the reports must match.
+     *
+     * @param avgScale  the scale of {@code AVG()} over the price column: MySQL adds {@code div_precision_increment},
+     *                  H2 adds 10
+     * @param countries the collation of {@code author.country}
+     */
+    record Semantics(int avgScale, ColumnCollation countries) {
+    }
+
+    private final long[] bookIds;
+    private final int[] years;
+    private final long[] prices;
+    private final long[] authorIds;
+    private final String[] authorNames;
+    private final int[] authorCountries;
+    private final String[] countries;
+    private final int[] authorEdges;
+    private final int[] edgeBooks;
+    private final Semantics semantics;
+    private final int avgScale;
+    /** Country codes in collation order. */
+    private final int[] countryOrder;
+    private final int minYear;
+    private final int maxYear;
+
+    private ColumnarTables(long[] bookIds, int[] years, long[] prices,
+                           long[] authorIds, String[] authorNames, int[] authorCountries, String[] countries,
+                           int[] authorEdges, int[] edgeBooks, Semantics semantics) {
+        this.bookIds = bookIds;
+        this.years = years;
+        this.prices = prices;
+        this.authorIds = authorIds;
+        this.authorNames = authorNames;
+        this.authorCountries = authorCountries;
+        this.countries = countries;
+        this.authorEdges = authorEdges;
+        this.edgeBooks = edgeBooks;
+        this.semantics = semantics;
+        this.avgScale = semantics.avgScale();
+        Comparator<String> order = semantics.countries().order();
+        this.countryOrder = IntStream.range(0, countries.length).boxed()
+                .sorted(Comparator.comparing(c -> countries[c], order))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int year : years) {
+            if (year == NULL_YEAR) continue;
+            min = Math.min(min, year);
+            max = Math.max(max, year);
+        }
+        this.minYear = min > max ? 0 : min;
+        this.maxYear = min > max ? -1 : max;
+    }
+
+    public int books() {
+        return bookIds.length;
+    }
+
+    public int authors() {
+        return authorIds.length;
+    }
+
+    public int edges() {
+        return edgeBooks.length;
+    }
+
+    static long scalePrice(BigDecimal price) {
+        return price == null ? NULL_PRICE : price.setScale(PRICE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    boolean containsBook(long id) {
+        return Arrays.binarySearch(bookIds, id) >= 0;
+    }
+
+    boolean containsAuthor(long id) {
+        return Arrays.binarySearch(authorIds, id) >= 0;
+    }
+
+    /**
+     * A copy with the given changes applied.
+     *
+     * @param books        rows to insert or overwrite, by id
+     * @param authors      rows to insert; known authors are left as they are
+     * @param edges        links of newly inserted books; links to unknown books or authors are dropped
+     */
+    ColumnarTables with(BookRows books, AuthorRows authors, EdgeRows edges) {
+        int[] newYears = years;
+        long[] newPrices = prices;
+        int added = 0;
+        for (int i = 0; i < books.size; i++) {
+            int row = Arrays.binarySearch(bookIds, books.ids[i]);
+            if (row < 0) {
+                added++;
+                continue;
+            }
+            if (newYears == years) {
+                newYears = years.clone();
+                newPrices = prices.clone();
+            }
+            newYears[row] = books.years[i];
+            newPrices[row] = books.prices[i];
+        }
+
+        long[] newBookIds = bookIds;
+        int[] bookRowOf = null;
+        if (added > 0) {
+            BookRows inserted = new BookRows(added);
+            for (int i = 0; i < books.size; i++) {
+                if (!containsBook(books.ids[i])) inserted.add(books.ids[i], books.years[i], books.prices[i]);
+            }
+            inserted.sort();
+            int[] source = merge(bookIds, inserted.ids);
+            newBookIds = new long[source.length];
+            int[] years = new int[source.length];
+            long[] prices = new long[source.length];
+            bookRowOf = new int[bookIds.length];
+            for (int row = 0; row < source.length; row++) {
+                int from = source[row];
+                if (from >= 0) {
+                    newBookIds[row] = bookIds[from];
+                    years[row] = newYears[from];
+                    prices[row] = newPrices[from];
+                    bookRowOf[from] = row;
+                } else {
+                    newBookIds[row] = inserted.ids[~from];
+                    years[row] = inserted.years[~from];
+                    prices[row] = inserted.prices[~from];
+                }
+            }
+            newYears = years;
+            newPrices = prices;
+        }
+
+        long[] newAuthorIds = authorIds;
+        String[] newNames = authorNames;
+        int[] newCountries = authorCountries;
+        String[] newDictionary = countries;
+        int[] authorRowOf = null;
+        AuthorRows insertedAuthors = new AuthorRows(authors.size);
+        for (int i = 0; i < authors.size; i++) {
+            if (!containsAuthor(authors.ids[i])) insertedAuthors.add(authors.ids[i], authors.names[i], authors.countries[i]);
+        }
+        if (insertedAuthors.size > 0) {
+            insertedAuthors.sort();
+            Dictionary dictionary = new Dictionary(semantics.countries(), countries);
+            int[] source = merge(authorIds, insertedAuthors.ids);
+            newAuthorIds = new long[source.length];
+            newNames = new String[source.length];
+            newCountries = new int[source.length];
+            authorRowOf = new int[authorIds.length];
+            for (int row = 0; row < source.length; row++) {
+                int from = source[row];
+                if (from >= 0) {
+                    newAuthorIds[row] = authorIds[from];
+                    newNames[row] = authorNames[from];
+                    newCountries[row] = authorCountries[from];
+                    authorRowOf[from] = row;
+                } else {
+                    newAuthorIds[row] = insertedAuthors.ids[~from];
+                    newNames[row] = insertedAuthors.names[~from];
+                    newCountries[row] = dictionary.code(insertedAuthors.countries[~from]);
+                }
+            }
+            newDictionary = dictionary.countries();
+        }
+
+        int[] newAuthorEdges = authorEdges;
+        int[] newEdgeBooks = edgeBooks;
+        if (bookRowOf != null || authorRowOf != null || edges.size > 0) {
+            int[] edgeAuthorRows = new int[edgeBooks.length + edges.size];
+            int[] edgeBookRows = new int[edgeBooks.length + edges.size];
+            int size = 0;
+            for (int a = 0; a < authorIds.length; a++) {
+                for (int e = authorEdges[a]; e < authorEdges[a + 1]; e++) {
+                    edgeAuthorRows[size] = authorRowOf == null ? a : authorRowOf[a];
+                    edgeBookRows[size] = bookRowOf == null ? edgeBooks[e] : bookRowOf[edgeBooks[e]];
+                    size++;
+                }
+            }
+            for (int i = 0; i < edges.size; i++) {
+                int author = Arrays.binarySearch(newAuthorIds, edges.authorIds[i]);
+                int book = Arrays.binarySearch(newBookIds, edges.bookIds[i]);
+                if (author < 0 || book < 0) continue;
+                edgeAuthorRows[size] = author;
+                edgeBookRows[size] = book;
+                size++;
+            }
+            newAuthorEdges = new int[newAuthorIds.length + 1];
+            newEdgeBooks = groupByAuthor(edgeAuthorRows, edgeBookRows, size, newAuthorEdges);
+        }
+        return new ColumnarTables(newBookIds, newYears, newPrices, newAuthorIds, newNames, newCountries,
+                newDictionary, newAuthorEdges, newEdgeBooks, semantics);
+    }
+
+    /** Builds the tables from full loads; {@code books} and {@code authors} must be in ascending id order. */
+    static ColumnarTables of(BookRows books, AuthorRows authors, EdgeRows edges, Semantics semantics) {
+        Dictionary dictionary = new Dictionary(semantics.countries(), new String[0]);
+        int[] authorCountries = new int[authors.size];
+        for (int i = 0; i < authors.size; i++) authorCountries[i] = dictionary.code(authors.countries[i]);
+        long[] bookIds = Arrays.copyOf(books.ids, books.size);
+        long[] authorIds = Arrays.copyOf(authors.ids, authors.size);
+
+        int[] edgeAuthorRows = new int[edges.size];
+        int[] edgeBookRows = new int[edges.size];
+        int size = 0;
+        for (int i = 0; i < edges.size; i++) {
+            int author = Arrays.binarySearch(authorIds, edges.authorIds[i]);
+            int book = Arrays.binarySearch(bookIds, edges.bookIds[i]);
+            // inserted after its table was read; the change event brings it in
+            if (author < 0 || book < 0) continue;
+            edgeAuthorRows[size] = author;
+            edgeBookRows[size] = book;
+            size++;
+        }
+        int[] authorEdges = new int[authorIds.length + 1];
+        int[] edgeBooks = groupByAuthor(edgeAuthorRows, edgeBookRows, size, authorEdges);
+
+        return new ColumnarTables(bookIds, Arrays.copyOf(books.years, books.size),
+                Arrays.copyOf(books.prices, books.size), authorIds, Arrays.copyOf(authors.names, authors.size),
+                authorCountries, dictionary.countries(), authorEdges, edgeBooks, semantics);
+    }
+
+    // --- reports -----------------------------------------------------------------------------------------------
+
+    /** {@link ReportService#yearlyStats} */
+    public List<YearlyStatsDTO> yearlyStats(int minPublishedYear) {
+        YearTotals totals = yearTotals();
+        List<YearlyStatsDTO> result = new ArrayList<>();
+        for (int year = maxYear; year >= Math.max(minYear, minPublishedYear); year--) {
+            int slot = year - minYear;
+            if (totals.books[slot] == 0) continue;
+            result.add(new YearlyStatsDTO(year, (int) totals.books[slot], average(totals.sums[slot], totals.priced[slot])));
+        }
+        return result;
+    }
+
+    /** {@link ReportService#reportBookByYear}; books without a year come first, as their own group. */
+    public List<BookYearReportDTO> bookByYear() {
+        YearTotals totals = yearTotals();
+        List<BookYearReportDTO> result = new ArrayList<>();
+        int nullSlot = totals.books.length - 1;
+        if (totals.books[nullSlot] > 0) {
+            result.add(new BookYearReportDTO(null, (int) totals.books[nullSlot], sum(totals.sums[nullSlot], totals.priced[nullSlot])));
+        }
+        for (int slot = 0; slot < nullSlot; slot++) {
+            if (totals.books[slot] == 0) continue;
+            result.add(new BookYearReportDTO(minYear + slot, (int) totals.books[slot], sum(totals.sums[slot], totals.priced[slot])));
+        }
+        return result;
+    }
+
+    /** {@link ReportService#getAuthorRankings} */
+    public List<AuthorRankingDTO> authorRankings() {
+        AuthorTotals totals = authorTotals();
+        Integer[] order = totals.byValue();
+
+        List<AuthorRankingDTO> result = new ArrayList<>(order.length);
+        int rank = 0;
+        for (int i = 0; i < order.length; i++) {
+            int a = order[i];
+            if (i == 0 || !sameValue(totals, a, order[i - 1])) rank = i + 1;
+            BigDecimal value = totals.value(a);
+            result.add(new AuthorRankingDTO(authorIds[a], authorNames[a], countries[authorCountries[a]],
+                    value == null ? null : value.doubleValue(), rank));
+        }
+        return result;
+    }
+
+    /** {@link ReportService#topAuthorsByAvgPrice} */
+    public List<AuthorReportDTO> topAuthorsByAvgPrice() {
+        AuthorTotals totals = authorTotals();
+        List<AuthorReportDTO> result = new ArrayList<>(TOP_AUTHORS);
+        for (int a : totals.topByAverage()) {
+            result.add(new AuthorReportDTO(authorIds[a], authorNames[a], totals.books[a], null, totals.average(a)));
+        }
+        return result;
+    }
+
+    /** {@link ReportService#rankCountriesByBookValue} */
+    public List<CountryRankingDTO> countryRankings() {
+        AuthorTotals totals = authorTotals();
+        long[] sums = new long[countries.length];
+        long[] priced = new long[countries.length];
+        boolean[] present = new boolean[countries.length];
+        for (int a = 0; a < authorIds.length; a++) {
+            if (totals.books[a] == 0) continue;
+            int country = authorCountries[a];
+            present[country] = true;
+            sums[country] += totals.sums[a];
+            priced[country] += totals.priced[a];
+        }
+
+        // in collation order, which the stable sort by value keeps for ties
+        List<CountryRankingDTO> result = new ArrayList<>();
+        for (int c : countryOrder) {
+            if (present[c]) result.add(new CountryRankingDTO(countries[c], sum(sums[c], priced[c]), 0));
+        }
+        result.sort(Comparator.comparing(CountryRankingDTO::getTotalValue, VALUE_DESC));
+        for (int i = 0; i < result.size(); i++) {
+            boolean tie = i > 0 && equal(result.get(i).getTotalValue(), result.get(i - 1).getTotalValue());
+            result.get(i).setRank(tie ? result.get(i - 1).getRank() : i + 1);
+        }
+        return result;
+    }
+
+    // --- scans -------------------------------------------------------------------------------------------------
+    // The tables never change, so each aggregate is scanned for once, on first use, and kept; benign races.
+
+    private static final Comparator<BigDecimal> VALUE_DESC = Comparator.nullsLast(Comparator.<BigDecimal>reverseOrder());
+
+    private volatile YearTotals yearTotals;
+    private volatile AuthorTotals authorTotals;
+
+    /** Per-year counts and price sums; the last slot is the {@code null} year. */
+    private record YearTotals(long[] books, long[] priced, long[] sums) {
+        YearTotals(int slots) {
+            this(new long[slots], new long[slots], new long[slots]);
+        }
+
+        YearTotals plus(YearTotals other) {
+            for (int i = 0; i < books.length; i++) {
+                books[i] += other.books[i];
+                priced[i] += other.priced[i];
+                sums[i] += other.sums[i];
+            }
+            return this;
+        }
+    }
+
+    private YearTotals yearTotals() {
+        YearTotals totals = yearTotals;
+        if (totals == null) yearTotals = totals = scanYears();
+        return totals;
+    }
+
+    private YearTotals scanYears() {
+        int slots = maxYear - minYear + 2;
+        return scan(bookIds.length, () -> new YearTotals(slots), (totals, from, to) -> {
+            for (int row = from; row < to; row++) {
+                int slot = years[row] == NULL_YEAR ? slots - 1 : years[row] - minYear;
+                totals.books[slot]++;
+                long price = prices[row];
+                if (price != NULL_PRICE) {
+                    totals.priced[slot]++;
+                    totals.sums[slot] += price;
+                }
+            }
+        }, YearTotals::plus);
+    }
+
+    /** Per-author book counts and price sums over the author's edges; each task fills its own rows. */
+    private final class AuthorTotals {
+        final int[] books = new int[authorIds.length];
+        final int[] priced = new int[authorIds.length];
+        final long[] sums = new long[authorIds.length];
+        private volatile Integer[] byValue;
+        private volatile List<Integer> topByAverage;
+
+        BigDecimal value(int author) {
+            return sum(sums[author], priced[author]);
+        }
+
+        BigDecimal average(int author) {
+            return ColumnarTables.this.average(sums[author], priced[author]);
+        }
+
+        /** Authors with books, by total value descending with null last, then id; sorted on the primitives. */
+        Integer[] byValue() {
+            Integer[] order = byValue;
+            if (order == null) {
+                order = withBooks();
+                Arrays.sort(order, (a, b) -> {
+                    if ((priced[a] == 0) != (priced[b] == 0)) return priced[a] == 0 ? 1 : -1;
+                    int byValue = Long.compare(sums[b], sums[a]);
+                    return byValue != 0 ? byValue : Long.compare(authorIds[a], authorIds[b]);
+                });
+                byValue = order;
+            }
+            return order;
+        }
+
+        /**
+         * The {@link #TOP_AUTHORS} first by average. The database orders by the average rounded to
+         * {@link #avgScale}, so averages that differ only beyond it tie and go by id. Rounding keeps the order
+         * of the exact averages, so only the first by exact average, and those rounding equal to the last of
+         * them, need rounding and re-sorting.
+         */
+        List<Integer> topByAverage() {
+            List<Integer> top = topByAverage;
+            if (top != null) return top;
+            Integer[] order = withBooks();
+            Arrays.sort(order, (a, b) -> {
+                if ((priced[a] == 0) != (priced[b] == 0)) return priced[a] == 0 ? 1 : -1;
+                if (priced[a] == 0) return 0;
+                return compareRatios(sums[b], priced[b], sums[a], priced[a]);
+            });
+
+            int candidates = Math.min(TOP_AUTHORS, order.length);
+            top = new ArrayList<>(Arrays.asList(order).subList(0, candidates));
+            if (candidates > 0) {
+                BigDecimal last = average(order[candidates - 1]);
+                while (candidates < order.length && equal(average(order[candidates]), last)) {
+                    top.add(order[candidates++]);
+                }
+            }
+            top.sort(Comparator.<Integer, BigDecimal>comparing(this::average, VALUE_DESC)
+                    .thenComparingLong(a -> authorIds[a]));
+            top = List.copyOf(top.subList(0, Math.min(TOP_AUTHORS, top.size())));
+            topByAverage = top;
+            return top;
+        }
+
+        private Integer[] withBooks() {
+            int count = 0;
+            for (int b : books) if (b > 0) count++;
+            Integer[] rows = new Integer[count];
+            for (int a = 0, i = 0; a < books.length; a++) {
+                if (books[a] > 0) rows[i++] = a;
+            }
+            return rows;
+        }
+    }
+
+    private AuthorTotals authorTotals() {
+        AuthorTotals totals = authorTotals;
+        if (totals == null) authorTotals = totals = scanAuthors();
+        return totals;
+    }
+
+    private AuthorTotals scanAuthors() {
+        AuthorTotals totals = new AuthorTotals();
+        return scan(authorIds.length, () -> totals, (t, from, to) -> {
+            for (int a = from; a < to; a++) {
+                int count = 0, priced = 0;
+                long sum = 0;
+                for (int e = authorEdges[a]; e < authorEdges[a + 1]; e++) {
+                    count++;
+                    long price = prices[edgeBooks[e]];
+                    if (price != NULL_PRICE) {
+                        priced++;
+                        sum += price;
+                    }
+                }
+                t.books[a] = count;
+                t.priced[a] = priced;
+                t.sums[a] = sum;
+            }
+        }, (left, right) -> left);
+    }
+
+    private boolean sameValue(AuthorTotals totals, int a, int b) {
+        return totals.priced[a] == 0 ? totals.priced[b] == 0 : totals.priced[b] != 0 && totals.sums[a] == totals.sums[b];
+    }
+
+    @FunctionalInterface
+    private interface RangeScan<A> {
+        void scan(A accumulator, int from, int to);
+    }
+
+    /** Scans {@code [0, size)} in {@link #LEAF}-sized pieces on the common fork-join pool and merges the results. */
+    private static <A> A scan(int size, Supplier<A> create, RangeScan<A> scan, BinaryOperator<A> merge) {
+        return ForkJoinPool.commonPool().invoke(new ScanTask<>(0, size, create, scan, merge));
+    }
+
+    private static final class ScanTask<A> extends RecursiveTask<A> {
+        private final int from;
+        private final int to;
+        private final Supplier<A> create;
+        private final RangeScan<A> scan;
+        private final BinaryOperator<A> merge;
+
+        ScanTask(int from, int to, Supplier<A> create, RangeScan<A> scan, BinaryOperator<A> merge) {
+            this.from = from;
+            this.to = to;
+            this.create = create;
+            this.scan = scan;
+            this.merge = merge;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= LEAF) {
+                A accumulator = create.get();
+                scan.scan(accumulator, from, to);
+                return accumulator;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask<A> left = new ScanTask<>(from, mid, create, scan, merge);
+            left.fork();
+            A right = new ScanTask<>(mid, to, create, scan, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+
+    // --- helpers -----------------------------------------------------------------------------------------------
+
+    private static BigDecimal sum(long sum, long priced) {
+        return priced == 0 ? null : BigDecimal.valueOf(sum, PRICE_SCALE);
+    }
+
+    private BigDecimal average(long sum, long priced) {
+        return priced == 0 ? null
+                : BigDecimal.valueOf(sum, PRICE_SCALE).divide(BigDecimal.valueOf(priced), avgScale, RoundingMode.HALF_UP);
+    }
+
+    /** Compares {@code n1 / d1} with {@code n2 / d2} exactly, for positive denominators. */
+    private static int compareRatios(long n1, long d1, long n2, long d2) {
+        long high1 = Math.multiplyHigh(n1, d2), high2 = Math.multiplyHigh(n2, d1);
+        return high1 != high2 ? Long.compare(high1, high2) : Long.compareUnsigned(n1 * d2, n2 * d1);
+    }
+
+    private static boolean equal(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    /**
+     * Merge of two ascending id arrays, as the source of each merged row: {@code i} for {@code existing[i]},
+     * {@code ~j} for {@code added[j]}.
+     */
+    private static int[] merge(long[] existing, long[] added) {
+        int[] source = new int[existing.length + added.length];
+        int i = 0, j = 0;
+        for (int row = 0; row < source.length; row++) {
+            source[row] = j == added.length || (i < existing.length && existing[i] < added[j]) ? i++ : ~j++;
+        }
+        return source;
+    }
+
+    /** Counting sort of the edges by author row; fills {@code authorEdges} and returns the book rows. */
+    private static int[] groupByAuthor(int[] authorRows, int[] bookRows, int size, int[] authorEdges) {
+        for (int e = 0; e < size; e++) authorEdges[authorRows[e] + 1]++;
+        for (int a = 1; a < authorEdges.length; a++) authorEdges[a] += authorEdges[a - 1];
+        int[] next = Arrays.copyOf(authorEdges, authorEdges.length - 1);
+        int[] edgeBooks = new int[size];
+        for (int e = 0; e < size; e++) edgeBooks[next[authorRows[e]]++] = bookRows[e];
+        return edgeBooks;
+    }
+
+    /** Country codes by collation key; a group keeps the spelling it was first seen with. */
+    private static final class Dictionary {
+        private final ColumnCollation collation;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> countries = new ArrayList<>();
+
+        Dictionary(ColumnCollation collation, String[] countries) {
+            this.collation = collation;
+            for (String country : countries) code(country);
+        }
+
+        int code(String country) {
+            return codes.computeIfAbsent(collation.key(country), key -> {
+                countries.add(country);
+                return countries.size() - 1;
+            });
+        }
+
+        String[] countries() {
+            return countries.toArray(String[]::new);
+        }
+    }
+
+    // --- row buffers -------------------------------------------------------------------------------------------
+
+    /** Growable column buffers the loader fills before building or changing the tables. */
+    static final class BookRows {
+        long[] ids;
+        int[] years;
+        long[] prices;
+        int size;
+
+        BookRows(int capacity) {
+            ids = new long[Math.max(capacity, 16)];
+            years = new int[ids.length];
+            prices = new long[ids.length];
+        }
+
+        void add(long id, Integer year, BigDecimal price) {
+            add(id, year == null ? NULL_YEAR : year, scalePrice(price));
+        }
+
+        void add(long id, int year, long price) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                years = Arrays.copyOf(years, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            ids[size] = id;
+            years[size] = year;
+            prices[size] = price;
+            size++;
+        }
+
+        long lastId() {
+            return size == 0 ? 0 : ids[size - 1];
+        }
+
+        void sort() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingLong(i -> ids[i]));
+            long[] sortedIds = new long[size];
+            int[] sortedYears = new int[size];
+            long[] sortedPrices = new long[size];
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedYears[i] = years[order[i]];
+                sortedPrices[i] = prices[order[i]];
+            }
+            ids = sortedIds;
+            years = sortedYears;
+            prices = sortedPrices;
+        }
+    }
+
+    static final class AuthorRows {
+        long[] ids;
+        String[] names;
+        String[] countries;
+        int size;
+
+        AuthorRows(int capacity) {
+            ids = new long[Math.max(capacity, 16)];
+            names = new String[ids.length];
+            countries = new String[ids.length];
+        }
+
+        void add(long id, String name, String country) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+                countries = Arrays.copyOf(countries, size * 2);
+            }
+            ids[size] = id;
+            names[size] = name;
+            countries[size] = country;
+            size++;
+        }
+
+        long lastId() {
+            return size == 0 ? 0 : ids[size - 1];
+        }
+
+        void sort() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingLong(i -> ids[i]));
+            long[] sortedIds = new long[size];
+            String[] sortedNames = new String[size];
+            String[] sortedCountries = new String[size];
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedNames[i] = names[order[i]];
+                sortedCountries[i] = countries[order[i]];
+            }
+            ids = sortedIds;
+            names = sortedNames;
+            countries = sortedCountries;
+        }
+    }
+
+    static final class EdgeRows {
+        long[] bookIds;
+        long[] authorIds;
+        int size;
+
+        EdgeRows(int capacity) {
+            bookIds = new long[Math.max(capacity, 16)];
+            authorIds = new long[bookIds.length];
+        }
+
+        void add(long bookId, long authorId) {
+            if (size == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, size * 2);
+                authorIds = Arrays.copyOf(authorIds, size * 2);
+            }
+            bookIds[size] = bookId;
+            authorIds[size] = authorId;
+            size++;
+        }
+    }
+}
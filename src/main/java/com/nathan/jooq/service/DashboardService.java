@@ -0,0 +1,152 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.config.ReadWriteRoutingDataSource;
+import com.nathan.jooq.dto.DashboardDTO;
+import com.nathan.jooq.dto.DashboardReport;
+import com.nathan.jooq.dto.DashboardSection;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.conf.SettingsTools;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Serves several reports in one call ({@code GET /reports/dashboard}).
+ * <p>
+ * Reports the fresh {@link ReportSnapshot} covers are answered from memory, as on {@code /reports/*}. The rest
+ * run concurrently, each on its own pooled connection, on a bounded executor, so the dashboard takes about as long
+ * as its slowest live report. Whatever has not finished by the timeout is reported as {@code TIMEOUT}. A failed
+ * report is reported as {@code FAILED}. Neither affects the other sections.
+ */
+@Slf4j
+@Service
+public class DashboardService {
+    private final ReportService reports;
+    private final ReportSnapshotService snapshots;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+
+    public DashboardService(DSLContext ctx,
+                            ReportSnapshotService snapshots,
+                            @Value("${app.reports.dashboard.threads:7}") int threads,
+                            @Value("${app.reports.dashboard.queue-capacity:64}") int queueCapacity,
+                            @Value("${app.reports.dashboard.timeout:5s}") Duration timeout) {
+        // the JDBC query timeout makes the database give up on a timed-out report too, instead of the query
+        // holding its connection after nobody is waiting for it any more (whole seconds only, so rounded up).
+        // Settings are mutable and shared with every other DSLContext user, hence the clone
+        int queryTimeoutSeconds = (int) Math.max(1, (timeout.toMillis() + 999) / 1000);
+        this.reports = new ReportService(DSL.using(ctx.configuration()
+                .derive(SettingsTools.clone(ctx.settings()).withQueryTimeout(queryTimeoutSeconds))));
+        this.snapshots = snapshots;
+        this.timeout = timeout;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "dashboard-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private record Source(Function<ReportSnapshot, List<?>> fromSnapshot, Supplier<List<?>> live) {
+    }
+
+    /**
+     * @param selected the reports to include; {@code null} or empty means all of them
+     */
+    public DashboardDTO dashboard(Collection<DashboardReport> selected, int minPublishedYear, int yearsThreshold) {
+        long started = System.nanoTime();
+        LocalDateTime asOf = LocalDateTime.now();
+        ReportSnapshot snapshot = snapshots.freshSnapshot();
+
+        Map<DashboardReport, DashboardSection> sections = new EnumMap<>(DashboardReport.class);
+        Map<DashboardReport, CompletableFuture<DashboardSection>> pending = new EnumMap<>(DashboardReport.class);
+        for (DashboardReport report : selected == null || selected.isEmpty()
+                ? EnumSet.allOf(DashboardReport.class) : EnumSet.copyOf(selected)) {
+            Source source = source(report, minPublishedYear, yearsThreshold);
+            if (snapshot != null && source.fromSnapshot() != null) {
+                sections.put(report, new DashboardSection(DashboardSection.Status.OK, "snapshot",
+                        snapshot.refreshedAt(), 0, source.fromSnapshot().apply(snapshot), null));
+            } else {
+                pending.put(report, submit(source.live(), asOf));
+            }
+        }
+
+        // all live reports started together, so one deadline is a per-report timeout
+        long deadline = started + timeout.toNanos();
+        pending.forEach((report, future) -> sections.put(report, await(report, future, deadline, asOf)));
+        return new DashboardDTO(asOf, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), sections);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Source source(DashboardReport report, int minPublishedYear, int yearsThreshold) {
+        return switch (report) {
+            case YEARLY_STATS -> new Source(s -> s.yearlyStats(minPublishedYear),
+                    () -> reports.yearlyStats(minPublishedYear));
+            case AUTHOR_BOOK_VALUE -> new Source(ReportSnapshot::authorBookValue, reports::reportAuthorBookValue);
+            case BOOKS_BY_YEAR -> new Source(ReportSnapshot::bookByYear, reports::reportBookByYear);
+            case TOP_AUTHORS_BY_AVG_PRICE -> new Source(ReportSnapshot::topAuthorsByAvgPrice, reports::topAuthorsByAvgPrice);
+            case COUNTRY_RANKINGS -> new Source(ReportSnapshot::countryRankings, reports::rankCountriesByBookValue);
+            // not part of the snapshot
+            case INACTIVE_AUTHORS -> new Source(null, () -> reports.findInactiveAuthors(yearsThreshold));
+            case AUTHOR_RANKINGS -> new Source(ReportSnapshot::authorRankings, reports::getAuthorRankings);
+        };
+    }
+
+    private CompletableFuture<DashboardSection> submit(Supplier<List<?>> live, LocalDateTime asOf) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long started = System.nanoTime();
+                // not a proxied ReportService, so the read-only routing has to be asked for explicitly
+                List<?> rows = ReadWriteRoutingDataSource.onReplica(live);
+                return new DashboardSection(DashboardSection.Status.OK, "live", asOf,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), rows, null);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(new DashboardSection(DashboardSection.Status.FAILED, "live", asOf,
+                    0, null, "Too many dashboard reports in progress"));
+        }
+    }
+
+    private DashboardSection await(DashboardReport report, CompletableFuture<DashboardSection> future,
+                                   long deadline, LocalDateTime asOf) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // only drops the result: a running query is stopped by its JDBC query timeout, not by cancel()
+            future.cancel(true);
+            log.warn("Dashboard report {} did not finish within {}", report, timeout);
+            return new DashboardSection(DashboardSection.Status.TIMEOUT, "live", asOf, timeout.toMillis(), null,
+                    "No result within " + timeout);
+        } catch (ExecutionException e) {
+            log.warn("Dashboard report {} failed", report, e.getCause());
+            return new DashboardSection(DashboardSection.Status.FAILED, "live", asOf, 0, null,
+                    String.valueOf(e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new DashboardSection(DashboardSection.Status.FAILED, "live", asOf, 0, null, "Interrupted");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.nathan.jooq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.AuthorRankingDTO;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.export.CsvRowWriter;
+import com.nathan.jooq.export.ExportFormat;
+import com.nathan.jooq.export.NdjsonRowWriter;
+import com.nathan.jooq.export.RowWriter;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streams large result sets straight from a database cursor to an output stream.
+ * Memory use is bounded by the JDBC fetch size and the write buffer, not by the result size.
+ */
+@Service
+public class ExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final List<String> BOOK_COLUMNS =
+            List.of("id", "title", "isbn", "published_year", "price", "created_at", "authors");
+    private static final List<String> AUTHOR_RANKING_COLUMNS =
+            List.of("id", "name", "country", "total_value", "rank");
+
+    private final BookService bookService;
+    private final ReportService reportService;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ExportService(BookService bookService, ReportService reportService, ObjectMapper objectMapper,
+                         DSLContext ctx, @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.bookService = bookService;
+        this.reportService = reportService;
+        this.objectMapper = objectMapper;
+        this.fetchSize = streamingFetchSize(ctx.dialect(), fetchSize);
+    }
+
+    /**
+     * MySQL's driver reads a whole result into memory unless the statement streams it, which it does row by row
+     * for a fetch size of {@link Integer#MIN_VALUE}. Set on the export statements alone, this leaves every other
+     * query fetching as before; other databases honour {@code fetchSize} as it is.
+     */
+    static int streamingFetchSize(SQLDialect dialect, int fetchSize) {
+        return dialect.family() == SQLDialect.MYSQL ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    public void exportBooks(String authorName, Integer publishedYear, BigDecimal minPrice, BigDecimal maxPrice,
+                            ExportFormat format, OutputStream out) throws IOException {
+        try (RowWriter<BookDTO> writer = writer(format, out, BOOK_COLUMNS, b -> Arrays.asList(
+                b.id(), b.title(), b.isbn(), b.publishedYear(), b.price(), b.createdAt(),
+                b.authors().stream().map(AuthorDTO::name).collect(Collectors.joining(";"))))) {
+            bookService.forEachMatching(authorName, publishedYear, minPrice, maxPrice, fetchSize, writer.asConsumer());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void exportAuthorRankings(ExportFormat format, OutputStream out) throws IOException {
+        try (RowWriter<AuthorRankingDTO> writer = writer(format, out, AUTHOR_RANKING_COLUMNS, r -> Arrays.asList(
+                r.id(), r.name(), r.country(), r.totalValue(), r.rank()))) {
+            reportService.forEachAuthorRanking(fetchSize, writer.asConsumer());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <T> RowWriter<T> writer(ExportFormat format, OutputStream out,
+                                    List<String> csvHeader, Function<T, List<?>> csvColumns) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        return switch (format) {
+            case NDJSON -> new NdjsonRowWriter<>(objectMapper, buffered);
+            case CSV -> new CsvRowWriter<>(buffered, csvHeader, csvColumns);
+        };
+    }
+}
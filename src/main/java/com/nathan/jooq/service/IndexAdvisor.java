@@ -0,0 +1,170 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.BookCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+
+/**
+ * Runs {@code EXPLAIN} on the SQL the application generates for its search and report access paths and flags
+ * full table scans, filesorts and temporary tables ({@code /actuator/indexadvice}, or logged once after startup
+ * with {@code app.db.index-advisor.on-startup=true}).
+ * <p>
+ * The queries are built by {@link BookSearchQueries} and {@link ReportService} themselves, with representative
+ * filter values, so a change to either shows up here. MySQL plans are read from the tabular {@code EXPLAIN};
+ * full scans of tables estimated below {@code min-rows} are not flagged. H2 plans only say which index (or
+ * {@code tableScan}) each table is read through and whether the order comes from an index.
+ */
+@Slf4j
+@Service
+public class IndexAdvisor {
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\* (\\S+)\\.tableScan");
+
+    public record Advice(String query, List<String> problems, List<String> plan) {
+    }
+
+    private final DSLContext ctx;
+    private final BookSearchQueries search;
+    private final ReportService reports;
+    private final long minRows;
+    private final boolean onStartup;
+
+    public IndexAdvisor(DSLContext ctx, BookSearchQueries search,
+                        @Value("${app.db.index-advisor.min-rows:1000}") long minRows,
+                        @Value("${app.db.index-advisor.on-startup:false}") boolean onStartup) {
+        this.ctx = ctx;
+        this.search = search;
+        // the query builders only, so no transactional proxy needed
+        this.reports = new ReportService(ctx);
+        this.minRows = minRows;
+        this.onStartup = onStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (onStartup) {
+            // off the startup thread, so startup neither waits for nor fails on the database
+            Thread.ofPlatform().daemon().name("index-advisor").start(this::logAdvice);
+        }
+    }
+
+    void logAdvice() {
+        try {
+            for (Advice advice : advise()) {
+                if (!advice.problems().isEmpty()) {
+                    log.warn("Index advice for {}: {}", advice.query(), advice.problems());
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Index advisor could not explain the queries", e);
+        }
+    }
+
+    public List<Advice> advise() {
+        List<Advice> advice = new ArrayList<>();
+        queries().forEach((name, query) -> advice.add(explain(name, query)));
+        return advice;
+    }
+
+    Map<String, Query> queries() {
+        BigDecimal minPrice = new BigDecimal("20");
+        BigDecimal maxPrice = new BigDecimal("150");
+        int year = LocalDateTime.now().getYear() - 10;
+        BookCursor cursor = new BookCursor(LocalDateTime.now(), Long.MAX_VALUE);
+
+        Map<String, Query> queries = new LinkedHashMap<>();
+        queries.put("search", search.page(null, null, null, null, false, 10, 0));
+        queries.put("search.year", search.page(null, year, null, null, false, 10, 0));
+        queries.put("search.price", search.page(null, null, minPrice, maxPrice, false, 10, 0));
+        queries.put("search.year-price", search.page(null, year, minPrice, maxPrice, false, 10, 0));
+        queries.put("search.count.year-price", search.count(null, year, minPrice, maxPrice));
+        queries.put("search.cursor", search.scan(null, null, null, null, cursor, 10));
+        queries.put("book.by-title", ctx.select(BOOK.ID, BOOK.TITLE).from(BOOK).where(BOOK.TITLE.in("A title")));
+        queries.put("report.yearly-stats", reports.yearlyStatsQuery(year));
+        queries.put("report.author-book-value", reports.authorBookValueQuery());
+        queries.put("report.books-by-year", reports.bookByYearQuery());
+        queries.put("report.top-authors-by-avg-price", reports.topAuthorsByAvgPriceQuery());
+        queries.put("report.country-rankings", reports.countryRankingsQuery());
+        queries.put("report.inactive-authors", reports.inactiveAuthorsQuery(2));
+        queries.put("report.author-rankings", reports.authorRankingsQuery());
+        return queries;
+    }
+
+    Advice explain(String name, Query query) {
+        List<Record> plan = ctx.fetch("EXPLAIN " + ctx.renderInlined(query));
+        return ctx.dialect().family() == SQLDialect.H2 ? fromH2(name, plan) : fromMySQL(name, plan);
+    }
+
+    private Advice fromMySQL(String name, List<Record> plan) {
+        List<String> problems = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        for (Record row : plan) {
+            String table = column(row, "table");
+            String type = column(row, "type");
+            String key = column(row, "key");
+            String extra = column(row, "Extra");
+            long rows = column(row, "rows") == null ? 0 : Long.parseLong(column(row, "rows"));
+            lines.add(table + ": " + type + (key == null ? "" : " using " + key) + ", ~" + rows + " rows"
+                    + (extra == null ? "" : ", " + extra));
+
+            // <derivedN>, <subqueryN>, <unionM,N>: intermediate results, not tables an index could help with
+            if (table == null || table.startsWith("<")) {
+                continue;
+            }
+            if ("ALL".equals(type) && rows >= minRows) {
+                problems.add("full scan of " + table + " (~" + rows + " rows)");
+            }
+            if (extra != null && extra.contains("Using filesort")) {
+                problems.add("filesort on " + table);
+            }
+            if (extra != null && extra.contains("Using temporary")) {
+                problems.add("temporary table for " + table);
+            }
+        }
+        return new Advice(name, problems, lines);
+    }
+
+    private static Advice fromH2(String name, List<Record> plan) {
+        String text = plan.isEmpty() ? "" : String.valueOf(plan.get(0).get(0));
+        List<String> problems = new ArrayList<>();
+        Matcher scan = H2_TABLE_SCAN.matcher(text);
+        while (scan.find()) {
+            problems.add("full scan of " + scan.group(1));
+        }
+        // only the outermost ORDER BY: nested ones belong to subqueries
+        int orderBy = text.lastIndexOf("\nORDER BY");
+        if (orderBy >= 0 && !text.substring(orderBy).contains("index sorted")) {
+            problems.add("sort without an index");
+        }
+        return new Advice(name, problems, List.of(text.split("\n")));
+    }
+
+    private static String column(Record row, String name) {
+        for (Field<?> field : row.fields()) {
+            if (field.getName().equalsIgnoreCase(name)) {
+                Object value = row.get(field);
+                return value == null ? null : value.toString();
+            }
+        }
+        return null;
+    }
+}
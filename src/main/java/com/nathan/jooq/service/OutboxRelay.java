@@ -0,0 +1,288 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.event.ChangeEvent;
+import com.nathan.jooq.event.ChangeEventSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.BatchBindStep;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.nathan.jooq.generated.Tables.OUTBOX_EVENT;
+
+/**
+ * Delivers the {@link ChangeOutbox} events at least once and in commit order. Each batch goes to every
+ * {@link ChangeEventSink} bean, then event by event to the in-process {@code @EventListener}s of {@link ChangeEvent}.
+ * It is marked published only once all of them returned.
+ * <p>
+ * Ids are assigned at insert, so a transaction that commits late leaves a lower id behind events already relayed.
+ * The relay therefore numbers the events itself. Every drain gives the committed events it has not numbered yet the
+ * next {@link ChangeEvent#sequence()}s, in id order, and delivers by sequence. An event is numbered once, when the
+ * relay first sees it committed, so it is never delivered before an event with a lower sequence. Run the relay on
+ * one instance only ({@code app.outbox.relay.enabled}); {@code uk_outbox_event_seq} makes a second numbering relay
+ * fail instead of interleaving.
+ * <p>
+ * Every {@code linger} the relay drains the outbox in batches of {@code batch-size}, until a batch comes back short.
+ * It polls on a thread of its own, not on the scheduler shared with the report and index reloads. After a failed
+ * batch the next poll waits, doubling from {@code linger} up to {@code max-backoff}. Once the first event has failed
+ * {@code max-attempts} times it is retried alone. If it fails alone and the event after it goes through, it is
+ * dead-lettered ({@code dead_lettered_at}) and left in the table, so one bad event cannot hold up the rest. If both
+ * fail, the sink is taken to be down and nothing is dead-lettered.
+ * <p>
+ * Metrics: {@code outbox.events.published}, {@code outbox.delivery.failures}, {@code outbox.dead.lettered},
+ * {@code outbox.lag} (write to delivery, per event) and {@code outbox.oldest.age} (seconds the oldest undelivered
+ * event has waited, as of the last poll).
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private record Pending(ChangeEvent event, int attempts) {
+    }
+
+    private final DSLContext ctx;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<ChangeEventSink> sinks;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration linger;
+    private final int maxAttempts;
+    private final Duration maxBackoff;
+    private final Duration retention;
+
+    private final Counter published;
+    private final Counter failures;
+    private final Counter deadLettered;
+    private final Timer lag;
+    private final AtomicLong oldestCreatedAtMillis = new AtomicLong();
+    // one drain at a time, so batches go out in order
+    private final Lock draining = new ReentrantLock();
+    // both only touched while draining
+    private int consecutiveFailures;
+    private volatile long backoffUntilMillis;
+    private volatile ScheduledExecutorService poller;
+
+    public OutboxRelay(DSLContext ctx, ApplicationEventPublisher eventPublisher, ObjectProvider<ChangeEventSink> sinks,
+                       MeterRegistry registry,
+                       @Value("${app.outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${app.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${app.outbox.relay.linger:200ms}") Duration linger,
+                       @Value("${app.outbox.relay.max-attempts:10}") int maxAttempts,
+                       @Value("${app.outbox.relay.max-backoff:1m}") Duration maxBackoff,
+                       @Value("${app.outbox.retention:1d}") Duration retention) {
+        this.ctx = ctx;
+        this.eventPublisher = eventPublisher;
+        this.sinks = sinks;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.linger = linger;
+        this.maxAttempts = maxAttempts;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+        this.published = Counter.builder("outbox.events.published")
+                .description("Outbox events delivered to every sink and listener")
+                .register(registry);
+        this.failures = Counter.builder("outbox.delivery.failures")
+                .description("Deliveries left unpublished because a sink or listener failed")
+                .register(registry);
+        this.deadLettered = Counter.builder("outbox.dead.lettered")
+                .description("Outbox events set aside after failing on their own max-attempts times")
+                .register(registry);
+        this.lag = Timer.builder("outbox.lag")
+                .description("Time from writing an outbox event to delivering it")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("outbox.oldest.age", oldestCreatedAtMillis, OutboxRelay::ageSeconds)
+                .description("Seconds the oldest undelivered outbox event has waited, as of the last poll")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || poller != null) return;
+        poller = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("outbox-relay").daemon().factory());
+        poller.scheduleWithFixedDelay(this::poll, linger.toMillis(), linger.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService running = poller;
+        poller = null;
+        if (running != null) running.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return poller != null;
+    }
+
+    void poll() {
+        if (System.currentTimeMillis() < backoffUntilMillis) return;
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed; retrying on the next poll", e);
+        }
+    }
+
+    /**
+     * Numbers and delivers events until the outbox is empty or a delivery fails. Ignores the backoff.
+     *
+     * @return events delivered
+     */
+    public int drain() {
+        draining.lock();
+        try {
+            int delivered = 0;
+            while (true) {
+                sequence();
+                List<Pending> batch = ctx.selectFrom(OUTBOX_EVENT)
+                        .where(OUTBOX_EVENT.PUBLISHED_AT.isNull())
+                        .and(OUTBOX_EVENT.SEQ.isNotNull())
+                        .and(OUTBOX_EVENT.DEAD_LETTERED_AT.isNull())
+                        .orderBy(OUTBOX_EVENT.SEQ)
+                        .limit(batchSize)
+                        .fetch(r -> new Pending(new ChangeEvent(r.getId(), r.getSeq(), r.getAggregateType(),
+                                r.getAggregateId(), r.getEventType(), r.getPayload(), r.getCreatedAt()), r.getAttempts()));
+                oldestCreatedAtMillis.set(batch.isEmpty() ? 0 : millis(batch.getFirst().event().createdAt()));
+                if (batch.isEmpty()) return delivered;
+
+                if (batch.getFirst().attempts() >= maxAttempts) {
+                    int isolated = isolate(batch);
+                    if (isolated < 0) return delivered;
+                    delivered += isolated;
+                    continue;
+                }
+                List<ChangeEvent> events = batch.stream().map(Pending::event).toList();
+                if (!deliver(events)) return delivered;
+                delivered += events.size();
+                if (batch.size() < batchSize) {
+                    oldestCreatedAtMillis.set(0);
+                    return delivered;
+                }
+            }
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    /** Gives up to a batch of committed, unnumbered events the next sequences, in id order. */
+    private void sequence() {
+        List<Long> ids = ctx.select(OUTBOX_EVENT.ID)
+                .from(OUTBOX_EVENT)
+                .where(OUTBOX_EVENT.SEQ.isNull())
+                .orderBy(OUTBOX_EVENT.ID)
+                .limit(batchSize)
+                .fetch(OUTBOX_EVENT.ID);
+        if (ids.isEmpty()) return;
+        ctx.transaction(tx -> {
+            DSLContext dsl = tx.dsl();
+            // the purge keeps the highest numbered event, so this never goes back
+            Long last = dsl.select(DSL.max(OUTBOX_EVENT.SEQ)).from(OUTBOX_EVENT).fetchOne(0, Long.class);
+            long next = last == null ? 1 : last + 1;
+            BatchBindStep numbering = dsl.batch(dsl.update(OUTBOX_EVENT)
+                    .set(OUTBOX_EVENT.SEQ, DSL.param("seq", OUTBOX_EVENT.SEQ))
+                    .where(OUTBOX_EVENT.ID.eq(DSL.param("id", OUTBOX_EVENT.ID))));
+            for (Long id : ids) numbering.bind(Map.of("seq", next++, "id", id));
+            numbering.execute();
+        });
+    }
+
+    /**
+     * The first event has failed {@code max-attempts} times: delivers it alone, and if that fails, the next one alone
+     * to tell a bad event from a sink that is down.
+     *
+     * @return events delivered, or -1 to stop draining
+     */
+    private int isolate(List<Pending> batch) {
+        ChangeEvent first = batch.getFirst().event();
+        if (deliver(List.of(first))) return 1;
+        // a single bad event cannot be told from an outage until another event is waiting behind it
+        if (batch.size() == 1 || !deliver(List.of(batch.get(1).event()))) return -1;
+
+        ctx.update(OUTBOX_EVENT)
+                .set(OUTBOX_EVENT.DEAD_LETTERED_AT, LocalDateTime.now())
+                .where(OUTBOX_EVENT.ID.eq(first.id()))
+                .execute();
+        deadLettered.increment();
+        log.error("Outbox event {} (seq {}, {} {} {}) failed {} times and was dead-lettered", first.id(),
+                first.sequence(), first.type(), first.aggregateType(), first.aggregateId(), batch.getFirst().attempts() + 1);
+        return 1;
+    }
+
+    /** Deletes events published longer than the retention ago, except the highest numbered one. */
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval:1h}")
+    public void purge() {
+        Long last = ctx.select(DSL.max(OUTBOX_EVENT.SEQ)).from(OUTBOX_EVENT).fetchOne(0, Long.class);
+        if (last == null) return;
+        int deleted = ctx.deleteFrom(OUTBOX_EVENT)
+                .where(OUTBOX_EVENT.PUBLISHED_AT.lt(LocalDateTime.now().minus(retention)))
+                .and(OUTBOX_EVENT.SEQ.lt(last))
+                .execute();
+        if (deleted > 0) log.debug("Purged {} published outbox events", deleted);
+    }
+
+    /** Delivers and marks published, or counts the failed attempt and backs off. */
+    private boolean deliver(List<ChangeEvent> events) {
+        List<Long> ids = events.stream().map(ChangeEvent::id).toList();
+        try {
+            for (ChangeEventSink sink : sinks) sink.publish(events);
+            events.forEach(eventPublisher::publishEvent);
+        } catch (Exception e) {
+            failures.increment();
+            consecutiveFailures++;
+            long backoff = Math.min(maxBackoff.toMillis(), linger.toMillis() << Math.min(consecutiveFailures, 20));
+            backoffUntilMillis = System.currentTimeMillis() + backoff;
+            log.warn("Delivery of outbox events seq {}..{} failed; retrying in {} ms",
+                    events.getFirst().sequence(), events.getLast().sequence(), backoff, e);
+            ctx.update(OUTBOX_EVENT)
+                    .set(OUTBOX_EVENT.ATTEMPTS, OUTBOX_EVENT.ATTEMPTS.plus(DSL.inline(1)))
+                    .where(OUTBOX_EVENT.ID.in(ids))
+                    .execute();
+            return false;
+        }
+
+        consecutiveFailures = 0;
+        backoffUntilMillis = 0;
+        LocalDateTime now = LocalDateTime.now();
+        ctx.update(OUTBOX_EVENT)
+                .set(OUTBOX_EVENT.PUBLISHED_AT, now)
+                // by id, not range: events are published out of id order
+                .where(OUTBOX_EVENT.ID.in(ids))
+                .execute();
+        for (ChangeEvent event : events) lag.record(Duration.between(event.createdAt(), now));
+        published.increment(events.size());
+        return true;
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static double ageSeconds(AtomicLong oldestCreatedAtMillis) {
+        long oldest = oldestCreatedAtMillis.get();
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest) / 1000.0;
+    }
+}
@@ -0,0 +1,203 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.event.BooksChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.BatchBindStep;
+import org.jooq.DSLContext;
+import org.jooq.Param;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+
+/**
+ * Group commit for single-book price updates ({@code app.books.price-update.coalescing.enabled}).
+ * <p>
+ * Updates go into a lock-free queue. One flusher thread waits until the oldest queued update is {@code window} old,
+ * or {@code max-batch} updates are queued, then takes up to {@code max-batch} of them. Updates to the same book are
+ * coalesced: the last one queued wins. The result is written as one JDBC batch of {@code UPDATE}s in one transaction.
+ * Like {@link PriceUpdater}, a book whose price is unchanged is not written.
+ * <p>
+ * Durability: a future completes only after the transaction with its update has committed. The value written
+ * for its book may come from a later update in the same flush. If the flush fails, every future of that flush
+ * fails and none of its updates is written. An unknown book fails only its own futures. Updates still queued
+ * when the process dies are lost: their futures never completed, so no caller was told they were saved. On
+ * shutdown the queue is flushed first.
+ */
+@Slf4j
+@Component
+public class PriceUpdateCoalescer {
+
+    private record Pending(Long id, BigDecimal price, CompletableFuture<Long> done, long queuedAt) {
+    }
+
+    private final DSLContext ctx;
+    private final ChangeOutbox outbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final int maxPending;
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread flusher;
+    private volatile boolean running = true;
+    // set by the flusher before it parks with nothing queued; the submit that finds it set wakes it
+    private final AtomicBoolean idle = new AtomicBoolean();
+
+    public PriceUpdateCoalescer(DSLContext ctx, ChangeOutbox outbox, ApplicationEventPublisher eventPublisher,
+                                @Value("${app.books.price-update.coalescing.enabled:false}") boolean enabled,
+                                @Value("${app.books.price-update.coalescing.window:5ms}") Duration window,
+                                @Value("${app.books.price-update.coalescing.max-batch:1000}") int maxBatch,
+                                @Value("${app.books.price-update.coalescing.max-pending:100000}") int maxPending) {
+        this.ctx = ctx;
+        this.outbox = outbox;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+        this.maxPending = maxPending;
+        this.flusher = new Thread(this::run, "price-update-coalescer");
+        flusher.setDaemon(true);
+        if (enabled) flusher.start();
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @return completes with {@code id} once the update is committed; fails with {@link NoSuchElementException}
+     * for an unknown book, {@link RejectedExecutionException} when {@code max-pending} updates are already queued,
+     * or the exception that failed the flush
+     */
+    public CompletableFuture<Long> submit(Long id, BigDecimal newPrice) {
+        if (!enabled || !running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Price update coalescing is not running"));
+        }
+        int queued = pending.incrementAndGet();
+        if (queued > maxPending) {
+            pending.decrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Too many price updates queued (" + maxPending + ")"));
+        }
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        queue.add(new Pending(id, newPrice, done, System.nanoTime()));
+        // start the window on an idle flusher, or cut it short once a batch is full
+        if (idle.compareAndSet(true, false) || queued >= maxBatch) LockSupport.unpark(flusher);
+        return done;
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            Pending oldest = queue.peek();
+            if (oldest == null) {
+                // flag first, then look again: an update queued in between either is seen here or finds the flag
+                idle.set(true);
+                if (queue.isEmpty() && running) LockSupport.park(this);
+                idle.set(false);
+                continue;
+            }
+            long wait = oldest.queuedAt + windowNanos - System.nanoTime();
+            if (running && wait > 0 && pending.get() < maxBatch) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            flush();
+        }
+    }
+
+    private void flush() {
+        List<Pending> batch = new ArrayList<>(Math.min(pending.get(), maxBatch));
+        Pending next;
+        while (batch.size() < maxBatch && (next = queue.poll()) != null) batch.add(next);
+        pending.addAndGet(-batch.size());
+
+        // queue order is arrival order, so the last put wins
+        Map<Long, BigDecimal> prices = new LinkedHashMap<>();
+        for (Pending p : batch) prices.put(p.id(), p.price());
+
+        Set<Long> missing = new HashSet<>(prices.keySet());
+        List<Long> changed = new ArrayList<>();
+        try {
+            ctx.transaction(tx -> {
+                DSLContext dsl = tx.dsl();
+                List<Long> ids = new ArrayList<>(prices.keySet());
+                dsl.select(BOOK.ID).from(BOOK).where(BOOK.ID.in(ids)).fetch(BOOK.ID).forEach(missing::remove);
+
+                Param<BigDecimal> price = DSL.param("price", BOOK.PRICE);
+                BatchBindStep updates = dsl.batch(dsl.update(BOOK)
+                        .set(BOOK.PRICE, price)
+                        .set(BOOK.VERSION, BOOK.VERSION.plus(DSL.inline(1)))
+                        .set(BOOK.UPDATED_AT, DSL.param("now", BOOK.UPDATED_AT))
+                        .where(BOOK.ID.eq(DSL.param("id", BOOK.ID)))
+                        .and(BOOK.PRICE.isDistinctFrom(price)));
+                LocalDateTime now = LocalDateTime.now();
+                ids.removeAll(missing);
+                if (ids.isEmpty()) return;
+                for (Long id : ids) updates.bind(Map.of("price", prices.get(id), "now", now, "id", id));
+                int[] counts = updates.execute();
+                for (int i = 0; i < counts.length; i++) {
+                    // 0: the price was already right; a rewritten MySQL batch reports SUCCESS_NO_INFO instead of 1
+                    if (counts[i] != 0) changed.add(ids.get(i));
+                }
+                if (!changed.isEmpty()) outbox.booksRepriced(dsl, changed);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Flush of {} coalesced price updates ({} books) rolled back", batch.size(), prices.size(), e);
+            batch.forEach(p -> p.done().completeExceptionally(e));
+            return;
+        }
+
+        log.debug("Flushed {} price updates as {} books, {} changed", batch.size(), prices.size(), changed.size());
+        // before completing: a caller reading its book once the future completes must not get the cached old copy
+        try {
+            if (!changed.isEmpty()) eventPublisher.publishEvent(new BooksChangedEvent(changed));
+        } catch (RuntimeException e) {
+            // committed; a listener failing must not stop the flusher
+            log.warn("A BooksChangedEvent listener failed after a coalesced price flush", e);
+        }
+        for (Pending p : batch) {
+            if (missing.contains(p.id())) {
+                p.done().completeExceptionally(new NoSuchElementException("Book not found with id: " + p.id()));
+            } else {
+                p.done().complete(p.id());
+            }
+        }
+    }
+
+    /** Stops taking updates and flushes the ones already queued. */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (!enabled) return;
+        LockSupport.unpark(flusher);
+        flusher.join();
+        // submitted while stopping, after the flusher's last look at the queue
+        Pending late;
+        while ((late = queue.poll()) != null) {
+            late.done().completeExceptionally(new RejectedExecutionException("Price update coalescing has stopped"));
+        }
+    }
+}
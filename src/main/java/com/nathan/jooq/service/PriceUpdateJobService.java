@@ -0,0 +1,271 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.PriceUpdateJobDTO;
+import com.nathan.jooq.dto.PriceUpdateJobStatus;
+import com.nathan.jooq.dto.UpdateBookPriceRequest;
+import com.nathan.jooq.event.BooksChangedEvent;
+import com.nathan.jooq.generated.tables.records.PriceUpdateJobRecord;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static com.nathan.jooq.generated.Tables.PRICE_UPDATE_JOB;
+import static com.nathan.jooq.generated.Tables.PRICE_UPDATE_JOB_BOOK;
+
+/**
+ * Job-style variant of {@link BookService#updateBookPriceByAuthor}, for repricing too many books to lock at once.
+ * <p>
+ * Submitting resolves the target book ids once into {@code price_update_job_book}. A background worker then walks
+ * them in {@code book_id} order, one chunk per short transaction. Each transaction advances the job's
+ * {@code last_book_id} together with the price update, so a book is repriced exactly once even if the process
+ * dies mid-job. Unfinished jobs are resumed on startup. Advancing is conditional on the previous
+ * {@code last_book_id}, so if two instances ever run the same job, only one applies each chunk.
+ */
+@Slf4j
+@Service
+public class PriceUpdateJobService {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final DSLContext ctx;
+    private final BookService bookService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeOutbox outbox;
+    private final int defaultChunkSize;
+    private final Duration chunkPause;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "price-update-job"));
+
+    public PriceUpdateJobService(DSLContext ctx,
+                                 BookService bookService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 ChangeOutbox outbox,
+                                 @Value("${app.books.price-job.chunk-size:500}") int defaultChunkSize,
+                                 @Value("${app.books.price-job.chunk-pause:0ms}") Duration chunkPause) {
+        this.ctx = ctx;
+        this.bookService = bookService;
+        this.eventPublisher = eventPublisher;
+        this.outbox = outbox;
+        this.defaultChunkSize = defaultChunkSize;
+        this.chunkPause = chunkPause;
+    }
+
+    public PriceUpdateJobDTO submit(UpdateBookPriceRequest req, Integer chunkSize) throws BadRequestException {
+        if (req.getPercent() == null) {
+            throw new BadRequestException("percent is required");
+        }
+        Condition authors = bookService.authorCondition(req.getAuthorName(), req.getAuthorCountry());
+        if (authors == null) {
+            throw new BadRequestException("authorName or authorCountry is required");
+        }
+        int chunk = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (chunk < 1) {
+            throw new BadRequestException("chunkSize must be positive");
+        }
+
+        Long jobId = ctx.transactionResult(tx -> {
+            DSLContext dsl = tx.dsl();
+            Long id = dsl.insertInto(PRICE_UPDATE_JOB)
+                    .columns(PRICE_UPDATE_JOB.AUTHOR_NAME, PRICE_UPDATE_JOB.AUTHOR_COUNTRY, PRICE_UPDATE_JOB.PERCENT,
+                            PRICE_UPDATE_JOB.STATUS, PRICE_UPDATE_JOB.CHUNK_SIZE)
+                    .values(req.getAuthorName(), req.getAuthorCountry(), req.getPercent(),
+                            PriceUpdateJobStatus.PENDING.name(), chunk)
+                    .returning(PRICE_UPDATE_JOB.ID)
+                    .fetchOne(PRICE_UPDATE_JOB.ID);
+
+            int total = dsl.insertInto(PRICE_UPDATE_JOB_BOOK, PRICE_UPDATE_JOB_BOOK.JOB_ID, PRICE_UPDATE_JOB_BOOK.BOOK_ID)
+                    .select(DSL.selectDistinct(DSL.val(id), BOOK_AUTHOR.BOOK_ID)
+                            .from(BOOK_AUTHOR)
+                            .join(AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
+                            .where(authors))
+                    .execute();
+
+            dsl.update(PRICE_UPDATE_JOB)
+                    .set(PRICE_UPDATE_JOB.TOTAL_BOOKS, total)
+                    .where(PRICE_UPDATE_JOB.ID.eq(id))
+                    .execute();
+            return id;
+        });
+
+        worker.execute(() -> run(jobId));
+        return get(jobId);
+    }
+
+    public PriceUpdateJobDTO get(Long id) {
+        PriceUpdateJobRecord job = ctx.fetchOne(PRICE_UPDATE_JOB, PRICE_UPDATE_JOB.ID.eq(id));
+        return job == null ? null : toDTO(job);
+    }
+
+    /** Re-queues a failed job; it continues after the last chunk it committed. */
+    public PriceUpdateJobDTO resume(Long id) throws BadRequestException {
+        int reset = ctx.update(PRICE_UPDATE_JOB)
+                .set(PRICE_UPDATE_JOB.STATUS, PriceUpdateJobStatus.PENDING.name())
+                .setNull(PRICE_UPDATE_JOB.ERROR)
+                .where(PRICE_UPDATE_JOB.ID.eq(id))
+                .and(PRICE_UPDATE_JOB.STATUS.eq(PriceUpdateJobStatus.FAILED.name()))
+                .execute();
+        if (reset == 0) {
+            throw new BadRequestException("Only failed jobs can be resumed");
+        }
+        worker.execute(() -> run(id));
+        return get(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // on the worker, so startup neither waits for nor fails on the database
+        worker.execute(this::resumeUnfinished);
+    }
+
+    void resumeUnfinished() {
+        List<Long> unfinished;
+        try {
+            unfinished = ctx.select(PRICE_UPDATE_JOB.ID)
+                    .from(PRICE_UPDATE_JOB)
+                    .where(PRICE_UPDATE_JOB.STATUS.in(PriceUpdateJobStatus.PENDING.name(), PriceUpdateJobStatus.RUNNING.name()))
+                    .orderBy(PRICE_UPDATE_JOB.ID)
+                    .fetch(PRICE_UPDATE_JOB.ID);
+        } catch (RuntimeException e) {
+            log.warn("Could not look up unfinished price update jobs", e);
+            return;
+        }
+        if (!unfinished.isEmpty()) {
+            log.info("Resuming price update jobs {}", unfinished);
+            unfinished.forEach(id -> worker.execute(() -> run(id)));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // a job interrupted here stays RUNNING and is resumed on the next startup
+        worker.shutdownNow();
+    }
+
+    private void run(Long jobId) {
+        int started = ctx.update(PRICE_UPDATE_JOB)
+                .set(PRICE_UPDATE_JOB.STATUS, PriceUpdateJobStatus.RUNNING.name())
+                .set(PRICE_UPDATE_JOB.STARTED_AT, DSL.coalesce(PRICE_UPDATE_JOB.STARTED_AT, DSL.val(LocalDateTime.now())))
+                .where(PRICE_UPDATE_JOB.ID.eq(jobId))
+                .and(PRICE_UPDATE_JOB.STATUS.in(PriceUpdateJobStatus.PENDING.name(), PriceUpdateJobStatus.RUNNING.name()))
+                .execute();
+        if (started == 0) return;
+        PriceUpdateJobRecord job = ctx.fetchOne(PRICE_UPDATE_JOB, PRICE_UPDATE_JOB.ID.eq(jobId));
+        if (job == null) return;
+
+        BigDecimal multiplier = BookService.priceMultiplier(job.getPercent());
+        long lastBookId = job.getLastBookId();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Long next = runChunk(jobId, lastBookId, job.getChunkSize(), multiplier);
+                if (next == null) break;
+                lastBookId = next;
+                if (chunkPause.isPositive()) Thread.sleep(chunkPause);
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+
+            ctx.update(PRICE_UPDATE_JOB)
+                    .set(PRICE_UPDATE_JOB.STATUS, PriceUpdateJobStatus.COMPLETED.name())
+                    .set(PRICE_UPDATE_JOB.FINISHED_AT, LocalDateTime.now())
+                    .where(PRICE_UPDATE_JOB.ID.eq(jobId))
+                    .and(PRICE_UPDATE_JOB.STATUS.eq(PriceUpdateJobStatus.RUNNING.name()))
+                    .execute();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Price update job {} failed after book id {}", jobId, lastBookId, e);
+            String message = String.valueOf(e.getMessage());
+            ctx.update(PRICE_UPDATE_JOB)
+                    .set(PRICE_UPDATE_JOB.STATUS, PriceUpdateJobStatus.FAILED.name())
+                    .set(PRICE_UPDATE_JOB.ERROR, message.substring(0, Math.min(message.length(), MAX_ERROR_LENGTH)))
+                    .where(PRICE_UPDATE_JOB.ID.eq(jobId))
+                    .execute();
+        }
+    }
+
+    /**
+     * Reprices the next chunk after {@code lastBookId} and records it, in one transaction.
+     *
+     * @return the new {@code last_book_id}, or {@code null} when there is nothing left to do for this worker
+     */
+    private Long runChunk(Long jobId, long lastBookId, int chunkSize, BigDecimal multiplier) {
+        return ctx.transactionResult(tx -> {
+            DSLContext dsl = tx.dsl();
+            List<Long> bookIds = dsl.select(PRICE_UPDATE_JOB_BOOK.BOOK_ID)
+                    .from(PRICE_UPDATE_JOB_BOOK)
+                    .where(PRICE_UPDATE_JOB_BOOK.JOB_ID.eq(jobId))
+                    .and(PRICE_UPDATE_JOB_BOOK.BOOK_ID.gt(lastBookId))
+                    .orderBy(PRICE_UPDATE_JOB_BOOK.BOOK_ID)
+                    .limit(chunkSize)
+                    .fetch(PRICE_UPDATE_JOB_BOOK.BOOK_ID);
+            if (bookIds.isEmpty()) return null;
+
+            // Claim the chunk first: the job row lock serializes runners, and a runner that lost the race
+            // sees last_book_id has moved and stops without touching any book
+            long chunkEnd = bookIds.getLast();
+            int claimed = dsl.update(PRICE_UPDATE_JOB)
+                    .set(PRICE_UPDATE_JOB.LAST_BOOK_ID, chunkEnd)
+                    .where(PRICE_UPDATE_JOB.ID.eq(jobId))
+                    .and(PRICE_UPDATE_JOB.LAST_BOOK_ID.eq(lastBookId))
+                    .and(PRICE_UPDATE_JOB.STATUS.eq(PriceUpdateJobStatus.RUNNING.name()))
+                    .execute();
+            if (claimed == 0) return null;
+
+            // version bump makes concurrent optimistic single-book updates retry instead of overwriting
+            int updated = dsl.update(BOOK)
+                    .set(BOOK.PRICE, BOOK.PRICE.mul(multiplier))
+                    .set(BOOK.VERSION, BOOK.VERSION.plus(1))
+                    .set(BOOK.UPDATED_AT, LocalDateTime.now())
+                    .where(BOOK.ID.in(bookIds))
+                    .execute();
+
+            dsl.update(PRICE_UPDATE_JOB)
+                    .set(PRICE_UPDATE_JOB.UPDATED_BOOKS, PRICE_UPDATE_JOB.UPDATED_BOOKS.plus(updated))
+                    .where(PRICE_UPDATE_JOB.ID.eq(jobId))
+                    .execute();
+
+            outbox.booksRepriced(dsl, bookIds);
+            eventPublisher.publishEvent(new BooksChangedEvent(bookIds));
+            return chunkEnd;
+        });
+    }
+
+    private static PriceUpdateJobDTO toDTO(PriceUpdateJobRecord job) {
+        double booksPerSecond = 0;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            long millis = Duration.between(job.getStartedAt(), end).toMillis();
+            booksPerSecond = millis > 0 ? job.getUpdatedBooks() * 1000.0 / millis : 0;
+        }
+        return new PriceUpdateJobDTO(
+                job.getId(),
+                PriceUpdateJobStatus.valueOf(job.getStatus()),
+                job.getAuthorName(),
+                job.getAuthorCountry(),
+                job.getPercent(),
+                job.getChunkSize(),
+                job.getTotalBooks(),
+                job.getUpdatedBooks(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt(),
+                booksPerSecond,
+                job.getError()
+        );
+    }
+}
@@ -0,0 +1,110 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.generated.tables.records.BookRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataChangedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+
+/**
+ * Single-book price updates, in one of two {@link Strategy strategies}. Each attempt is its own short transaction,
+ * so a retry re-reads committed state instead of the snapshot of a transaction that already lost the race.
+ */
+@Slf4j
+@Component
+public class PriceUpdater {
+
+    public enum Strategy {
+        /** {@code SELECT ... FOR UPDATE}, then store: concurrent writers of one book queue on the row lock. */
+        PESSIMISTIC,
+        /**
+         * Plain read, then a single {@code UPDATE ... WHERE id = ? AND version = ?}; on conflict, back off and
+         * retry up to {@code app.books.price-update.max-attempts} times. No lock is held between the two statements.
+         */
+        OPTIMISTIC
+    }
+
+    private final DSLContext ctx;
+    private final ChangeOutbox outbox;
+    private final Strategy strategy;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+
+    public PriceUpdater(DSLContext ctx, ChangeOutbox outbox,
+                        @Value("${app.books.price-update.strategy:OPTIMISTIC}") Strategy strategy,
+                        @Value("${app.books.price-update.max-attempts:5}") int maxAttempts,
+                        @Value("${app.books.price-update.backoff:5ms}") Duration backoff,
+                        @Value("${app.books.price-update.max-backoff:100ms}") Duration maxBackoff) {
+        this.ctx = ctx;
+        this.outbox = outbox;
+        this.strategy = strategy;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public void update(Long id, BigDecimal newPrice) {
+        update(id, newPrice, strategy);
+    }
+
+    void update(Long id, BigDecimal newPrice, Strategy strategy) {
+        switch (strategy) {
+            case PESSIMISTIC -> ctx.transaction(tx -> {
+                BookRecord book = tx.dsl().selectFrom(BOOK)
+                        .where(BOOK.ID.eq(id))
+                        .forUpdate()
+                        .fetchOne();
+                apply(tx.dsl(), book, id, newPrice);
+            });
+            case OPTIMISTIC -> updateOptimistically(id, newPrice);
+        }
+    }
+
+    private void updateOptimistically(Long id, BigDecimal newPrice) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ctx.transaction(tx -> apply(tx.dsl(), tx.dsl().fetchOne(BOOK, BOOK.ID.eq(id)), id, newPrice));
+                return;
+            } catch (DataChangedException e) {
+                if (attempt >= maxAttempts) {
+                    throw new OptimisticLockingFailureException(
+                            "Book " + id + " kept changing concurrently; gave up after " + attempt + " attempts", e);
+                }
+                log.debug("Price update of book {} conflicted (attempt {})", id, attempt);
+                pause(id, attempt);
+            }
+        }
+    }
+
+    private void apply(DSLContext tx, BookRecord book, Long id, BigDecimal newPrice) {
+        Objects.requireNonNull(book, "Book not found with id: " + id);
+        if (book.getPrice() == null || book.getPrice().compareTo(newPrice) != 0) {
+            book.setPrice(newPrice);
+            // bumps version and updated_at; DataChangedException if the version moved since the read
+            book.store();
+            outbox.booksRepriced(tx, List.of(id));
+        }
+    }
+
+    /** Exponential backoff with full jitter, so writers that collided don't collide again in lockstep. */
+    private void pause(Long id, int attempt) {
+        long cap = Math.min(maxBackoff.toNanos(), backoff.toNanos() << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(cap + 1)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OptimisticLockingFailureException("Interrupted while retrying price update of book " + id, e);
+        }
+    }
+}
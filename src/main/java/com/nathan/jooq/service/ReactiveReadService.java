@@ -0,0 +1,143 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorRankingDTO;
+import com.nathan.jooq.dto.AuthorReportDTO;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.BookYearReportDTO;
+import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.InactiveAuthorDTO;
+import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.dto.YearlyStatsDTO;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.conf.SettingsTools;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.nathan.jooq.generated.tables.Book.BOOK;
+
+/**
+ * Non-blocking counterparts of the book and report reads ({@code /reactive/*}, profile {@code reactive}).
+ * <p>
+ * The queries are the ones {@link BookSearchQueries} and {@link ReportService} build for the blocking path, executed
+ * through jOOQ's {@code Publisher} API on a pool of R2DBC connections ({@code app.reactive.r2dbc.*}) instead of
+ * JDBC. A slow query then holds an R2DBC connection, but no thread. Reads through here are not recorded by the
+ * query metrics listener.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveReadService {
+    private final ConnectionPool pool;
+    private final DSLContext reactive;
+    private final BookSearchQueries searchQueries;
+    private final ReportService reports;
+    private final BookCache bookCache;
+
+    public ReactiveReadService(DSLContext ctx, BookSearchQueries searchQueries, BookCache bookCache,
+                               @Value("${app.reactive.r2dbc.url}") String url,
+                               @Value("${app.reactive.r2dbc.username:}") String username,
+                               @Value("${app.reactive.r2dbc.password:}") String password,
+                               @Value("${app.reactive.r2dbc.pool.max-size:20}") int maxPoolSize) {
+        // not a bean: an R2DBC ConnectionFactory in the context makes Boot's JDBC jOOQ auto-configuration back off
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username)
+                    .option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .maxSize(maxPoolSize)
+                .build());
+        this.reactive = DSL.using(pool, ctx.dialect(), SettingsTools.clone(ctx.settings()));
+        this.searchQueries = searchQueries;
+        this.reports = new ReportService(reactive);
+        this.bookCache = bookCache;
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.dispose();
+    }
+
+    public Mono<BookDTO> getBookById(Long id) {
+        return bookCache.get(id, Mono.from(reactive.select(BookFields.bookWithAuthors())
+                        .from(BOOK)
+                        .where(BOOK.ID.eq(id)))
+                .map(BookFields::toBookDTO));
+    }
+
+    /**
+     * {@link BookService#search} without the blocking {@link TotalMode#CACHED}. For {@link TotalMode#EXACT}
+     * the count and the page query run concurrently, on two connections.
+     */
+    public Mono<PageResult<BookDTO>> search(String authorName, Integer publishedYear, BigDecimal minPrice,
+                                            BigDecimal maxPrice, int page, int size, TotalMode totalMode) {
+        int limit = totalMode == TotalMode.NONE ? size + 1 : size;
+        Mono<List<Record>> books = Flux.from(on(searchQueries.page(authorName, publishedYear, minPrice, maxPrice,
+                        totalMode == TotalMode.WINDOW, limit, (long) page * size)))
+                .collectList();
+        Mono<Integer> count = Mono.from(on(searchQueries.count(authorName, publishedYear, minPrice, maxPrice)))
+                .map(r -> r.get(0, Integer.class))
+                .defaultIfEmpty(0);
+
+        return switch (totalMode) {
+            case EXACT -> Mono.zip(count, books)
+                    .map(t -> BookService.toPage(t.getT2(), page, size, t.getT1(), totalMode));
+            // past the last page the window has no row to ride on, so fall back to counting
+            case WINDOW -> books.flatMap(rows -> rows.isEmpty() && page > 0
+                    ? count.map(total -> BookService.toPage(rows, page, size, total, totalMode))
+                    : Mono.just(BookService.toPage(rows, page, size,
+                    rows.isEmpty() ? 0 : rows.get(0).get(BookSearchQueries.TOTAL_COUNT), totalMode)));
+            case NONE -> books.map(rows -> BookService.toPage(rows, page, size, null, totalMode));
+            case CACHED -> Mono.error(new IllegalArgumentException("totalMode=CACHED is not available here"));
+        };
+    }
+
+    public Flux<YearlyStatsDTO> yearlyStats(int minPublishedYear) {
+        return Flux.from(reports.yearlyStatsQuery(minPublishedYear)).map(ReportService::toYearlyStats);
+    }
+
+    public Flux<AuthorReportDTO> reportAuthorBookValue() {
+        return Flux.from(reports.authorBookValueQuery()).map(r -> r.into(AuthorReportDTO.class));
+    }
+
+    public Flux<BookYearReportDTO> reportBookByYear() {
+        return Flux.from(reports.bookByYearQuery()).map(r -> r.into(BookYearReportDTO.class));
+    }
+
+    public Flux<AuthorReportDTO> topAuthorsByAvgPrice() {
+        return Flux.from(reports.topAuthorsByAvgPriceQuery()).map(r -> r.into(AuthorReportDTO.class));
+    }
+
+    public Flux<CountryRankingDTO> rankCountriesByBookValue() {
+        return Flux.from(reports.countryRankingsQuery()).map(r -> r.into(CountryRankingDTO.class));
+    }
+
+    public Flux<InactiveAuthorDTO> findInactiveAuthors(int yearsThreshold) {
+        return Flux.from(reports.inactiveAuthorsQuery(yearsThreshold)).map(r -> r.into(InactiveAuthorDTO.class));
+    }
+
+    public Flux<AuthorRankingDTO> getAuthorRankings() {
+        return Flux.from(reports.authorRankingsQuery()).map(r -> r.into(AuthorRankingDTO.class));
+    }
+
+    /** The search templates are created on the JDBC context; re-attached, they execute over R2DBC. */
+    private <R extends Record> ResultQuery<R> on(ResultQuery<R> query) {
+        query.attach(reactive.configuration());
+        return query;
+    }
+}
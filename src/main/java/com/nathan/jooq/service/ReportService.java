@@ -9,24 +9,45 @@ import com.nathan.jooq.dto.YearlyStatsDTO;
 import com.nathan.jooq.generated.tables.Book;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Record3;
+import org.jooq.Record4;
+import org.jooq.Record5;
+import org.jooq.ResultQuery;
 import org.jooq.impl.DSL;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Year;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.nathan.jooq.generated.Tables.AUTHOR;
 import static com.nathan.jooq.generated.Tables.BOOK;
 import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
 
+/**
+ * Aggregate reports. They only read, so they run in read-only transactions, which go to a replica when
+ * read/write routing is enabled. Ties are broken by key so that the order is the same on every run, and
+ * the same as {@link ColumnarTables}'.
+ */
 @Service
+@Transactional(readOnly = true)
 public class ReportService {
     private final DSLContext ctx;
     public ReportService(DSLContext ctx) { this.ctx = ctx; }
 
     /** Report yearly total books and average price */
     public List<YearlyStatsDTO> yearlyStats(int minPublishedYear) {
+        return yearlyStatsQuery(minPublishedYear).fetch(ReportService::toYearlyStats);
+    }
+
+    // The *Query methods build each report without running it; ReactiveReadService executes the same queries
+    // over R2DBC
+
+    ResultQuery<Record3<Integer, Integer, BigDecimal>> yearlyStatsQuery(int minPublishedYear) {
         return ctx.select(Book.BOOK.PUBLISHED_YEAR.as("year"),
                         DSL.count().as("total_books"),
                         DSL.avg(Book.BOOK.PRICE).as("avg_price"))
@@ -34,16 +55,23 @@ public class ReportService {
                 .where(Book.BOOK.PUBLISHED_YEAR.ge(minPublishedYear))
                 .and(Book.BOOK.PUBLISHED_YEAR.isNotNull())
                 .groupBy(Book.BOOK.PUBLISHED_YEAR)
-                .orderBy(Book.BOOK.PUBLISHED_YEAR.desc())
-                .fetch(r -> new YearlyStatsDTO(
-                        r.get("year", Integer.class),
-                        r.get("total_books", Integer.class),
-                        r.get("avg_price", BigDecimal.class)
-                ));
+                .orderBy(Book.BOOK.PUBLISHED_YEAR.desc());
+    }
+
+    static YearlyStatsDTO toYearlyStats(Record r) {
+        return new YearlyStatsDTO(
+                r.get("year", Integer.class),
+                r.get("total_books", Integer.class),
+                r.get("avg_price", BigDecimal.class)
+        );
     }
 
     /** Report total books and total value per author */
     public List<AuthorReportDTO> reportAuthorBookValue() {
+        return authorBookValueQuery().fetchInto(AuthorReportDTO.class);
+    }
+
+    ResultQuery<Record4<Long, String, Integer, BigDecimal>> authorBookValueQuery() {
         return ctx.select(
                         AUTHOR.ID,
                         AUTHOR.NAME,
@@ -53,24 +81,30 @@ public class ReportService {
                 .join(BOOK_AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
                 .join(BOOK).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
                 .groupBy(AUTHOR.ID, AUTHOR.NAME)
-                .orderBy(DSL.sum(BOOK.PRICE).desc())
-                .fetchInto(AuthorReportDTO.class);
+                .orderBy(DSL.sum(BOOK.PRICE).desc(), AUTHOR.ID);
     }
 
     /** Report total books and total value by publication year */
     public List<BookYearReportDTO> reportBookByYear() {
+        return bookByYearQuery().fetchInto(BookYearReportDTO.class);
+    }
+
+    ResultQuery<Record3<Integer, Integer, BigDecimal>> bookByYearQuery() {
         return ctx.select(
                         BOOK.PUBLISHED_YEAR,
                         DSL.count().as("total_books"),
                         DSL.sum(BOOK.PRICE).as("total_value"))
                 .from(BOOK)
                 .groupBy(BOOK.PUBLISHED_YEAR)
-                .orderBy(BOOK.PUBLISHED_YEAR)
-                .fetchInto(BookYearReportDTO.class);
+                .orderBy(BOOK.PUBLISHED_YEAR);
     }
 
     /** Report top 5 authors by average book price */
     public List<AuthorReportDTO> topAuthorsByAvgPrice() {
+        return topAuthorsByAvgPriceQuery().fetchInto(AuthorReportDTO.class);
+    }
+
+    ResultQuery<Record4<Long, String, Integer, BigDecimal>> topAuthorsByAvgPriceQuery() {
         return ctx.select(
                         AUTHOR.ID,
                         AUTHOR.NAME,
@@ -80,13 +114,16 @@ public class ReportService {
                 .join(BOOK_AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
                 .join(BOOK).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
                 .groupBy(AUTHOR.ID, AUTHOR.NAME)
-                .orderBy(DSL.avg(BOOK.PRICE).desc())
-                .limit(5)
-                .fetchInto(AuthorReportDTO.class);
+                .orderBy(DSL.avg(BOOK.PRICE).desc(), AUTHOR.ID)
+                .limit(5);
     }
 
     /** Rank countries by total book market value */
     public List<CountryRankingDTO> rankCountriesByBookValue() {
+        return countryRankingsQuery().fetchInto(CountryRankingDTO.class);
+    }
+
+    ResultQuery<Record3<String, BigDecimal, Integer>> countryRankingsQuery() {
         Field<BigDecimal> totalValue = DSL.sum(BOOK.PRICE).as("total_value");
         Field<Integer> rank = DSL.rank().over().orderBy(DSL.sum(BOOK.PRICE).desc()).as("rank");
 
@@ -98,14 +135,17 @@ public class ReportService {
                 .join(BOOK_AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
                 .join(BOOK).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
                 .groupBy(AUTHOR.COUNTRY)
-                .orderBy(totalValue.desc())
-                .fetchInto(CountryRankingDTO.class);
+                .orderBy(totalValue.desc(), AUTHOR.COUNTRY);
     }
 
     /**
      * Find authors who have never published a book OR haven't published in the last N years.
      */
     public List<InactiveAuthorDTO> findInactiveAuthors(int yearsThreshold) {
+        return inactiveAuthorsQuery(yearsThreshold).fetchInto(InactiveAuthorDTO.class);
+    }
+
+    ResultQuery<Record5<Long, String, String, Integer, String>> inactiveAuthorsQuery(int yearsThreshold) {
         int cutoffYear = Year.now().getValue() - yearsThreshold;
 
         // Authors with no books
@@ -128,14 +168,29 @@ public class ReportService {
                 .groupBy(AUTHOR.ID, AUTHOR.NAME, AUTHOR.COUNTRY);
 
         return noBookAuthors.unionAll(oldBooksAuthors)
-                .orderBy(AUTHOR.NAME.asc())
-                .fetchInto(InactiveAuthorDTO.class);
+                .orderBy(AUTHOR.NAME.asc(), AUTHOR.ID.asc());
     }
 
     /**
      * Top authors ranked by total book price (sales value).
      */
     public List<AuthorRankingDTO> getAuthorRankings() {
+        return authorRankingsQuery().fetchInto(AuthorRankingDTO.class);
+    }
+
+    /**
+     * Streams {@link #getAuthorRankings()} row by row through a lazy cursor instead of materializing the list.
+     */
+    @Transactional(readOnly = true)
+    public void forEachAuthorRanking(int fetchSize, Consumer<AuthorRankingDTO> consumer) {
+        try (Stream<AuthorRankingDTO> rows = authorRankingsQuery()
+                .fetchSize(fetchSize)
+                .fetchStreamInto(AuthorRankingDTO.class)) {
+            rows.forEach(consumer);
+        }
+    }
+
+    ResultQuery<Record5<Long, String, String, BigDecimal, Integer>> authorRankingsQuery() {
         Field<BigDecimal> totalValue = DSL.sum(BOOK.PRICE).as("total_value");
         Field<Integer> rank = DSL.rank().over(DSL.orderBy(DSL.sum(BOOK.PRICE).desc())).as("rank");
         return ctx.select(AUTHOR.ID, AUTHOR.NAME, AUTHOR.COUNTRY,
@@ -146,7 +201,6 @@ public class ReportService {
                 .join(BOOK_AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
                 .join(BOOK).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
                 .groupBy(AUTHOR.ID, AUTHOR.NAME, AUTHOR.COUNTRY)
-                .orderBy(totalValue.desc())
-                .fetchInto(AuthorRankingDTO.class);
+                .orderBy(totalValue.desc(), AUTHOR.ID);
     }
 }
@@ -0,0 +1,171 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorRankingDTO;
+import com.nathan.jooq.dto.AuthorReportDTO;
+import com.nathan.jooq.dto.BookYearReportDTO;
+import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.YearlyStatsDTO;
+import com.nathan.jooq.service.ColumnarTables.Semantics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Immutable point-in-time copy of the aggregates behind the {@link ReportService} reports.
+ * Country figures are derived from the per-author ones, exactly as the SQL groups them: countries the column
+ * collation considers equal are one group, shown with the spelling of the lowest author id. Averages have the
+ * scale the database gives {@code AVG()}, and ties sort as the SQL breaks them.
+ */
+public record ReportSnapshot(Map<Long, AuthorAggregate> authors,
+                             Map<Integer, YearAggregate> years,
+                             Semantics semantics,
+                             LocalDateTime refreshedAt) {
+
+    private static final Comparator<BigDecimal> VALUE_DESC = Comparator.nullsLast(Comparator.<BigDecimal>reverseOrder());
+    private static final Comparator<AuthorAggregate> BY_VALUE =
+            Comparator.comparing(AuthorAggregate::totalValue, VALUE_DESC).thenComparing(AuthorAggregate::id);
+
+    /** Per-author totals over the author's books; {@code pricedBooks} counts the non-null prices. */
+    public record AuthorAggregate(Long id, String name, String country,
+                                  int totalBooks, int pricedBooks, BigDecimal totalValue) {
+        BigDecimal avgPrice(int scale) {
+            return average(totalValue, pricedBooks, scale);
+        }
+    }
+
+    /** Per-publication-year totals; the {@code null} year is kept as its own group. */
+    public record YearAggregate(Integer year, int totalBooks, int pricedBooks, BigDecimal totalValue) {
+        BigDecimal avgPrice(int scale) {
+            return average(totalValue, pricedBooks, scale);
+        }
+    }
+
+    public ReportSnapshot {
+        authors = Collections.unmodifiableMap(new HashMap<>(authors));
+        years = Collections.unmodifiableMap(new HashMap<>(years));
+    }
+
+    ReportSnapshot withRefreshedAt(LocalDateTime time) {
+        return new ReportSnapshot(authors, years, semantics, time);
+    }
+
+    /**
+     * Replaces the aggregates of the given authors and years. Keys that were recomputed but came back
+     * empty (e.g. an author whose last book link disappeared) are dropped.
+     */
+    ReportSnapshot merge(Iterable<Long> authorIds, Map<Long, AuthorAggregate> freshAuthors,
+                         Iterable<Integer> yearKeys, Map<Integer, YearAggregate> freshYears,
+                         LocalDateTime time) {
+        Map<Long, AuthorAggregate> mergedAuthors = new HashMap<>(authors);
+        authorIds.forEach(mergedAuthors::remove);
+        mergedAuthors.putAll(freshAuthors);
+
+        Map<Integer, YearAggregate> mergedYears = new HashMap<>(years);
+        yearKeys.forEach(mergedYears::remove);
+        mergedYears.putAll(freshYears);
+
+        return new ReportSnapshot(mergedAuthors, mergedYears, semantics, time);
+    }
+
+    public List<AuthorReportDTO> authorBookValue() {
+        return authors.values().stream()
+                .sorted(BY_VALUE)
+                .map(a -> new AuthorReportDTO(a.id(), a.name(), a.totalBooks(), a.totalValue(), null))
+                .toList();
+    }
+
+    public List<AuthorReportDTO> topAuthorsByAvgPrice() {
+        int scale = semantics.avgScale();
+        return authors.values().stream()
+                .sorted(Comparator.comparing((AuthorAggregate a) -> a.avgPrice(scale), VALUE_DESC)
+                        .thenComparing(AuthorAggregate::id))
+                .limit(5)
+                .map(a -> new AuthorReportDTO(a.id(), a.name(), a.totalBooks(), null, a.avgPrice(scale)))
+                .toList();
+    }
+
+    public List<AuthorRankingDTO> authorRankings() {
+        List<AuthorAggregate> sorted = authors.values().stream()
+                .sorted(BY_VALUE)
+                .toList();
+        int[] ranks = ranks(sorted, AuthorAggregate::totalValue);
+
+        List<AuthorRankingDTO> result = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            AuthorAggregate a = sorted.get(i);
+            result.add(new AuthorRankingDTO(a.id(), a.name(), a.country(),
+                    a.totalValue() == null ? null : a.totalValue().doubleValue(), ranks[i]));
+        }
+        return result;
+    }
+
+    public List<CountryRankingDTO> countryRankings() {
+        ColumnCollation collation = semantics.countries();
+        Map<String, String> spellings = new HashMap<>();
+        Map<String, BigDecimal> byCountry = new HashMap<>();
+        authors.values().stream().sorted(Comparator.comparing(AuthorAggregate::id)).forEach(a -> {
+            String country = spellings.computeIfAbsent(collation.key(a.country()), k -> a.country());
+            byCountry.put(country, addNullable(byCountry.get(country), a.totalValue()));
+        });
+        List<Map.Entry<String, BigDecimal>> sorted = byCountry.entrySet().stream()
+                .sorted(Map.Entry.<String, BigDecimal>comparingByValue(VALUE_DESC)
+                        .thenComparing(Map.Entry.comparingByKey(collation.order())))
+                .toList();
+        int[] ranks = ranks(sorted, Map.Entry::getValue);
+
+        List<CountryRankingDTO> result = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            result.add(new CountryRankingDTO(sorted.get(i).getKey(), sorted.get(i).getValue(), ranks[i]));
+        }
+        return result;
+    }
+
+    public List<YearlyStatsDTO> yearlyStats(int minPublishedYear) {
+        return years.values().stream()
+                .filter(y -> y.year() != null && y.year() >= minPublishedYear)
+                .sorted(Comparator.comparing(YearAggregate::year).reversed())
+                .map(y -> new YearlyStatsDTO(y.year(), y.totalBooks(), y.avgPrice(semantics.avgScale())))
+                .toList();
+    }
+
+    public List<BookYearReportDTO> bookByYear() {
+        return years.values().stream()
+                .sorted(Comparator.comparing(YearAggregate::year, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .map(y -> new BookYearReportDTO(y.year(), y.totalBooks(), y.totalValue()))
+                .toList();
+    }
+
+    /** SQL {@code RANK()}: ties share a rank and leave a gap after them. */
+    private static <T> int[] ranks(List<T> sortedDesc, Function<T, BigDecimal> value) {
+        int[] ranks = new int[sortedDesc.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            boolean tie = i > 0 && Objects.equals(
+                    normalize(value.apply(sortedDesc.get(i))), normalize(value.apply(sortedDesc.get(i - 1))));
+            ranks[i] = tie ? ranks[i - 1] : i + 1;
+        }
+        return ranks;
+    }
+
+    private static BigDecimal normalize(BigDecimal v) {
+        return v == null ? null : v.stripTrailingZeros();
+    }
+
+    private static BigDecimal addNullable(BigDecimal a, BigDecimal b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.add(b);
+    }
+
+    private static BigDecimal average(BigDecimal total, int count, int scale) {
+        return total == null || count == 0 ? null : total.divide(BigDecimal.valueOf(count), scale, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,186 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.event.BooksChangedEvent;
+import com.nathan.jooq.service.ReportSnapshot.AuthorAggregate;
+import com.nathan.jooq.service.ReportSnapshot.YearAggregate;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+
+/**
+ * Keeps a {@link ReportSnapshot} of the report aggregates.
+ * <p>
+ * Book writes only mark their ids dirty; a frequent incremental refresh re-aggregates just the authors and
+ * years those books belong to, and a slower full reconcile rebuilds everything to repair any drift.
+ * Dirty ids are always drained before querying, so a write that commits mid-refresh is picked up next time.
+ * The reconcile also re-reads the database's {@code AVG()} scale and {@code author.country} collation.
+ */
+@Slf4j
+@Service
+public class ReportSnapshotService {
+    private final DSLContext ctx;
+    private final boolean enabled;
+    private final Duration maxStaleness;
+
+    private final Set<Long> dirtyBooks = ConcurrentHashMap.newKeySet();
+    private volatile ReportSnapshot snapshot;
+    // serializes refresh/reconcile
+    private final Lock refreshing = new ReentrantLock();
+
+    public ReportSnapshotService(DSLContext ctx,
+                                 @Value("${app.reports.snapshot.enabled:true}") boolean enabled,
+                                 @Value("${app.reports.snapshot.max-staleness:30s}") Duration maxStaleness) {
+        this.ctx = ctx;
+        this.enabled = enabled;
+        this.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * @return the current snapshot, or {@code null} if there is none yet or it has not been refreshed
+     * within the configured max staleness; callers then fall back to the live queries
+     */
+    public ReportSnapshot freshSnapshot() {
+        ReportSnapshot current = snapshot;
+        if (!enabled || current == null) return null;
+        return current.refreshedAt().isBefore(LocalDateTime.now().minus(maxStaleness)) ? null : current;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksChanged(BooksChangedEvent event) {
+        if (enabled) dirtyBooks.addAll(event.bookIds());
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.snapshot.refresh-interval:5s}")
+    public void refresh() {
+        if (!enabled || snapshot == null) return;
+        refreshing.lock();
+        try {
+            refreshDirty();
+        } finally {
+            refreshing.unlock();
+        }
+    }
+
+    private void refreshDirty() {
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<Long> changed = drainDirty();
+        if (changed.isEmpty()) {
+            snapshot = snapshot.withRefreshedAt(startedAt);
+            return;
+        }
+        try {
+            List<Long> authorIds = ctx.selectDistinct(BOOK_AUTHOR.AUTHOR_ID)
+                    .from(BOOK_AUTHOR)
+                    .where(BOOK_AUTHOR.BOOK_ID.in(changed))
+                    .fetch(BOOK_AUTHOR.AUTHOR_ID);
+            List<Integer> years = ctx.selectDistinct(BOOK.PUBLISHED_YEAR)
+                    .from(BOOK)
+                    .where(BOOK.ID.in(changed))
+                    .fetch(BOOK.PUBLISHED_YEAR);
+
+            Map<Long, AuthorAggregate> freshAuthors = authorIds.isEmpty()
+                    ? Map.of()
+                    : aggregateAuthors(AUTHOR.ID.in(authorIds));
+            Map<Integer, YearAggregate> freshYears = years.isEmpty()
+                    ? Map.of()
+                    : aggregateYears(yearCondition(years));
+
+            snapshot = snapshot.merge(authorIds, freshAuthors, years, freshYears, startedAt);
+        } catch (RuntimeException e) {
+            dirtyBooks.addAll(changed);
+            throw e;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.reports.snapshot.initial-delay:0s}",
+            fixedDelayString = "${app.reports.snapshot.reconcile-interval:10m}")
+    public void reconcile() {
+        if (!enabled) return;
+        refreshing.lock();
+        try {
+            rebuild();
+        } finally {
+            refreshing.unlock();
+        }
+    }
+
+    private void rebuild() {
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<Long> changed = drainDirty();
+        try {
+            snapshot = new ReportSnapshot(
+                    aggregateAuthors(DSL.noCondition()),
+                    aggregateYears(DSL.noCondition()),
+                    ColumnarReportEngine.semantics(ctx),
+                    startedAt);
+            log.debug("Report snapshot reconciled: {} authors, {} years",
+                    snapshot.authors().size(), snapshot.years().size());
+        } catch (RuntimeException e) {
+            dirtyBooks.addAll(changed);
+            throw e;
+        }
+    }
+
+    private List<Long> drainDirty() {
+        List<Long> drained = new ArrayList<>(dirtyBooks);
+        drained.forEach(dirtyBooks::remove);
+        return drained;
+    }
+
+    private Map<Long, AuthorAggregate> aggregateAuthors(Condition condition) {
+        return ctx.select(
+                        AUTHOR.ID,
+                        AUTHOR.NAME,
+                        AUTHOR.COUNTRY,
+                        DSL.countDistinct(BOOK.ID),
+                        DSL.count(BOOK.PRICE),
+                        DSL.sum(BOOK.PRICE))
+                .from(AUTHOR)
+                .join(BOOK_AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
+                .join(BOOK).on(BOOK.ID.eq(BOOK_AUTHOR.BOOK_ID))
+                .where(condition)
+                .groupBy(AUTHOR.ID, AUTHOR.NAME, AUTHOR.COUNTRY)
+                .fetchMap(r -> r.value1(), r -> new AuthorAggregate(
+                        r.value1(), r.value2(), r.value3(), r.value4(), r.value5(), r.value6()));
+    }
+
+    private Map<Integer, YearAggregate> aggregateYears(Condition condition) {
+        return ctx.select(
+                        BOOK.PUBLISHED_YEAR,
+                        DSL.count(),
+                        DSL.count(BOOK.PRICE),
+                        DSL.sum(BOOK.PRICE))
+                .from(BOOK)
+                .where(condition)
+                .groupBy(BOOK.PUBLISHED_YEAR)
+                .fetchMap(r -> r.value1(), r -> new YearAggregate(r.value1(), r.value2(), r.value3(), r.value4()));
+    }
+
+    private static Condition yearCondition(List<Integer> years) {
+        List<Integer> known = years.stream().filter(Objects::nonNull).toList();
+        Condition condition = known.isEmpty() ? DSL.falseCondition() : BOOK.PUBLISHED_YEAR.in(known);
+        return known.size() < years.size() ? condition.or(BOOK.PUBLISHED_YEAR.isNull()) : condition;
+    }
+}
@@ -0,0 +1,40 @@
+package com.nathan.jooq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.nathan.jooq.dto.BookSearchFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Short-TTL cache of search totals, used by {@link com.nathan.jooq.dto.TotalMode#CACHED}, keyed by the
+ * normalized {@link BookSearchFilter} the total is counted from. Totals are not invalidated on writes; they
+ * simply expire.
+ */
+@Component
+public class SearchTotalCache {
+    private final Cache<BookSearchFilter, Integer> totals;
+
+    @Autowired
+    public SearchTotalCache(@Value("${app.search.total-cache.ttl:30s}") Duration ttl,
+                            @Value("${app.search.total-cache.max-size:10000}") long maxSize) {
+        this(ttl, maxSize, Ticker.systemTicker());
+    }
+
+    SearchTotalCache(Duration ttl, long maxSize, Ticker ticker) {
+        this.totals = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .build();
+    }
+
+    public int get(BookSearchFilter filter, Supplier<Integer> count) {
+        return totals.get(filter, k -> count.get());
+    }
+}
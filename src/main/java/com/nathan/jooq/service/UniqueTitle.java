@@ -0,0 +1,29 @@
+package com.nathan.jooq.service;
+
+import org.jooq.exception.IntegrityConstraintViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Locale;
+
+/**
+ * The {@code uk_book_title} unique key on {@code book.title}.
+ */
+final class UniqueTitle {
+    static final String KEY = "uk_book_title";
+
+    /**
+     * Whether {@code e} is a duplicate title, as opposed to any other constraint the same insert can violate. The key
+     * is recognised by name in the driver's message: MySQL reports {@code for key 'book.uk_book_title'}, H2 the name of
+     * the index backing the constraint.
+     */
+    static boolean violatedBy(RuntimeException e) {
+        if (!(e instanceof DuplicateKeyException || e instanceof IntegrityConstraintViolationException)) return false;
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().toLowerCase(Locale.ROOT).contains(KEY)) return true;
+        }
+        return false;
+    }
+
+    private UniqueTitle() {
+    }
+}
@@ -0,0 +1,3 @@
+-- Title uniqueness rests on this key rather than a locking read (BookService.create). Duplicate titles already in
+-- the table have to be resolved before it can be added.
+ALTER TABLE `book` ADD UNIQUE KEY `uk_book_title` (`title`);
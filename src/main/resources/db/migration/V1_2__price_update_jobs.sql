@@ -0,0 +1,26 @@
+-- Chunked, resumable repricing (PriceUpdateJobService): the job and the books it has already repriced.
+
+CREATE TABLE `price_update_job` (
+                                    `id` bigint NOT NULL AUTO_INCREMENT,
+                                    `author_name` varchar(255) DEFAULT NULL,
+                                    `author_country` varchar(100) DEFAULT NULL,
+                                    `percent` decimal(10,4) NOT NULL,
+                                    `status` varchar(20) NOT NULL,
+                                    `chunk_size` int NOT NULL,
+                                    `total_books` int NOT NULL DEFAULT '0',
+                                    `updated_books` int NOT NULL DEFAULT '0',
+                                    `last_book_id` bigint NOT NULL DEFAULT '0',
+                                    `error` varchar(1000) DEFAULT NULL,
+                                    `created_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+                                    `started_at` timestamp NULL DEFAULT NULL,
+                                    `finished_at` timestamp NULL DEFAULT NULL,
+                                    PRIMARY KEY (`id`),
+                                    KEY `idx_price_update_job_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE `price_update_job_book` (
+                                         `job_id` bigint NOT NULL,
+                                         `book_id` bigint NOT NULL,
+                                         PRIMARY KEY (`job_id`,`book_id`),
+                                         CONSTRAINT `fk_price_update_job_book_job` FOREIGN KEY (`job_id`) REFERENCES `price_update_job` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,4 @@
+-- Optimistic locking of single-book price updates (PriceUpdater): the generated BookRecord treats version and
+-- updated_at (from V1) as its version and timestamp fields.
+ALTER TABLE `book`
+    ADD COLUMN `version` int NOT NULL DEFAULT '0' AFTER `updated_at`;
@@ -1,13 +1,17 @@
-create table jooq.author
-(
-    id         bigint auto_increment
-        primary key,
-    name       varchar(255)                        null,
-    email      varchar(255)                        null,
-    birth_date date                                null,
-    country    varchar(100)                        null,
-    created_at timestamp default CURRENT_TIMESTAMP null
-);
+-- The schema as it stood in db/init.sql before any of the later changes. A database created from that script is
+-- adopted at this version by spring.flyway.baseline-on-migrate and gets every later migration.
+-- book.updated_at is part of it although init.sql lacked the column: BookService already set it, so the database
+-- the jOOQ classes were generated from had it.
+
+CREATE TABLE `author` (
+                          `id` bigint NOT NULL AUTO_INCREMENT,
+                          `name` varchar(255) DEFAULT NULL,
+                          `email` varchar(255) DEFAULT NULL,
+                          `birth_date` date DEFAULT NULL,
+                          `country` varchar(100) DEFAULT NULL,
+                          `created_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+                          PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 CREATE TABLE `book` (
                         `id` bigint NOT NULL AUTO_INCREMENT,
@@ -16,8 +20,9 @@ CREATE TABLE `book` (
                         `published_year` int DEFAULT NULL,
                         `price` decimal(10,2) DEFAULT NULL,
                         `created_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+                        `updated_at` timestamp NULL DEFAULT NULL,
                         PRIMARY KEY (`id`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 CREATE TABLE `book_author` (
                                `book_id` bigint NOT NULL,
@@ -28,4 +33,4 @@ CREATE TABLE `book_author` (
                                KEY `fk_book_author_author` (`author_id`),
                                CONSTRAINT `fk_book_author_author` FOREIGN KEY (`author_id`) REFERENCES `author` (`id`),
                                CONSTRAINT `fk_book_author_book` FOREIGN KEY (`book_id`) REFERENCES `book` (`id`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
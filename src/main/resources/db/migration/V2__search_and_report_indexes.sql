@@ -0,0 +1,15 @@
+-- Access paths of the book search (BookSearchQueries) and the reports (ReportService). Checked against the
+-- generated SQL by /actuator/indexadvice.
+
+-- newest-first search and cursor scans without a filter: read in index order instead of sorting the table
+CREATE INDEX `idx_book_created_at` ON `book` (`created_at`, `id`);
+
+-- publishedYear searches come back in created_at order straight from the index, the price filter and the
+-- COUNT(*) of the total are answered from it; yearly stats group on its leading column
+CREATE INDEX `idx_book_year_created_price` ON `book` (`published_year`, `created_at`, `price`);
+
+-- minPrice/maxPrice-only searches
+CREATE INDEX `idx_book_price` ON `book` (`price`);
+
+-- country rankings and the price jobs' author_country filter
+CREATE INDEX `idx_author_country` ON `author` (`country`);
@@ -0,0 +1,14 @@
+-- Transactional outbox (ChangeOutbox): one row per book/author change, written in the transaction of the change
+-- and relayed in id order by OutboxRelay. published_at marks delivery; published rows are purged after a retention.
+CREATE TABLE `outbox_event` (
+                                `id` bigint NOT NULL AUTO_INCREMENT,
+                                `aggregate_type` varchar(20) NOT NULL,
+                                `aggregate_id` bigint NOT NULL,
+                                `event_type` varchar(40) NOT NULL,
+                                `payload` text NOT NULL,
+                                `created_at` datetime(3) NOT NULL,
+                                `published_at` datetime(3) DEFAULT NULL,
+                                PRIMARY KEY (`id`),
+                                -- the relay's "unpublished, in id order" and the purge's "published before"
+                                KEY `idx_outbox_event_published_at` (`published_at`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
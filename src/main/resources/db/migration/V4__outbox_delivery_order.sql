@@ -0,0 +1,11 @@
+-- OutboxRelay delivers by seq, which it assigns when it first sees an event committed; ids are assigned at
+-- insert, so a late commit can leave a lower id behind events already relayed. attempts counts failed
+-- deliveries; an event that keeps failing on its own is set aside with dead_lettered_at.
+ALTER TABLE `outbox_event`
+    ADD COLUMN `seq` bigint DEFAULT NULL AFTER `id`,
+    ADD COLUMN `attempts` int NOT NULL DEFAULT '0',
+    ADD COLUMN `dead_lettered_at` datetime(3) DEFAULT NULL,
+    -- one relay numbering at a time; also the "not numbered yet, in id order" scan (seq IS NULL, then id)
+    ADD UNIQUE KEY `uk_outbox_event_seq` (`seq`),
+    -- the relay's "unpublished, in seq order"
+    ADD KEY `idx_outbox_event_pending` (`published_at`, `seq`);
@@ -0,0 +1,39 @@
+package com.nathan.jooq.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitingDataSourceTest {
+
+    private static ConcurrencyLimitingDataSource limited(int maxConcurrency) {
+        DriverManagerDataSource h2 = new DriverManagerDataSource("jdbc:h2:mem:limiter;DB_CLOSE_DELAY=-1", "sa", "");
+        return new ConcurrencyLimitingDataSource(h2, maxConcurrency, Duration.ofMillis(100));
+    }
+
+    @Test
+    void callersBeyondTheLimitWaitAndTimeOutUntilAConnectionIsClosed() throws Exception {
+        ConcurrencyLimitingDataSource dataSource = limited(2);
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertThat(dataSource.inUse()).isEqualTo(2);
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        // a second close must not hand out an extra permit
+        first.close();
+        try (Connection third = dataSource.getConnection()) {
+            assertThat(third.isValid(1)).isTrue();
+            assertThat(dataSource.inUse()).isEqualTo(2);
+        }
+        second.close();
+        assertThat(dataSource.inUse()).isZero();
+    }
+}
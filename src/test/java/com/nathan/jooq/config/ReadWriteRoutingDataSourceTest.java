@@ -0,0 +1,118 @@
+package com.nathan.jooq.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A replica leaves the rotation when it cannot be connected to, not when its pool is only busy; and connections
+ * asked for with credentials reach the chosen pool.
+ */
+class ReadWriteRoutingDataSourceTest {
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-unit-primary;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-unit-replica;DB_CLOSE_DELAY=-1";
+
+    private Connection keepReplicaAlive;
+    private HikariDataSource replica;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void start() throws Exception {
+        keepReplicaAlive = DriverManager.getConnection(REPLICA_URL, "sa", "");
+        replica = pool(REPLICA_URL + ";IFEXISTS=TRUE");
+        // checked once at start, then only by the test
+        routing = new ReadWriteRoutingDataSource(pool(PRIMARY_URL), Map.of("replica", replica), Duration.ofHours(1));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (routing.healthyReplicas() != 1) {
+            assertThat(System.currentTimeMillis()).as("replica healthy").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        routing.close();
+        if (!keepReplicaAlive.isClosed()) {
+            keepReplicaAlive.close();
+        }
+    }
+
+    @Test
+    void aBusyReplicaStaysInRotation() throws Exception {
+        try (Connection held = replica.getConnection()) {
+            // the replica pool's only connection is lent out, so this read waits for its timeout, then goes to the primary
+            assertThat(databaseOnReplica()).isEqualToIgnoringCase("ROUTING-UNIT-PRIMARY");
+            assertThat(routing.healthyReplicas()).isEqualTo(1);
+        }
+        assertThat(databaseOnReplica()).isEqualToIgnoringCase("ROUTING-UNIT-REPLICA");
+    }
+
+    @Test
+    void anUnreachableReplicaIsMarkedDown() throws Exception {
+        keepReplicaAlive.createStatement().execute("SHUTDOWN");
+        replica.getHikariPoolMXBean().softEvictConnections();
+
+        assertThat(databaseOnReplica()).isEqualToIgnoringCase("ROUTING-UNIT-PRIMARY");
+        assertThat(routing.healthyReplicas()).isZero();
+    }
+
+    @Test
+    void credentialsReachTheChosenPool() {
+        // HikariCP takes its credentials from its configuration only, and says so; that is no reason to mark it down
+        assertThatThrownBy(() -> ReadWriteRoutingDataSource.onReplica(() -> database("sa", "")))
+                .hasCauseInstanceOf(SQLFeatureNotSupportedException.class);
+        assertThat(routing.healthyReplicas()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyTimeoutsAfterAFailedConnectMeanTheReplicaIsDown() {
+        assertThat(ReadWriteRoutingDataSource.isConnectionFailure(new SQLTransientConnectionException("timed out")))
+                .isFalse();
+        assertThat(ReadWriteRoutingDataSource.isConnectionFailure(new SQLTransientConnectionException("timed out",
+                "08001", new SQLNonTransientConnectionException("connection refused")))).isTrue();
+        assertThat(ReadWriteRoutingDataSource.isConnectionFailure(new SQLNonTransientConnectionException("gone")))
+                .isTrue();
+        assertThat(ReadWriteRoutingDataSource.isConnectionFailure(new SQLFeatureNotSupportedException())).isFalse();
+    }
+
+    private String databaseOnReplica() {
+        return ReadWriteRoutingDataSource.onReplica(() -> database(null, null));
+    }
+
+    private String database(String username, String password) {
+        try (Connection connection = username == null
+                ? routing.getConnection() : routing.getConnection(username, password);
+             ResultSet rs = connection.createStatement().executeQuery("select database()")) {
+            rs.next();
+            return rs.getString(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static HikariDataSource pool(String url) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(1);
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(250);
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,169 @@
+package com.nathan.jooq.config;
+
+import com.nathan.jooq.dto.DashboardReport;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.dto.YearlyStatsDTO;
+import com.nathan.jooq.service.BookService;
+import com.nathan.jooq.service.DashboardService;
+import com.nathan.jooq.service.ReportService;
+import com.nathan.jooq.support.TestData;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica. They hold different catalogs, so the row
+ * counts show where a read went.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.datasource.routing.enabled=true",
+        "app.datasource.replicas.urls=" + ReadWriteRoutingTest.REPLICA_URL + ";IFEXISTS=TRUE",
+        "app.datasource.routing.health-check-interval=50ms",
+        "spring.datasource.hikari.connection-timeout=250"
+})
+@ActiveProfiles("h2")
+class ReadWriteRoutingTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final int PRIMARY_BOOKS = 60;
+    private static final int REPLICA_BOOKS = 40;
+
+    static {
+        createReplica();
+    }
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private DashboardService dashboardService;
+    @Autowired
+    private ReadYourWritesFilter readYourWritesFilter;
+
+    @BeforeEach
+    void seed() throws Exception {
+        // outside any transaction, so on the primary
+        TestData.clear(ctx);
+        TestData.seed(ctx, 10, PRIMARY_BOOKS, 1);
+        awaitHealthyReplicas(1);
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransactionsAndReportsReadTheReplicaWhileWritesStayOnThePrimary() throws Exception {
+        assertThat(bookService.search(null, null, null, null, 0, 10, TotalMode.EXACT).total()).isEqualTo(REPLICA_BOOKS);
+        assertThat(reportService.yearlyStats(0)).isEqualTo(replicaYearlyStats());
+        assertThat(dashboardService.dashboard(List.of(DashboardReport.YEARLY_STATS), 0, 2)
+                .reports().get(DashboardReport.YEARLY_STATS).rows())
+                .isEqualTo(replicaYearlyStats());
+
+        Long primaryBook = ctx.select(BOOK.ID).from(BOOK).orderBy(BOOK.ID.desc()).limit(1).fetchOne(BOOK.ID);
+        bookService.updatePrice(primaryBook, new BigDecimal("12.34"));
+        assertThat(ctx.select(BOOK.PRICE).from(BOOK).where(BOOK.ID.eq(primaryBook)).fetchOne(BOOK.PRICE))
+                .isEqualByComparingTo("12.34");
+
+        assertThat(ReadWriteRoutingDataSource.onPrimary(
+                () -> bookService.search(null, null, null, null, 0, 10, TotalMode.EXACT).total()))
+                .isEqualTo(PRIMARY_BOOKS);
+    }
+
+    @Test
+    void aClientThatJustWroteReadsFromThePrimary() throws Exception {
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), writeResponse));
+        Long primaryBook = ctx.select(BOOK.ID).from(BOOK).orderBy(BOOK.ID.desc()).limit(1).fetchOne(BOOK.ID);
+        bookService.updatePrice(primaryBook, new BigDecimal("12.34"));
+        RequestContextHolder.resetRequestAttributes();
+        assertThat(writeResponse.getHeader(HttpHeaders.SET_COOKIE)).startsWith(ReadYourWritesFilter.COOKIE + "=");
+
+        MockHttpServletRequest followUp = new MockHttpServletRequest();
+        followUp.setCookies(writeResponse.getCookie(ReadYourWritesFilter.COOKIE));
+        assertThat(searchTotalWithin(followUp)).isEqualTo(PRIMARY_BOOKS);
+        assertThat(searchTotalWithin(new MockHttpServletRequest())).isEqualTo(REPLICA_BOOKS);
+    }
+
+    @Test
+    void readsFailOverToThePrimaryAndReturnOnceTheReplicaRecovers() throws Exception {
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "")) {
+            replica.createStatement().execute("SHUTDOWN");
+        }
+        awaitHealthyReplicas(0);
+        assertThat(bookService.search(null, null, null, null, 0, 10, TotalMode.EXACT).total()).isEqualTo(PRIMARY_BOOKS);
+
+        createReplica();
+        awaitHealthyReplicas(1);
+        assertThat(bookService.search(null, null, null, null, 0, 10, TotalMode.EXACT).total()).isEqualTo(REPLICA_BOOKS);
+    }
+
+    private Integer searchTotalWithin(MockHttpServletRequest request) throws Exception {
+        AtomicReference<Integer> total = new AtomicReference<>();
+        readYourWritesFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                total.set(bookService.search(null, null, null, null, 0, 10, TotalMode.EXACT).total());
+            }
+        }));
+        return total.get();
+    }
+
+    private static List<YearlyStatsDTO> replicaYearlyStats() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "")) {
+            return new ReportService(DSL.using(connection, SQLDialect.H2)).yearlyStats(0);
+        }
+    }
+
+    private static void createReplica() {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "")) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("h2/schema.sql"));
+            TestData.seed(DSL.using(connection, SQLDialect.H2), 5, REPLICA_BOOKS, 2);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitHealthyReplicas(int expected) throws Exception {
+        ReadWriteRoutingDataSource routing = dataSource.unwrap(ReadWriteRoutingDataSource.class);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (routing.healthyReplicas() != expected) {
+            assertThat(System.currentTimeMillis()).as("replicas healthy: %d", expected).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
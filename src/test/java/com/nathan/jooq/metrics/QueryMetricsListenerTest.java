@@ -0,0 +1,120 @@
+package com.nathan.jooq.metrics;
+
+import com.nathan.jooq.service.ReportService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Only statements over the slow threshold are attributed to their service method (the stack walk) and logged;
+ * once one execution of a statement was, the fast ones are counted under the same name.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class QueryMetricsListenerTest {
+    // well above a cold first execution
+    private static final Duration THRESHOLD = Duration.ofMillis(500);
+
+    @Autowired
+    private DSLContext ctx;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SlowQueryLog slowQueries = new SlowQueryLog(10);
+    private final Delay delay = new Delay();
+
+    @Test
+    void fastStatementsAreNeitherAttributedNorLogged() {
+        ReportService reports = reports(Duration.ofHours(1));
+
+        reports.yearlyStats(2000);
+        reports.yearlyStats(2010);
+
+        assertThat(timer("unattributed").count()).isEqualTo(2);
+        assertThat(registry.find("jooq.query").tag("query", "ReportService.yearlyStats").timer()).isNull();
+        assertThat(slowQueries.recent()).isEmpty();
+    }
+
+    @Test
+    void slowStatementsNameTheStatementForLaterExecutions() {
+        ReportService reports = reports(THRESHOLD);
+
+        reports.yearlyStats(2000);
+        assertThat(timer("unattributed").count()).isEqualTo(1);
+
+        delay.next = THRESHOLD.multipliedBy(2);
+        reports.yearlyStats(2010);
+        assertThat(slowQueries.recent()).singleElement().satisfies(slow -> {
+            assertThat(slow.query()).isEqualTo("ReportService.yearlyStats");
+            assertThat(slow.millis()).isGreaterThanOrEqualTo(THRESHOLD.toMillis());
+            assertThat(slow.sql()).contains("published_year").doesNotContain("2010");
+        });
+
+        // the same SQL, fast again
+        reports.yearlyStats(1990);
+        assertThat(timer("ReportService.yearlyStats").count()).isEqualTo(2);
+        assertThat(timer("unattributed").count()).isEqualTo(1);
+        assertThat(slowQueries.recent()).hasSize(1);
+
+        // another statement has not been slow yet
+        reports.reportBookByYear();
+        assertThat(timer("unattributed").count()).isEqualTo(2);
+    }
+
+    @Test
+    void slowStatementsOutsideTheServicesAreUnknown() {
+        DSLContext listened = ctx.configuration()
+                .derive(new DefaultExecuteListenerProvider(listener(THRESHOLD)), new DefaultExecuteListenerProvider(delay))
+                .dsl();
+
+        delay.next = THRESHOLD.multipliedBy(2);
+        listened.selectOne().fetch();
+
+        assertThat(slowQueries.recent()).singleElement()
+                .satisfies(slow -> assertThat(slow.query()).isEqualTo("unknown"));
+        assertThat(timer("unknown").count()).isEqualTo(1);
+    }
+
+    private ReportService reports(Duration threshold) {
+        return new ReportService(ctx.configuration()
+                .derive(new DefaultExecuteListenerProvider(listener(threshold)), new DefaultExecuteListenerProvider(delay))
+                .dsl());
+    }
+
+    private QueryMetricsListener listener(Duration threshold) {
+        return new QueryMetricsListener(registry, slowQueries, threshold);
+    }
+
+    private Timer timer(String query) {
+        Timer timer = registry.find("jooq.query").tag("query", query).timer();
+        assertThat(timer).as(query).isNotNull();
+        return timer;
+    }
+
+    /** Makes the next statement slow by sleeping before it executes. */
+    private static final class Delay implements ExecuteListener {
+        volatile Duration next;
+
+        @Override
+        public void executeStart(ExecuteContext ctx) {
+            Duration sleep = next;
+            next = null;
+            if (sleep == null) return;
+            try {
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.nathan.jooq.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements of one shape must normalize to the same text, whatever their literals and list lengths; identifiers
+ * and the rest of the statement are kept.
+ */
+class SlowQueryLogTest {
+
+    @Test
+    void literalsBecomePlaceholders() {
+        assertThat(SlowQueryLog.normalize("select * from book where title = 'O''Brien' and price > 10.50 and year = 2001"))
+                .isEqualTo("select * from book where title = ? and price > ? and year = ?");
+        // digits inside a literal go with it
+        assertThat(SlowQueryLog.normalize("select id from book where title = 'Book 12' or title = 'it''s 3'"))
+                .isEqualTo("select id from book where title = ? or title = ?");
+    }
+
+    @Test
+    void identifiersWithDigitsAreKept() {
+        assertThat(SlowQueryLog.normalize("select t1.id, \"alias_2\" from book t1 where t1.x2 = 3"))
+                .isEqualTo("select t1.id, \"alias_2\" from book t1 where t1.x2 = ?");
+    }
+
+    @Test
+    void listsOfAnyLengthReadTheSame() {
+        String three = SlowQueryLog.normalize("select * from book where id in (?, ?, ?)");
+        String many = SlowQueryLog.normalize("select * from book where id in (?,?, ?,  ?, ?)");
+        String inline = SlowQueryLog.normalize("select * from book where id in (1, 2, 3)");
+        assertThat(three).isEqualTo("select * from book where id in (?, ...)").isEqualTo(many).isEqualTo(inline);
+        // a single element is not a list
+        assertThat(SlowQueryLog.normalize("select * from book where id in (?)"))
+                .isEqualTo("select * from book where id in (?)");
+    }
+
+    @Test
+    void multiRowValuesCollapseToOneRow() {
+        assertThat(SlowQueryLog.normalize("insert into book (title, price) values (?, ?), (?, ?), (?, ?)"))
+                .isEqualTo("insert into book (title, price) values (?, ...), ...");
+        assertThat(SlowQueryLog.normalize("insert into author (name) values ('a'), ('b')"))
+                .isEqualTo("insert into author (name) values (?), ...");
+    }
+
+    @Test
+    void whitespaceIsCollapsed() {
+        assertThat(SlowQueryLog.normalize("  select\n    id\tfrom book  ")).isEqualTo("select id from book");
+        assertThat(SlowQueryLog.normalize(null)).isNull();
+    }
+
+    @Test
+    void keepsTheMostRecentEntriesUpToItsCapacity() {
+        SlowQueryLog log = new SlowQueryLog(2);
+        for (int i = 1; i <= 3; i++) {
+            log.record("Service.query" + i, "select " + i, Duration.ofMillis(i * 100L), i);
+        }
+
+        assertThat(log.recent()).extracting(SlowQueryLog.SlowQuery::query)
+                .containsExactly("Service.query3", "Service.query2");
+        assertThat(log.recent().getFirst().sql()).isEqualTo("select ?");
+        assertThat(log.recent().getFirst().millis()).isEqualTo(300);
+
+        log.clear();
+        assertThat(log.recent()).isEmpty();
+    }
+}
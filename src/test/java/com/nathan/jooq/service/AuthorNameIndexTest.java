@@ -0,0 +1,117 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AuthorNameIndex#find} must answer what the {@code LIKE} fallback would: the ids of the authors whose name
+ * contains the fragment, ignoring case, with {@code %} and {@code _} taken literally. Accents are ignored as well,
+ * like MySQL's {@code _ai_ci} collations and unlike H2.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class AuthorNameIndexTest {
+
+    @Autowired
+    private DSLContext ctx;
+
+    private AuthorNameIndex index;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 300, 0, 17);
+        ctx.insertInto(AUTHOR, AUTHOR.NAME)
+                .values("José Saramago")
+                .values("JOSE SARAMAGO")
+                .values("100% Pure")
+                .values("snake_case")
+                .values("Anne-Marie O'Brien")
+                .values((String) null)
+                .execute();
+        index = new AuthorNameIndex(ctx, true, 1024);
+        index.reload();
+    }
+
+    @Test
+    void findsWhatLikeFinds() {
+        // none of these sits on an accent, where H2's LIKE differs on purpose (see accentsAreIgnored)
+        for (String fragment : new String[]{"a", "AU", "12", "r 2", "author 1", "THOR 29", "Author 299",
+                "saramago", "-mar", "o'b", "%", "0%", "_", "e_c", "nobody", "Author 3000"}) {
+            assertThat(index.find(fragment)).as(fragment).hasValue(like(fragment));
+        }
+    }
+
+    @Test
+    void wildcardsAreLiterals() {
+        assertThat(names(index.find("0%").orElseThrow())).containsExactly("100% Pure");
+        assertThat(names(index.find("e_c").orElseThrow())).containsExactly("snake_case");
+        // unescaped, LIKE would match every name with an "e" followed by any character and a "c"
+        assertThat(index.find("e_c").orElseThrow()).isEqualTo(like("e_c"));
+        assertThat(index.find("%")).hasValue(like("%"));
+    }
+
+    @Test
+    void accentsAreIgnored() {
+        List<String> found = names(index.find("jose").orElseThrow());
+        assertThat(found).containsExactlyInAnyOrder("José Saramago", "JOSE SARAMAGO");
+        assertThat(names(index.find("JOSÉ").orElseThrow())).isEqualTo(found);
+        // H2 compares accents exactly
+        assertThat(names(like("jose"))).containsExactly("JOSE SARAMAGO");
+    }
+
+    @Test
+    void tooManyMatchesFallBackToLike() {
+        AuthorNameIndex small = new AuthorNameIndex(ctx, true, 5);
+        small.reload();
+
+        // "Author 29" and "Author 290" to "Author 299"
+        assertThat(small.find("Author 29")).isEmpty();
+        assertThat(small.find("Author 299")).hasValue(like("Author 299"));
+        // shorter than a trigram: scanned rather than looked up, with the same cap
+        assertThat(small.find("9")).isEmpty();
+        assertThat(small.find("%")).hasValue(like("%"));
+    }
+
+    @Test
+    void authorsInsertedBehindTheIndexAreFoundAfterARefresh() {
+        ctx.insertInto(AUTHOR, AUTHOR.NAME).values("Late Arrival").execute();
+        assertThat(index.find("arrival")).hasValue(List.of());
+
+        index.refresh();
+        assertThat(index.find("arrival")).hasValue(like("arrival"));
+        assertThat(index.find("arrival").orElseThrow()).hasSize(1);
+    }
+
+    @Test
+    void anUnloadedIndexCannotAnswer() {
+        assertThat(new AuthorNameIndex(ctx, true, 1024).find("Author 1")).isEmpty();
+        AuthorNameIndex disabled = new AuthorNameIndex(ctx, false, 1024);
+        disabled.reload();
+        assertThat(disabled.find("Author 1")).isEmpty();
+    }
+
+    /** The fallback's condition: {@code LIKE '%fragment%'} ignoring case, with the fragment's wildcards escaped. */
+    private List<Long> like(String fragment) {
+        return ctx.select(AUTHOR.ID)
+                .from(AUTHOR)
+                .where(AUTHOR.NAME.likeIgnoreCase("%" + DSL.escape(fragment, '!') + "%", '!'))
+                .orderBy(AUTHOR.ID)
+                .fetch(AUTHOR.ID);
+    }
+
+    private List<String> names(List<Long> ids) {
+        return ctx.select(AUTHOR.NAME).from(AUTHOR).where(AUTHOR.ID.in(ids)).orderBy(AUTHOR.ID).fetch(AUTHOR.NAME);
+    }
+}
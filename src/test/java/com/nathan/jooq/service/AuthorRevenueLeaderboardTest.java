@@ -0,0 +1,89 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorAssignment;
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.AuthorRevenueDTO;
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.UpdateBookPriceRequest;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The leaderboard must answer exactly what the SQL ranking does, before and after writes made through the services
+ * once they have been refreshed in.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class AuthorRevenueLeaderboardTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private AuthorRevenueLeaderboard leaderboard;
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private BookService bookService;
+
+    @Test
+    void matchesSqlAcrossWrites() throws Exception {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 60, 800, 11);
+        leaderboard.reload();
+        assertMatchesSql();
+
+        // namesakes are ranked separately, and a tie shares its rank
+        AuthorDTO first = authorService.create("Namesake", null, null, null);
+        AuthorDTO second = authorService.create("Namesake", null, null, null);
+        for (AuthorDTO author : List.of(first, second)) {
+            bookService.create(new BookCreateRequest("By " + author.id(), null, 2024, new BigDecimal("99999.99"),
+                    List.of(new AuthorAssignment(author.id(), "Author"))));
+        }
+        leaderboard.refresh();
+        List<AuthorRevenueDTO> top = leaderboard.top(2);
+        assertThat(top).extracting(AuthorRevenueDTO::id).containsExactly(first.id(), second.id());
+        assertThat(top).extracting(AuthorRevenueDTO::rank).containsExactly(1, 1);
+        assertMatchesSql();
+
+        // an author whose only book has no price
+        AuthorDTO unpriced = authorService.create("Unpriced", null, null, null);
+        bookService.create(new BookCreateRequest("Unpriced book", null, null, null,
+                List.of(new AuthorAssignment(unpriced.id(), "Author"))));
+        assertMatchesSql();
+
+        Long repriced = ctx.select(BOOK.ID).from(BOOK).orderBy(BOOK.ID).limit(1).fetchOne(BOOK.ID);
+        bookService.updatePrice(repriced, new BigDecimal("5000.00"));
+        assertMatchesSql();
+
+        UpdateBookPriceRequest req = new UpdateBookPriceRequest();
+        req.setAuthorCountry("USA");
+        req.setPercent(new BigDecimal("-40"));
+        bookService.updateBookPriceByAuthor(req);
+        assertMatchesSql();
+    }
+
+    private void assertMatchesSql() {
+        leaderboard.refresh();
+        assertThat(leaderboard.ready()).isTrue();
+        int authors = ctx.fetchCount(AUTHOR);
+        for (int limit : new int[]{0, 1, 5, authors + 1}) {
+            assertThat(authorService.topAuthorsByRevenue(limit)).as("top %d", limit)
+                    .isEqualTo(authorService.topAuthorsByRevenueQuery(limit).fetchInto(AuthorRevenueDTO.class));
+        }
+        for (Long id : ctx.select(AUTHOR.ID).from(AUTHOR).fetch(AUTHOR.ID)) {
+            assertThat(authorService.revenueRank(id)).as("author %d", id)
+                    .isEqualTo(authorService.revenueRankQuery(id).fetchOneInto(AuthorRevenueDTO.class));
+        }
+    }
+}
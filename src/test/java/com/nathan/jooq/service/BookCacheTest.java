@@ -0,0 +1,154 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.event.BooksChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A load that read the database before an eviction must not put what it read back into the cache, whether the
+ * loader blocks or emits later; one that started after it is cached as usual.
+ */
+class BookCacheTest {
+    private static final long ID = 1L;
+
+    private final BookCache cache = new BookCache(Duration.ofMinutes(10), 1000, new SimpleMeterRegistry());
+    /** The "database": the current title of each book. */
+    private final ConcurrentHashMap<Long, String> titles = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void aLoadOverlappingAnEvictionIsNotCached() throws Exception {
+        titles.put(ID, "v1");
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch evicted = new CountDownLatch(1);
+
+        CompletableFuture<BookDTO> stale = CompletableFuture.supplyAsync(() -> cache.get(ID, id -> {
+            BookDTO book = load(id);
+            read.countDown();
+            await(evicted);
+            return book;
+        }));
+        await(read);
+        update(ID, "v2");
+        evicted.countDown();
+
+        // the racing caller gets what it read, but nobody after it does
+        assertThat(stale.get(5, TimeUnit.SECONDS).title()).isEqualTo("v1");
+        assertThat(cache.get(ID, this::load).title()).isEqualTo("v2");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void aNonBlockingLoadOverlappingAnEvictionIsNotCached() throws Exception {
+        titles.put(ID, "v1");
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch evicted = new CountDownLatch(1);
+        Mono<BookDTO> loader = Mono.fromCallable(() -> {
+            BookDTO book = load(ID);
+            read.countDown();
+            await(evicted);
+            return book;
+        });
+
+        // subscribing is what starts the load: the generation is read then, not when the Mono is built
+        Mono<BookDTO> pending = cache.get(ID, loader);
+        update(ID, "v2");
+        CompletableFuture<BookDTO> stale = CompletableFuture.supplyAsync(pending::block);
+        await(read);
+        update(ID, "v3");
+        evicted.countDown();
+
+        assertThat(stale.get(5, TimeUnit.SECONDS).title()).isEqualTo("v2");
+        assertThat(cache.get(ID, Mono.fromCallable(() -> load(ID))).block().title()).isEqualTo("v3");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadsAfterAnEvictionAreCached() {
+        titles.put(ID, "v1");
+        assertThat(cache.get(ID, this::load).title()).isEqualTo("v1");
+        assertThat(cache.get(ID, this::load).title()).isEqualTo("v1");
+        assertThat(loads).hasValue(1);
+
+        update(ID, "v2");
+        assertThat(cache.get(ID, this::load).title()).isEqualTo("v2");
+        assertThat(cache.get(ID, Mono.fromCallable(() -> load(ID))).block().title()).isEqualTo("v2");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void afterConcurrentReadsAndWritesEveryBookIsCurrent() throws Exception {
+        int books = 8;
+        for (long id = 0; id < books; id++) titles.put(id, "0");
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Function<Long, BookDTO> slowLoader = id -> {
+            BookDTO book = load(id);
+            // widen the window between reading and publishing
+            Thread.yield();
+            return book;
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                readers.add(pool.submit(() -> {
+                    while (writing.get()) {
+                        for (long id = 0; id < books; id++) cache.get(id, slowLoader);
+                    }
+                }));
+            }
+            pool.submit(() -> {
+                for (int version = 1; version <= 2000; version++) {
+                    update((long) (version % books), String.valueOf(version));
+                }
+                writing.set(false);
+            }).get(30, TimeUnit.SECONDS);
+            for (Future<?> reader : readers) reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (long id = 0; id < books; id++) {
+            assertThat(cache.get(id, slowLoader).title()).as("book %d", id).isEqualTo(titles.get(id));
+        }
+    }
+
+    /** Commits a new title, then sends the event the write paths publish after commit. */
+    private void update(Long id, String title) {
+        titles.put(id, title);
+        cache.onBooksChanged(new BooksChangedEvent(List.of(id)));
+    }
+
+    private BookDTO load(Long id) {
+        loads.incrementAndGet();
+        return new BookDTO(id, titles.get(id), null, null, null, null, List.of());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
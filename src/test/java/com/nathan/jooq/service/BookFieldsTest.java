@@ -0,0 +1,134 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The MULTISET projection must map a book and its authors into the DTOs exactly as the batched {@code IN} queries
+ * of {@link BookLoader} do: every author column, the contribution of each link, authors by id, and an empty list
+ * for a book without authors.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class BookFieldsTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2021, 3, 4, 5, 6, 7);
+
+    @Autowired
+    private DSLContext ctx;
+
+    private Long first;
+    private Long second;
+    private Long third;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        first = author("First", "first@example.com", LocalDate.of(1970, 1, 2), "Peru");
+        second = author("Second", null, null, null);
+        third = author("Third", "third@example.com", LocalDate.of(1990, 12, 31), "Chile");
+    }
+
+    @Test
+    void aBookWithoutAuthorsHasAnEmptyList() {
+        Long book = book("Alone");
+
+        BookDTO dto = fetch(book);
+        assertThat(dto.authors()).isNotNull().isEmpty();
+        assertThat(dto.title()).isEqualTo("Alone");
+        assertThat(dto.price()).isEqualByComparingTo("12.34");
+        assertThat(dto.createdAt()).isEqualTo(CREATED);
+    }
+
+    @Test
+    void everyAuthorColumnAndTheContributionAreMapped() {
+        Long book = book("Written");
+        link(book, first, "Translator");
+        link(book, second, null);
+
+        assertThat(fetch(book).authors()).containsExactly(
+                new AuthorDTO(first, "First", "first@example.com", LocalDate.of(1970, 1, 2), "Peru", CREATED, "Translator"),
+                new AuthorDTO(second, "Second", null, null, null, CREATED, null));
+    }
+
+    @Test
+    void authorsAreOrderedById() {
+        Long book = book("Many hands");
+        // linked in reverse
+        link(book, third, "Editor");
+        link(book, first, "Author");
+        link(book, second, "Illustrator");
+
+        assertThat(fetch(book).authors()).extracting(AuthorDTO::id).containsExactly(first, second, third);
+        assertThat(fetch(book).authors()).extracting(AuthorDTO::contribution)
+                .containsExactly("Author", "Illustrator", "Editor");
+    }
+
+    @Test
+    void oneAuthorHasEachBooksOwnContribution() {
+        Long written = book("Written");
+        Long edited = book("Edited");
+        link(written, first, "Author");
+        link(edited, first, "Editor");
+
+        List<BookDTO> books = ctx.select(BookFields.bookWithAuthors())
+                .from(BOOK)
+                .orderBy(BOOK.ID)
+                .fetch(BookFields::toBookDTO);
+        assertThat(books).extracting(BookDTO::title).containsExactly("Written", "Edited");
+        assertThat(books).extracting(b -> b.authors().getFirst().contribution()).containsExactly("Author", "Editor");
+    }
+
+    @Test
+    void matchesTheBatchedLoad() {
+        TestData.seed(ctx, 20, 200, 3);
+        List<Long> ids = ctx.select(BOOK.ID).from(BOOK).orderBy(BOOK.ID).fetch(BOOK.ID);
+
+        List<BookDTO> nested = ctx.select(BookFields.bookWithAuthors())
+                .from(BOOK)
+                .orderBy(BOOK.ID)
+                .fetch(BookFields::toBookDTO);
+        assertThat(nested).isEqualTo(new BookLoader(ctx).books(ids));
+    }
+
+    private BookDTO fetch(Long id) {
+        return ctx.select(BookFields.bookWithAuthors())
+                .from(BOOK)
+                .where(BOOK.ID.eq(id))
+                .fetchOne(BookFields::toBookDTO);
+    }
+
+    private Long author(String name, String email, LocalDate birthDate, String country) {
+        return ctx.insertInto(AUTHOR, AUTHOR.NAME, AUTHOR.EMAIL, AUTHOR.BIRTH_DATE, AUTHOR.COUNTRY, AUTHOR.CREATED_AT)
+                .values(name, email, birthDate, country, CREATED)
+                .returning(AUTHOR.ID).fetchOne(AUTHOR.ID);
+    }
+
+    private Long book(String title) {
+        return ctx.insertInto(BOOK, BOOK.TITLE, BOOK.PRICE, BOOK.CREATED_AT)
+                .values(title, new BigDecimal("12.34"), CREATED)
+                .returning(BOOK.ID).fetchOne(BOOK.ID);
+    }
+
+    private void link(Long book, Long author, String contribution) {
+        ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID, BOOK_AUTHOR.CONTRIBUTION)
+                .values(book, author, contribution)
+                .execute();
+    }
+}
@@ -0,0 +1,196 @@
+package com.nathan.jooq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.jooq.dto.AuthorAssignment;
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.BulkImportError;
+import com.nathan.jooq.dto.BulkImportResult;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.Insert;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A bulk import rejects only the rows that cannot be inserted, and inserts the rest: rows failing validation, naming
+ * unknown authors or taken titles, including titles taken by someone else between the check and the INSERT.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class BookImportServiceTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private ObjectMapper json;
+    @Autowired
+    private BookImportService importService;
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private TitleRace race;
+
+    private Long author;
+    private Long coAuthor;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        author = authorService.create("Imported Author", "imported@example.com", null, "Peru").id();
+        coAuthor = authorService.create("Imported Co-author", "co@example.com", null, "Chile").id();
+        ctx.insertInto(BOOK, BOOK.TITLE).values("Existing").execute();
+    }
+
+    @Test
+    void rejectedRowsAreReportedAndTheRestInserted() throws Exception {
+        BulkImportResult result = importBooks(List.of(
+                book("First", author),
+                book(" "),
+                book("Existing", author),
+                book("Unknown author", author, -1L),
+                book("First"),
+                new BookCreateRequest("Negative", null, null, new BigDecimal("-1"), List.of()),
+                book("Second", coAuthor),
+                book("Third")), 3, 3);
+
+        assertThat(result.received()).isEqualTo(8);
+        assertThat(result.inserted()).isEqualTo(3);
+        assertThat(result.failed()).isEqualTo(5);
+        assertThat(result.errors()).extracting(BulkImportError::row).containsExactly(1, 2, 3, 4, 5);
+        assertThat(result.errors()).extracting(BulkImportError::message).containsExactly(
+                "Title is required", "Title already exists", "Unknown author id", "Title already exists",
+                "Price must not be negative");
+        assertThat(ctx.select(BOOK.TITLE).from(BOOK).orderBy(BOOK.ID).fetch(BOOK.TITLE))
+                .containsExactly("Existing", "First", "Second", "Third");
+    }
+
+    @Test
+    void anAuthorListedTwiceIsLinkedOnce() throws Exception {
+        BookCreateRequest twice = new BookCreateRequest("Twice", null, null, null, List.of(
+                new AuthorAssignment(author, "Author"),
+                new AuthorAssignment(coAuthor, "Editor"),
+                new AuthorAssignment(author, "Illustrator")));
+
+        BulkImportResult result = importBooks(List.of(twice, book("Once", author)), 10, 10);
+
+        assertThat(result.inserted()).isEqualTo(2);
+        assertThat(result.errors()).isEmpty();
+        Long twiceId = ctx.select(BOOK.ID).from(BOOK).where(BOOK.TITLE.eq("Twice")).fetchOne(BOOK.ID);
+        assertThat(ctx.select(BOOK_AUTHOR.AUTHOR_ID, BOOK_AUTHOR.CONTRIBUTION)
+                .from(BOOK_AUTHOR)
+                .where(BOOK_AUTHOR.BOOK_ID.eq(twiceId))
+                .orderBy(BOOK_AUTHOR.AUTHOR_ID)
+                .fetch(r -> r.value1() + ":" + r.value2()))
+                .containsExactly(author + ":Author", coAuthor + ":Editor");
+    }
+
+    @Test
+    void aTitleTakenConcurrentlyRejectsOnlyItsRow() throws Exception {
+        // committed by another connection just before the first chunk's INSERT, after its titles were checked
+        race.beforeNextInsert(() -> ctx.insertInto(BOOK, BOOK.TITLE).values("Raced").execute());
+
+        BulkImportResult result = importBooks(List.of(
+                book("Before", author),
+                book("Raced", author),
+                book("After", coAuthor),
+                book("Next chunk", author)), 3, 10);
+
+        assertThat(race.failure()).isNull();
+        assertThat(race.fired()).isTrue();
+        assertThat(result.inserted()).isEqualTo(3);
+        assertThat(result.errors()).containsExactly(new BulkImportError(1, "Raced", "Title already exists"));
+        assertThat(ctx.fetchCount(BOOK, BOOK.TITLE.in("Before", "After", "Next chunk", "Raced"))).isEqualTo(4);
+        // the rejected row's links went with it
+        assertThat(ctx.fetchCount(BOOK_AUTHOR)).isEqualTo(3);
+    }
+
+    private BulkImportResult importBooks(List<BookCreateRequest> rows, int batchSize, int commitSize) throws Exception {
+        return importService.importBooks(new ByteArrayInputStream(json.writeValueAsBytes(rows)), batchSize, commitSize);
+    }
+
+    private static BookCreateRequest book(String title, Long... authors) {
+        return new BookCreateRequest(title, null, null, null,
+                Arrays.stream(authors).map(id -> new AuthorAssignment(id, "Author")).toList());
+    }
+
+    /**
+     * Runs an action on another thread, to completion, before the next INSERT the arming thread executes; so the
+     * arming thread has written nothing the action could wait for.
+     */
+    static class TitleRace implements ExecuteListener {
+        private final AtomicReference<Runnable> pending = new AtomicReference<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile Thread armed;
+        private volatile boolean fired;
+
+        void beforeNextInsert(Runnable action) {
+            fired = false;
+            failure.set(null);
+            armed = Thread.currentThread();
+            pending.set(action);
+        }
+
+        /** Whether the action ran and completed without throwing. */
+        boolean fired() {
+            return fired;
+        }
+
+        Throwable failure() {
+            return failure.get();
+        }
+
+        @Override
+        public void executeStart(ExecuteContext ctx) {
+            // on H2 an INSERT .. RETURNING is rendered as SELECT .. FROM FINAL TABLE (INSERT ..), so go by the query
+            if (Thread.currentThread() != armed || !(ctx.query() instanceof Insert<?>)) return;
+            Runnable action = pending.getAndSet(null);
+            if (action == null) return;
+            armed = null;
+            Thread other = new Thread(() -> {
+                try {
+                    action.run();
+                    fired = true;
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        TitleRace titleRace() {
+            return new TitleRace();
+        }
+
+        @Bean
+        DefaultExecuteListenerProvider titleRaceProvider(TitleRace titleRace) {
+            return new DefaultExecuteListenerProvider(titleRace);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorAssignment;
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the statements a {@link BookLoader} runs: three per batch of books however many there are, none for what
+ * it has already loaded.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class BookLoaderTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private QueryCounter queries;
+
+    private AuthorDTO shared;
+    private AuthorDTO other;
+    private final List<Long> bookIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() throws Exception {
+        TestData.clear(ctx);
+        bookIds.clear();
+        shared = authorService.create("Shared Author", "shared@example.com", null, "Peru");
+        other = authorService.create("Other Author", "other@example.com", null, "Peru");
+        for (int i = 0; i < 5; i++) {
+            List<AuthorAssignment> authors = i % 2 == 0
+                    ? List.of(new AuthorAssignment(shared.id(), "Author"))
+                    : List.of(new AuthorAssignment(shared.id(), "Author"), new AuthorAssignment(other.id(), "Editor"));
+            bookIds.add(bookService.create(new BookCreateRequest("Loaded " + i, "isbn-l" + i, 2000 + i,
+                    new BigDecimal("10.00"), authors)).id());
+        }
+        bookIds.add(bookService.create(new BookCreateRequest("No authors", null, null, null, List.of())).id());
+    }
+
+    @Test
+    void loadsAnyNumberOfBooksInThreeQueries() {
+        BookLoader loader = new BookLoader(ctx);
+
+        List<BookDTO> books = queries.count(() -> loader.books(bookIds));
+
+        assertThat(queries.last()).isEqualTo(3);
+        assertThat(books).extracting(BookDTO::id).containsExactlyElementsOf(bookIds);
+        for (BookDTO book : books) {
+            assertThat(book.authors()).isEqualTo(bookService.getBookById(book.id()).authors());
+            assertThat(book.authors()).extracting(AuthorDTO::id).isSorted();
+        }
+        // one instance per author and contribution, across books
+        assertThat(books.get(0).authors().get(0)).isSameAs(books.get(1).authors().get(0));
+        assertThat(books.get(1).authors().get(1)).isSameAs(books.get(3).authors().get(1));
+    }
+
+    @Test
+    void deferredLookupsShareOneBatch() {
+        BookLoader loader = new BookLoader(ctx);
+
+        List<BookDTO> books = queries.count(() -> {
+            List<Supplier<BookDTO>> loads = bookIds.stream().map(loader::book).toList();
+            return loads.stream().map(Supplier::get).toList();
+        });
+
+        assertThat(queries.last()).isEqualTo(3);
+        assertThat(books).extracting(BookDTO::id).containsExactlyElementsOf(bookIds);
+    }
+
+    @Test
+    void whatIsLoadedIsNotQueriedAgain() {
+        BookLoader loader = new BookLoader(ctx);
+        loader.books(bookIds.subList(0, 2));
+
+        // the authors came with the first two books
+        List<AuthorDTO> authors = queries.count(() -> loader.authors(List.of(other.id(), shared.id())));
+        assertThat(queries.last()).isZero();
+        assertThat(authors).extracting(AuthorDTO::name).containsExactly("Other Author", "Shared Author");
+        assertThat(authors).extracting(AuthorDTO::contribution).containsOnlyNulls();
+
+        // only the new books are read, and the known authors are not
+        List<BookDTO> books = queries.count(() -> loader.books(bookIds));
+        assertThat(queries.last()).isEqualTo(2);
+        assertThat(books).hasSize(bookIds.size());
+    }
+
+    @Test
+    void unknownIdsAreLeftOut() {
+        BookLoader loader = new BookLoader(ctx);
+        long unknown = ctx.select(DSL.max(BOOK.ID)).from(BOOK).fetchOne(0, Long.class) + 1;
+
+        List<BookDTO> books = queries.count(() -> loader.books(List.of(unknown, bookIds.get(0))));
+
+        assertThat(books).extracting(BookDTO::id).containsExactly(bookIds.get(0));
+        assertThat(loader.book(unknown).get()).isNull();
+        assertThat(queries.count(() -> loader.books(List.of(unknown)))).isEmpty();
+        assertThat(queries.last()).isZero();
+    }
+
+    @Test
+    void largeBatchesAreSplit() {
+        BookLoader loader = new BookLoader(ctx);
+        List<Long> ids = LongStream.range(0, BookLoader.MAX_BATCH + 1).map(i -> -i - 1).boxed().toList();
+
+        assertThat(queries.count(() -> loader.books(ids))).isEmpty();
+        // no book found: the links query is skipped
+        assertThat(queries.last()).isEqualTo(2);
+    }
+
+    /** Counts the statements the calling thread runs inside {@link #count}, ignoring scheduled jobs. */
+    static class QueryCounter implements ExecuteListener {
+        private final AtomicInteger executed = new AtomicInteger();
+        private volatile Thread counting;
+
+        <T> T count(Supplier<T> work) {
+            executed.set(0);
+            counting = Thread.currentThread();
+            try {
+                return work.get();
+            } finally {
+                counting = null;
+            }
+        }
+
+        int last() {
+            return executed.get();
+        }
+
+        @Override
+        public void start(ExecuteContext ctx) {
+            if (Thread.currentThread() == counting) executed.incrementAndGet();
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        QueryCounter queryCounter() {
+            return new QueryCounter();
+        }
+
+        @Bean
+        DefaultExecuteListenerProvider queryCounterProvider(QueryCounter queryCounter) {
+            return new DefaultExecuteListenerProvider(queryCounter);
+        }
+    }
+}
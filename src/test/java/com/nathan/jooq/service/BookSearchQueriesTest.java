@@ -0,0 +1,119 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.BookCursor;
+import com.nathan.jooq.service.BookSearchQueries.Kind;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every query shape run through its cached template must return what the same query built with the values inline
+ * does, the MULTISET authors column included; and a keyset seek, which repeats a parameter, must continue exactly
+ * after its cursor, through {@code created_at} ties.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class BookSearchQueriesTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private AuthorNameIndex authorIndex;
+    @Autowired
+    private BookSearchQueries indexed;
+
+    /** Never loaded, so author filters take the {@code LIKE} shape. */
+    private BookSearchQueries unindexed;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        // created_at ties are common
+        TestData.seed(ctx, 20, 300, 5);
+        authorIndex.reload();
+        unindexed = new BookSearchQueries(ctx, new AuthorNameIndex(ctx, false, 0));
+    }
+
+    @Test
+    void pagesAndCountsMatchTheQueryBuiltWithValues() {
+        for (BookSearchQueries queries : List.of(indexed, unindexed)) {
+            for (String author : new String[]{null, "Author 1", "nobody"}) {
+                Map<String, Object> page = queries.filter(author, null, null, null);
+                page.put(BookSearchQueries.LIMIT, 20);
+                page.put(BookSearchQueries.OFFSET, 40L);
+                assertMatches(queries.page(author, null, null, null, false, 20, 40L), queries, Kind.PAGE, page);
+
+                Map<String, Object> windowed = queries.filter(author, 2000, null, null);
+                windowed.put(BookSearchQueries.LIMIT, 20);
+                windowed.put(BookSearchQueries.OFFSET, 0L);
+                assertMatches(queries.page(author, 2000, null, null, true, 20, 0L),
+                        queries, Kind.PAGE_WINDOW_TOTAL, windowed);
+
+                BigDecimal min = new BigDecimal("50");
+                assertMatches(queries.count(author, null, min, null),
+                        queries, Kind.COUNT, queries.filter(author, null, min, null));
+            }
+        }
+    }
+
+    @Test
+    void scansContinueRightAfterTheirCursor() {
+        for (BookSearchQueries queries : List.of(indexed, unindexed)) {
+            for (String author : new String[]{null, "Author 1"}) {
+                List<Record> all = queries.scan(author, null, null, null, null, null).fetch();
+                assertThat(all).isNotEmpty();
+                assertMatches(queries.scan(author, null, null, null, null, 7),
+                        queries, Kind.SCAN, scanValues(queries, author, null, 7));
+
+                for (int i = 0; i < all.size(); i += 11) {
+                    BookCursor after = new BookCursor(all.get(i).get(BOOK.CREATED_AT), all.get(i).get(BOOK.ID));
+                    List<Record> rest = all.subList(i + 1, all.size());
+
+                    assertThat(rows(queries.scan(author, null, null, null, after, null).fetch()))
+                            .isEqualTo(rows(rest));
+                    assertThat(rows(queries.scan(author, null, null, null, after, 5).fetch()))
+                            .isEqualTo(rows(rest.subList(0, Math.min(5, rest.size()))));
+                    assertMatches(queries.scan(author, null, null, null, after, 5),
+                            queries, Kind.SCAN, scanValues(queries, author, after, 5));
+                }
+            }
+        }
+    }
+
+    private static Map<String, Object> scanValues(BookSearchQueries queries, String author, BookCursor after,
+                                                  Integer limit) {
+        Map<String, Object> values = queries.filter(author, null, null, null);
+        if (after != null) {
+            if (after.createdAt() != null) values.put(BookSearchQueries.AFTER_CREATED_AT, after.createdAt());
+            values.put(BookSearchQueries.AFTER_ID, after.id());
+        }
+        if (limit != null) values.put(BookSearchQueries.LIMIT, limit);
+        return values;
+    }
+
+    private static void assertMatches(ResultQuery<Record> cached, BookSearchQueries queries, Kind kind,
+                                      Map<String, Object> values) {
+        List<List<Object>> expected = rows(queries.build(kind, values.keySet(),
+                (name, type) -> DSL.val(values.get(name), type)).fetch());
+        assertThat(rows(cached.fetch())).as("%s %s", kind, values.keySet()).isEqualTo(expected);
+    }
+
+    /** Every column, the authors as {@code AuthorDTO}s. */
+    private static List<List<Object>> rows(List<? extends Record> records) {
+        return records.stream().map(Record::intoList).toList();
+    }
+}
@@ -0,0 +1,101 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.support.TestData;
+import org.apache.coyote.BadRequestException;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Title uniqueness now rests on {@code uk_book_title} rather than a locking read.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class BookServiceConcurrencyTest {
+    private static final int THREADS = 8;
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private BookService bookService;
+
+    @BeforeEach
+    void clean() {
+        TestData.clear(ctx);
+    }
+
+    @Test
+    void racingCreatesOfOneTitleInsertExactlyOnce() throws Exception {
+        List<Boolean> outcomes = runConcurrently(i -> "Contended title");
+
+        assertThat(outcomes).containsOnlyOnce(true);
+        assertThat(ctx.fetchCount(BOOK, BOOK.TITLE.eq("Contended title"))).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCreatesOfDistinctTitlesAllSucceed() throws Exception {
+        List<Boolean> outcomes = runConcurrently(i -> "Title " + i);
+
+        assertThat(outcomes).containsOnly(true);
+        assertThat(ctx.fetchCount(BOOK)).isEqualTo(THREADS * 25);
+    }
+
+    @Test
+    void otherFailuresOfTheInsertAreNotReportedAsDuplicateTitles() {
+        // longer than book.title: a data error, which INSERT IGNORE would have turned into a warning and no row
+        String tooLong = "x".repeat(300);
+
+        assertThatThrownBy(() -> bookService.create(new BookCreateRequest(tooLong, null, null, null, List.of())))
+                .isInstanceOf(RuntimeException.class)
+                .isNotInstanceOf(BadRequestException.class);
+        assertThat(ctx.fetchCount(BOOK)).isZero();
+    }
+
+    /** Every thread creates 25 books titled by {@code title(threadIndex * 25 + n)}; returns per-create success. */
+    private List<Boolean> runConcurrently(java.util.function.IntFunction<String> title) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<Boolean>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    List<Boolean> results = new ArrayList<>();
+                    for (int n = 0; n < 25; n++) {
+                        try {
+                            bookService.create(new BookCreateRequest(
+                                    title.apply(thread * 25 + n), "isbn", 2024, BigDecimal.TEN, List.of()));
+                            results.add(true);
+                        } catch (BadRequestException e) {
+                            results.add(false);
+                        }
+                    }
+                    return results;
+                }));
+            }
+            start.countDown();
+            List<Boolean> all = new ArrayList<>();
+            for (Future<List<Boolean>> f : futures) all.addAll(f.get());
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
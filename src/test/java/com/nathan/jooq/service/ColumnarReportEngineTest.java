@@ -0,0 +1,156 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorAssignment;
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.CountryRankingDTO;
+import com.nathan.jooq.dto.UpdateBookPriceRequest;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Differential test: every report computed from the columnar tables must equal the SQL one, value for value
+ * (including BigDecimal scale), over randomized catalogs and after writes made through the services.
+ */
+@SpringBootTest(properties = {
+        "app.reports.columnar.enabled=true",
+        // several batches per table
+        "app.reports.columnar.load-batch-size=97",
+        // changes are applied by current() alone, which a concurrent refresh would make return null
+        "app.reports.columnar.refresh-interval=1h"})
+@ActiveProfiles("h2")
+class ColumnarReportEngineTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private ColumnarReportEngine engine;
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private AuthorService authorService;
+
+    @Test
+    void reportsMatchSqlOverRandomizedCatalogs() {
+        for (long seed = 1; seed <= 3; seed++) {
+            TestData.clear(ctx);
+            TestData.seed(ctx, 40 * (int) seed, 700 * (int) seed, seed);
+            addEdgeCases();
+            engine.reload();
+
+            assertMatchesSql();
+        }
+    }
+
+    @Test
+    void committedWritesAreApplied() throws Exception {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 30, 500, 7);
+        engine.reload();
+        assertMatchesSql();
+
+        AuthorDTO author = authorService.create("Columnar Author", "columnar@example.com", LocalDate.of(1980, 1, 1), "Peru");
+        Long existingAuthor = ctx.select(AUTHOR.ID).from(AUTHOR).orderBy(AUTHOR.ID).limit(1).fetchOne(AUTHOR.ID);
+        BookDTO book = bookService.create(new BookCreateRequest("Columnar Book", "isbn-columnar", 2031,
+                new BigDecimal("77.70"), List.of(
+                        new AuthorAssignment(author.id(), "Author"),
+                        new AuthorAssignment(existingAuthor, "Co-author"))));
+        authorService.create("Columnar Author Without Books", null, null, null);
+        assertMatchesSql();
+
+        Long repriced = ctx.select(BOOK.ID).from(BOOK).orderBy(BOOK.ID.desc()).limit(1, 1).fetchOne(BOOK.ID);
+        bookService.updatePrice(repriced, new BigDecimal("1234.56"));
+        bookService.updatePrice(book.id(), new BigDecimal("10.05"));
+        assertMatchesSql();
+
+        UpdateBookPriceRequest req = new UpdateBookPriceRequest();
+        req.setAuthorCountry("France");
+        req.setPercent(new BigDecimal("12.5"));
+        bookService.updateBookPriceByAuthor(req);
+        assertMatchesSql();
+    }
+
+    @Test
+    void countriesAreGroupedAndTiesOrderedByTheColumnCollation() {
+        String[] countries = {"UK", "uk", "Åland", "aland", "Zambia", "Brazil"};
+        ColumnarTables.BookRows books = new ColumnarTables.BookRows(countries.length);
+        ColumnarTables.AuthorRows authors = new ColumnarTables.AuthorRows(countries.length);
+        ColumnarTables.EdgeRows edges = new ColumnarTables.EdgeRows(countries.length);
+        for (int i = 1; i <= countries.length; i++) {
+            books.add(i, 2000, new BigDecimal("10.00"));
+            authors.add(i, "Author " + i, countries[i - 1]);
+            edges.add(i, i);
+        }
+
+        ColumnarTables accentInsensitive = ColumnarTables.of(books, authors, edges,
+                new ColumnarTables.Semantics(ColumnarTables.PRICE_SCALE + 4, ColumnCollation.named("utf8mb4_0900_ai_ci")));
+        assertThat(accentInsensitive.countryRankings()).containsExactly(
+                ranking("Åland", "20", 1), ranking("UK", "20", 1), ranking("Brazil", "10", 3), ranking("Zambia", "10", 3));
+
+        // an author added later joins the group of the spelling already loaded
+        ColumnarTables.BookRows newBook = new ColumnarTables.BookRows(1);
+        newBook.add(7, 2000, new BigDecimal("10.00"));
+        ColumnarTables.AuthorRows newAuthor = new ColumnarTables.AuthorRows(1);
+        newAuthor.add(7, "Author 7", "ZAMBIA");
+        ColumnarTables.EdgeRows newEdge = new ColumnarTables.EdgeRows(1);
+        newEdge.add(7, 7);
+        assertThat(accentInsensitive.with(newBook, newAuthor, newEdge).countryRankings()).containsExactly(
+                ranking("Åland", "20", 1), ranking("UK", "20", 1), ranking("Zambia", "20", 1), ranking("Brazil", "10", 4));
+
+        ColumnarTables exact = ColumnarTables.of(books, authors, edges,
+                new ColumnarTables.Semantics(ColumnarTables.PRICE_SCALE + 4, ColumnCollation.named("utf8mb4_bin")));
+        assertThat(exact.countryRankings()).extracting(CountryRankingDTO::getCountry)
+                .containsExactly("Brazil", "UK", "Zambia", "aland", "uk", "Åland");
+    }
+
+    private static CountryRankingDTO ranking(String country, String totalValue, int rank) {
+        return new CountryRankingDTO(country, new BigDecimal(totalValue).setScale(ColumnarTables.PRICE_SCALE), rank);
+    }
+
+    private void assertMatchesSql() {
+        ColumnarTables tables = engine.current();
+        assertThat(tables).isNotNull();
+
+        for (int minYear : new int[]{Integer.MIN_VALUE, 1990, 2010, 2031, 3000}) {
+            assertThat(tables.yearlyStats(minYear)).as("yearlyStats(%d)", minYear)
+                    .isEqualTo(reportService.yearlyStats(minYear));
+        }
+        assertThat(tables.bookByYear()).isEqualTo(reportService.reportBookByYear());
+        assertThat(tables.topAuthorsByAvgPrice()).isEqualTo(reportService.topAuthorsByAvgPrice());
+        assertThat(tables.countryRankings()).isEqualTo(reportService.rankCountriesByBookValue());
+        assertThat(tables.authorRankings()).isEqualTo(reportService.getAuthorRankings());
+    }
+
+    /** Ties on every ranked value, authors without priced books, and authors without books. */
+    private void addEdgeCases() {
+        for (int i = 0; i < 3; i++) {
+            Long author = ctx.insertInto(AUTHOR, AUTHOR.NAME, AUTHOR.COUNTRY)
+                    .values("Tied " + i, i == 0 ? "Tiedland" : "Otherland" + i)
+                    .returning(AUTHOR.ID).fetchOne(AUTHOR.ID);
+            Long book = ctx.insertInto(BOOK, BOOK.TITLE, BOOK.PUBLISHED_YEAR, BOOK.PRICE)
+                    .values("Tied book " + i, 2000, new BigDecimal("999.99"))
+                    .returning(BOOK.ID).fetchOne(BOOK.ID);
+            ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID).values(book, author).execute();
+        }
+        Long unpriced = ctx.insertInto(AUTHOR, AUTHOR.NAME).values("Unpriced").returning(AUTHOR.ID).fetchOne(AUTHOR.ID);
+        Long book = ctx.insertInto(BOOK, BOOK.TITLE).values("Unpriced book").returning(BOOK.ID).fetchOne(BOOK.ID);
+        ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID).values(book, unpriced).execute();
+        ctx.insertInto(AUTHOR, AUTHOR.NAME, AUTHOR.COUNTRY).values("No books", "Nowhere").execute();
+    }
+}
@@ -0,0 +1,144 @@
+package com.nathan.jooq.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * {@code /books/search/compact} must carry the same page as {@code /books/search}, in every encoding and total mode,
+ * once the author references are resolved.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class CompactSearchPageTest {
+    private static final int BOOKS = 300;
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private MappingJackson2HttpMessageConverter json;
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smile;
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cbor;
+
+    @BeforeEach
+    void seed() {
+        if (ctx.fetchCount(BOOK) == BOOKS) return;
+        TestData.clear(ctx);
+        TestData.seed(ctx, 20, BOOKS, 11);
+    }
+
+    @Test
+    void compactPagesMatchTheSearchPagesInEveryEncoding() throws Exception {
+        Map<String, ObjectMapper> encodings = Map.of(
+                "application/json", json.getObjectMapper(),
+                "application/x-jackson-smile", smile.getObjectMapper(),
+                "application/cbor", cbor.getObjectMapper());
+
+        for (TotalMode mode : TotalMode.values()) {
+            for (int page : new int[]{0, 3, 100}) {
+                PageResult<BookDTO> expected = bookService.search(null, null, null, null, page, 25, mode);
+                for (Map.Entry<String, ObjectMapper> encoding : encodings.entrySet()) {
+                    byte[] body = fetch("/books/search/compact?size=25&page=" + page + "&totalMode=" + mode,
+                            encoding.getKey());
+
+                    assertThat(expand(encoding.getValue(), body))
+                            .as("%s page %d as %s", mode, page, encoding.getKey())
+                            .usingRecursiveComparison()
+                            .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                            .isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    void eachAuthorIsWrittenOncePerPage() throws Exception {
+        JsonNode page = json.getObjectMapper().readTree(fetch("/books/search/compact?size=100", "application/json"));
+
+        List<Long> authorIds = new ArrayList<>();
+        page.get("authors").forEach(author -> authorIds.add(author.get("id").asLong()));
+        int references = 0;
+        for (JsonNode book : page.get("books")) {
+            for (JsonNode ref : book.get("authors")) {
+                assertThat(authorIds).contains(ref.get("id").asLong());
+                references++;
+            }
+        }
+        assertThat(authorIds).doesNotHaveDuplicates().hasSizeLessThan(references);
+    }
+
+    @Test
+    void wildcardAcceptGetsJson() throws Exception {
+        MvcResult started = mvc.perform(get("/books/search/compact").header("Accept", "*/*"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(mvc.perform(asyncDispatch(started)).andReturn().getResponse().getContentType())
+                .startsWith("application/json");
+    }
+
+    private byte[] fetch(String uri, String accept) throws Exception {
+        MvcResult started = mvc.perform(get(uri).header("Accept", accept))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(started)).andReturn().getResponse().getContentAsByteArray();
+    }
+
+    /** Rebuilds the {@code /books/search} page from a compact one by resolving each author reference. */
+    private static PageResult<BookDTO> expand(ObjectMapper mapper, byte[] body) throws Exception {
+        JsonNode page = mapper.readTree(body);
+        Map<Long, JsonNode> authors = new HashMap<>();
+        page.get("authors").forEach(author -> authors.put(author.get("id").asLong(), author));
+
+        List<BookDTO> books = new ArrayList<>();
+        for (JsonNode book : page.get("books")) {
+            ObjectNode dto = book.deepCopy();
+            List<JsonNode> bookAuthors = new ArrayList<>();
+            for (JsonNode ref : book.get("authors")) {
+                ObjectNode author = authors.get(ref.get("id").asLong()).deepCopy();
+                bookAuthors.add(author.set("contribution", ref.get("contribution")));
+            }
+            dto.putArray("authors").addAll(bookAuthors);
+            books.add(mapper.treeToValue(dto, BookDTO.class));
+        }
+        JsonNode total = page.get("total");
+        return new PageResult<>(books, page.get("page").asInt(), page.get("size").asInt(),
+                total.isNull() ? null : total.asInt(), page.get("hasNext").asBoolean(),
+                TotalMode.valueOf(page.get("totalMode").asText()));
+    }
+}
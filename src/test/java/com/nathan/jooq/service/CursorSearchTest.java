@@ -0,0 +1,136 @@
+package com.nathan.jooq.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.jooq.dto.BookCursor;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.CursorPage;
+import com.nathan.jooq.support.TestData;
+import org.apache.coyote.BadRequestException;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Following {@code nextCursor} from the first page must visit every matching book exactly once, in
+ * {@code (created_at, id)} descending order: through {@code created_at} ties and books without one.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class CursorSearchTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper json;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private AuthorNameIndex authorIndex;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        // created_at ties are common
+        TestData.seed(ctx, 20, 300, 3);
+        Long author = ctx.select(AUTHOR.ID).from(AUTHOR).where(AUTHOR.NAME.eq("Author 1")).fetchOne(AUTHOR.ID);
+        for (int i = 0; i < 5; i++) {
+            Long book = ctx.insertInto(BOOK, BOOK.TITLE, BOOK.CREATED_AT)
+                    .values("Undated " + i, (LocalDateTime) null)
+                    .returning(BOOK.ID).fetchOne(BOOK.ID);
+            ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID).values(book, author).execute();
+        }
+        authorIndex.reload();
+    }
+
+    @Test
+    void followingTheCursorVisitsEveryBookOnce() throws Exception {
+        for (int size : new int[]{1, 7, 50, 1000}) {
+            assertThat(pageThrough(null, size)).as("size %d", size).isEqualTo(expected(DSL.noCondition()));
+        }
+        Condition byAuthor = BOOK.ID.in(DSL.select(BOOK_AUTHOR.BOOK_ID)
+                .from(BOOK_AUTHOR)
+                .join(AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
+                .where(AUTHOR.NAME.like("%Author 1%")));
+        assertThat(pageThrough("Author 1", 9)).isEqualTo(expected(byAuthor));
+    }
+
+    @Test
+    void theFirstPageNeedsNoCursor() throws Exception {
+        JsonNode first = json.readTree(mvc.perform(get("/books/search/cursor?size=4"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        List<Long> expected = expected(DSL.noCondition());
+        assertThat(first.get("content")).extracting(book -> book.get("id").asLong())
+                .containsExactlyElementsOf(expected.subList(0, 4));
+
+        JsonNode second = json.readTree(mvc.perform(get("/books/search/cursor")
+                        .param("size", "4")
+                        .param("cursor", first.get("nextCursor").asText()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertThat(second.get("content")).extracting(book -> book.get("id").asLong())
+                .containsExactlyElementsOf(expected.subList(4, 8));
+    }
+
+    @Test
+    void badSizesAndCursorsAreRejected() {
+        for (int size : new int[]{0, -1}) {
+            assertThatThrownBy(() -> bookService.searchByCursor(null, null, null, null, null, size))
+                    .isInstanceOf(BadRequestException.class);
+        }
+        assertThatThrownBy(() -> bookService.searchByCursor(null, null, null, null, "not-a-cursor", 10))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void cursorsOnBooksWithoutCreatedAtRoundTrip() {
+        BookCursor undated = new BookCursor(null, 42L);
+        assertThat(BookCursor.decode(undated.encode())).isEqualTo(undated);
+        BookCursor dated = new BookCursor(LocalDateTime.of(2020, 2, 29, 12, 0, 0, 500), 7L);
+        assertThat(BookCursor.decode(dated.encode())).isEqualTo(dated);
+    }
+
+    private List<Long> pageThrough(String author, int size) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<BookDTO> page = bookService.searchByCursor(author, null, null, null, cursor, size);
+            assertThat(page.content()).hasSizeLessThanOrEqualTo(size);
+            if (page.hasNext()) assertThat(page.content()).hasSize(size);
+            page.content().forEach(book -> ids.add(book.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    /** MySQL and H2 both sort a null {@code created_at} last when descending. */
+    private List<Long> expected(Condition condition) {
+        return ctx.select(BOOK.ID).from(BOOK)
+                .where(condition)
+                .orderBy(BOOK.CREATED_AT.desc(), BOOK.ID.desc())
+                .fetch(BOOK.ID);
+    }
+}
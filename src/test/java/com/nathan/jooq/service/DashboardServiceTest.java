@@ -0,0 +1,94 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.DashboardDTO;
+import com.nathan.jooq.dto.DashboardReport;
+import com.nathan.jooq.dto.DashboardSection;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The h2 profile disables report snapshots, so every section here is a live, parallel query.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class DashboardServiceTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private ReportSnapshotService snapshots;
+    @Autowired
+    private DashboardService dashboardService;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 50, 2000, 7);
+    }
+
+    @Test
+    void everyReportMatchesItsStandaloneEndpoint() {
+        DashboardDTO dashboard = dashboardService.dashboard(null, 2000, 2);
+
+        assertThat(dashboard.reports()).containsOnlyKeys(DashboardReport.values());
+        assertThat(dashboard.reports().values())
+                .allSatisfy(section -> assertThat(section.status()).isEqualTo(DashboardSection.Status.OK));
+        for (DashboardReport report : DashboardReport.values()) {
+            assertThat(dashboard.reports().get(report).rows()).as(report.name())
+                    .isNotEmpty()
+                    .isEqualTo(standalone(report, 2000, 2));
+        }
+    }
+
+    @Test
+    void aSelectionIncludesOnlyItsReports() {
+        DashboardDTO dashboard = dashboardService.dashboard(
+                List.of(DashboardReport.BOOKS_BY_YEAR, DashboardReport.INACTIVE_AUTHORS), 2010, 5);
+
+        assertThat(dashboard.reports()).containsOnlyKeys(DashboardReport.BOOKS_BY_YEAR, DashboardReport.INACTIVE_AUTHORS);
+        dashboard.reports().forEach((report, section) ->
+                assertThat(section.rows()).as(report.name()).isEqualTo(standalone(report, 2010, 5)));
+    }
+
+    @Test
+    void reportsPastTheTimeoutAreMarkedInsteadOfFailingTheDashboard() {
+        DashboardService impatient = new DashboardService(ctx, snapshots, 2, 64, Duration.ofNanos(1));
+        try {
+            DashboardDTO dashboard = impatient.dashboard(
+                    List.of(DashboardReport.AUTHOR_RANKINGS, DashboardReport.BOOKS_BY_YEAR), 2000, 2);
+
+            assertThat(dashboard.reports()).containsOnlyKeys(DashboardReport.AUTHOR_RANKINGS, DashboardReport.BOOKS_BY_YEAR);
+            assertThat(dashboard.reports().values()).allSatisfy(section -> {
+                assertThat(section.status()).isEqualTo(DashboardSection.Status.TIMEOUT);
+                assertThat(section.rows()).isNull();
+            });
+        } finally {
+            impatient.shutdown();
+        }
+    }
+
+    /** What the report's own {@code /reports/*} endpoint returns; a new report must be added here. */
+    private List<?> standalone(DashboardReport report, int minPublishedYear, int yearsThreshold) {
+        return switch (report) {
+            case YEARLY_STATS -> reportService.yearlyStats(minPublishedYear);
+            case AUTHOR_BOOK_VALUE -> reportService.reportAuthorBookValue();
+            case BOOKS_BY_YEAR -> reportService.reportBookByYear();
+            case TOP_AUTHORS_BY_AVG_PRICE -> reportService.topAuthorsByAvgPrice();
+            case COUNTRY_RANKINGS -> reportService.rankCountriesByBookValue();
+            case INACTIVE_AUTHORS -> reportService.findInactiveAuthors(yearsThreshold);
+            case AUTHOR_RANKINGS -> reportService.getAuthorRankings();
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.export.ExportFormat;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports a large seeded catalog and checks that rows flow to the output while the cursor is still being read:
+ * the number of rows fetched but not yet written must stay bounded by the buffers, whatever the result size.
+ */
+@SpringBootTest(properties = "app.export.fetch-size=200")
+@ActiveProfiles("h2")
+class ExportServiceTest {
+    private static final int BOOKS = 20_000;
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private RecordCounter recordCounter;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 500, BOOKS, 42);
+    }
+
+    @Test
+    void exportsNdjsonWithBoundedRowsInFlight() throws Exception {
+        LineCountingSink sink = new LineCountingSink(recordCounter);
+        recordCounter.reset();
+
+        exportService.exportBooks(null, null, null, null, ExportFormat.NDJSON, sink);
+
+        assertThat(sink.lines).isEqualTo(BOOKS);
+        assertThat(sink.maxInFlight).isLessThan(1_000);
+    }
+
+    @Test
+    void exportsCsvWithHeader() throws Exception {
+        LineCountingSink sink = new LineCountingSink(recordCounter);
+        recordCounter.reset();
+
+        exportService.exportBooks(null, null, null, null, ExportFormat.CSV, sink);
+
+        assertThat(sink.lines).isEqualTo(BOOKS + 1);
+        assertThat(sink.maxInFlight).isLessThan(1_000);
+    }
+
+    @Test
+    void anEmptyExportHasNoRows() throws Exception {
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        exportService.exportBooks(null, 1800, null, null, ExportFormat.NDJSON, ndjson);
+        assertThat(ndjson.toByteArray()).isEmpty();
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        exportService.exportBooks(null, 1800, null, null, ExportFormat.CSV, csv);
+        assertThat(csv.toString(StandardCharsets.UTF_8).lines()).hasSize(1);
+    }
+
+    @Test
+    void ndjsonEndsEveryRowWithOneNewline() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportBooks(null, null, null, null, ExportFormat.NDJSON, out);
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertThat(body).endsWith("}\n");
+        assertThat(body.lines()).hasSize(BOOKS).allMatch(line -> line.startsWith("{") && line.endsWith("}"));
+    }
+
+    /** Counts the records jOOQ has materialized from result sets. */
+    static class RecordCounter implements ExecuteListener {
+        final AtomicLong records = new AtomicLong();
+
+        void reset() {
+            records.set(0);
+        }
+
+        @Override
+        public void recordEnd(ExecuteContext ctx) {
+            records.incrementAndGet();
+        }
+    }
+
+    static class LineCountingSink extends OutputStream {
+        private final RecordCounter counter;
+        long lines;
+        long maxInFlight;
+
+        LineCountingSink(RecordCounter counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') lines++;
+            maxInFlight = Math.max(maxInFlight, counter.records.get() - lines);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordCounter recordCounter() {
+            return new RecordCounter();
+        }
+
+        @Bean
+        DefaultExecuteListenerProvider recordCounterProvider(RecordCounter recordCounter) {
+            return new DefaultExecuteListenerProvider(recordCounter);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class IndexAdvisorTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private IndexAdvisor advisor;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 50, 2000, 5);
+    }
+
+    @Test
+    void theSchemaIndexesServeTheSearchAndYearlyReportPaths() {
+        Map<String, List<String>> problems = problemsByQuery();
+
+        assertThat(problems).containsKeys("search", "search.cursor", "book.by-title", "report.country-rankings");
+        assertThat(problems.get("search")).isEmpty();
+        assertThat(problems.get("search.cursor")).isEmpty();
+        assertThat(problems.get("search.count.year-price")).isEmpty();
+        assertThat(problems.get("book.by-title")).isEmpty();
+        assertThat(problems.get("report.yearly-stats")).doesNotContain("full scan of jooq.book");
+        assertThat(problems.get("report.country-rankings")).doesNotContain("full scan of jooq.author");
+    }
+
+    @Test
+    void aMissingIndexIsFlagged() {
+        ctx.execute("DROP INDEX jooq.idx_book_created_at");
+        ctx.execute("DROP INDEX jooq.idx_book_year_created_price");
+        try {
+            Map<String, List<String>> problems = problemsByQuery();
+
+            assertThat(problems.get("search")).contains("sort without an index");
+            assertThat(problems.get("report.yearly-stats")).contains("full scan of jooq.book");
+        } finally {
+            ctx.execute("CREATE INDEX jooq.idx_book_created_at ON jooq.book (created_at, id)");
+            ctx.execute("CREATE INDEX jooq.idx_book_year_created_price ON jooq.book (published_year, created_at, price)");
+        }
+    }
+
+    private Map<String, List<String>> problemsByQuery() {
+        return advisor.advise().stream()
+                .collect(Collectors.toMap(IndexAdvisor.Advice::query, IndexAdvisor.Advice::problems));
+    }
+}
@@ -0,0 +1,236 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.AuthorAssignment;
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.UpdateBookPriceRequest;
+import com.nathan.jooq.event.ChangeEvent;
+import com.nathan.jooq.event.ChangeEventSink;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.OUTBOX_EVENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        // drained by the tests themselves
+        "app.outbox.relay.enabled=false",
+        "app.outbox.relay.batch-size=3",
+        "app.outbox.relay.max-attempts=2"})
+@ActiveProfiles("h2")
+@Import(OutboxRelayTest.InMemoryConfig.class)
+class OutboxRelayTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private OutboxRelay relay;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private InMemorySink sink;
+    @Autowired
+    private Listener listener;
+
+    @BeforeEach
+    void setUp() {
+        TestData.clear(ctx);
+        sink.events.clear();
+        sink.failures.set(0);
+        sink.poison.clear();
+        listener.events.clear();
+    }
+
+    @Test
+    void deliversCommittedWritesInOrder() throws Exception {
+        AuthorDTO author = authorService.create("Outbox Author", null, null, "Chile");
+        BookDTO first = bookService.create(new BookCreateRequest("Outbox 1", "isbn-o1", 2020, new BigDecimal("10.00"),
+                List.of(new AuthorAssignment(author.id(), "Author"))));
+        BookDTO second = bookService.create(new BookCreateRequest("Outbox 2", "isbn-o2", 2021, new BigDecimal("20.00"),
+                List.of(new AuthorAssignment(author.id(), "Author"))));
+        bookService.updatePrice(first.id(), new BigDecimal("15.00"));
+        // same price: nothing changes, nothing is written
+        bookService.updatePrice(first.id(), new BigDecimal("15.00"));
+        UpdateBookPriceRequest req = new UpdateBookPriceRequest();
+        req.setAuthorCountry("Chile");
+        req.setPercent(BigDecimal.TEN);
+        bookService.updateBookPriceByAuthor(req);
+
+        assertThat(relay.drain()).isEqualTo(6);
+
+        assertThat(sink.events).extracting(ChangeEvent::type).containsExactly(
+                ChangeEvent.AUTHOR_CREATED, ChangeEvent.BOOK_CREATED, ChangeEvent.BOOK_CREATED,
+                ChangeEvent.BOOK_PRICE_CHANGED, ChangeEvent.BOOK_PRICE_CHANGED, ChangeEvent.BOOK_PRICE_CHANGED);
+        assertThat(sink.events).extracting(ChangeEvent::aggregateId).containsExactly(
+                author.id(), first.id(), second.id(), first.id(), first.id(), second.id());
+        assertThat(sink.events).extracting(ChangeEvent::id).isSorted();
+        assertThat(sink.events).extracting(ChangeEvent::sequence).doesNotHaveDuplicates().isSorted();
+        assertThat(sink.events.get(1).payload()).contains("\"authorIds\":[" + author.id() + "]");
+        assertThat(sink.events.get(4).payload()).contains("\"price\":16.50");
+        assertThat(listener.events).isEqualTo(sink.events);
+
+        assertThat(ctx.fetchCount(OUTBOX_EVENT, OUTBOX_EVENT.PUBLISHED_AT.isNull())).isZero();
+        assertThat(relay.drain()).isZero();
+    }
+
+    @Test
+    void rolledBackWritesLeaveNoEvents() {
+        assertThatThrownBy(() -> ctx.transaction(tx -> {
+            bookService.create(new BookCreateRequest("Rolled back", "isbn-rb", 2020, BigDecimal.ONE, List.of()));
+            throw new IllegalStateException("roll back");
+        })).hasMessage("roll back");
+
+        assertThat(ctx.fetchCount(BOOK)).isZero();
+        assertThat(ctx.fetchCount(OUTBOX_EVENT)).isZero();
+        assertThat(relay.drain()).isZero();
+    }
+
+    @Test
+    void failedBatchesAreRedelivered() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            bookService.create(new BookCreateRequest("Retry " + i, null, 2020, BigDecimal.ONE, List.of()));
+        }
+        sink.failures.set(1);
+
+        assertThat(relay.drain()).isZero();
+        assertThat(listener.events).isEmpty();
+
+        assertThat(relay.drain()).isEqualTo(4);
+        // the failed first batch of three reached the sink twice, the listeners once
+        assertThat(sink.events).hasSize(7);
+        assertThat(listener.events).hasSize(4).extracting(ChangeEvent::id).isSorted();
+        assertThat(sink.events.subList(3, 7)).isEqualTo(listener.events);
+    }
+
+    @Test
+    void aLateCommitIsDeliveredAfterTheEventsThatCommittedBeforeIt() throws Exception {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<BookDTO> late = executor.submit(() -> ctx.transactionResult(tx -> {
+                BookDTO book = bookService.create(new BookCreateRequest("Late", null, 2020, BigDecimal.ONE, List.of()));
+                inserted.countDown();
+                release.await();
+                return book;
+            }));
+            assertThat(inserted.await(5, TimeUnit.SECONDS)).isTrue();
+            BookDTO early = bookService.create(new BookCreateRequest("Early", null, 2020, BigDecimal.ONE, List.of()));
+
+            assertThat(relay.drain()).isEqualTo(1);
+            release.countDown();
+            BookDTO lateBook = late.get(5, TimeUnit.SECONDS);
+            assertThat(relay.drain()).isEqualTo(1);
+
+            assertThat(listener.events).extracting(ChangeEvent::aggregateId).containsExactly(early.id(), lateBook.id());
+            // numbered by commit, not by id
+            assertThat(listener.events.get(1).id()).isLessThan(listener.events.get(0).id());
+            assertThat(listener.events.get(1).sequence()).isGreaterThan(listener.events.get(0).sequence());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void anEventThatKeepsFailingIsDeadLetteredAndTheRestDelivered() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(bookService.create(new BookCreateRequest("Poison " + i, null, 2020, BigDecimal.ONE, List.of())).id());
+        }
+        sink.poison.add(ids.get(1));
+
+        // max-attempts failed batches
+        assertThat(relay.drain()).isZero();
+        assertThat(relay.drain()).isZero();
+        // then one by one: the bad event fails alone while the one after it goes through
+        assertThat(relay.drain()).isEqualTo(2);
+
+        assertThat(listener.events).extracting(ChangeEvent::aggregateId).containsExactly(ids.get(0), ids.get(2));
+        assertThat(ctx.fetchCount(OUTBOX_EVENT, OUTBOX_EVENT.DEAD_LETTERED_AT.isNotNull())).isEqualTo(1);
+        assertThat(ctx.fetchCount(OUTBOX_EVENT, OUTBOX_EVENT.DEAD_LETTERED_AT.isNotNull()
+                .and(OUTBOX_EVENT.AGGREGATE_ID.eq(ids.get(1))))).isEqualTo(1);
+        assertThat(relay.drain()).isZero();
+    }
+
+    @Test
+    void aSinkThatIsDownDeadLettersNothing() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            bookService.create(new BookCreateRequest("Outage " + i, null, 2020, BigDecimal.ONE, List.of()));
+        }
+        sink.failures.set(100);
+
+        for (int i = 0; i < 4; i++) assertThat(relay.drain()).isZero();
+        assertThat(ctx.fetchCount(OUTBOX_EVENT, OUTBOX_EVENT.DEAD_LETTERED_AT.isNotNull())).isZero();
+
+        sink.failures.set(0);
+        assertThat(relay.drain()).isEqualTo(2);
+        assertThat(listener.events).hasSize(2);
+    }
+
+    @TestConfiguration
+    static class InMemoryConfig {
+        @Bean
+        InMemorySink inMemorySink() {
+            return new InMemorySink();
+        }
+
+        @Bean
+        Listener changeEventListener() {
+            return new Listener();
+        }
+    }
+
+    /**
+     * Records every batch; after recording, fails the next {@code failures} calls and every batch with a
+     * {@code poison} aggregate.
+     */
+    static class InMemorySink implements ChangeEventSink {
+        final List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        final AtomicInteger failures = new AtomicInteger();
+        final Set<Long> poison = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void publish(List<ChangeEvent> batch) {
+            events.addAll(batch);
+            if (failures.getAndUpdate(f -> Math.max(0, f - 1)) > 0) throw new IllegalStateException("sink down");
+            if (batch.stream().anyMatch(e -> poison.contains(e.aggregateId()))) throw new IllegalStateException("poison");
+        }
+    }
+
+    static class Listener {
+        final List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        public void on(ChangeEvent event) {
+            events.add(event);
+        }
+    }
+}
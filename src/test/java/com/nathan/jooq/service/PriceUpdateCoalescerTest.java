@@ -0,0 +1,191 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.generated.tables.records.BookRecord;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.OUTBOX_EVENT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Durability of the coalesced price updates: a future completes only once its price is committed, and a failed
+ * flush writes nothing and fails every update in it.
+ */
+@SpringBootTest(properties = {
+        "app.books.price-update.coalescing.enabled=true",
+        "app.books.price-update.coalescing.window=200ms",
+        // ten queued updates flush at once, without waiting for the window
+        "app.books.price-update.coalescing.max-batch=10",
+        "app.outbox.relay.enabled=false"})
+@ActiveProfiles("h2")
+class PriceUpdateCoalescerTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private PriceUpdateCoalescer coalescer;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private ChangeOutbox outbox;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void clean() {
+        TestData.clear(ctx);
+    }
+
+    @Test
+    void updatesOfOneBookAreCoalescedLastWriteWins() {
+        BookRecord book = book("Coalesced", "1.00");
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int n = 1; n <= 10; n++) {
+            futures.add(bookService.updatePriceAsync(book.getId(), BigDecimal.valueOf(n * 100L, 2)));
+        }
+
+        futures.forEach(f -> assertThat(f).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(book.getId()));
+        BookRecord stored = ctx.fetchOne(BOOK, BOOK.ID.eq(book.getId()));
+        assertThat(stored.getPrice()).isEqualByComparingTo("10.00");
+        assertThat(stored.getVersion()).isEqualTo(book.getVersion() + 1);
+        assertThat(ctx.fetchCount(OUTBOX_EVENT)).isEqualTo(1);
+    }
+
+    @Test
+    void futureCompletesOnlyOnceThePriceIsCommitted() {
+        BookRecord book = book("Committed", "1.00");
+
+        // read on a connection of its own, as soon as the future completes
+        CompletableFuture<BigDecimal> seen = coalescer.submit(book.getId(), new BigDecimal("42.00"))
+                .thenApply(id -> ctx.select(BOOK.PRICE).from(BOOK).where(BOOK.ID.eq(id)).fetchOne(BOOK.PRICE));
+
+        assertThat(seen).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(new BigDecimal("42.00"));
+    }
+
+    @Test
+    void cachedBookHasTheNewPriceOnceTheFutureCompletes() {
+        BookRecord book = book("Cached", "1.00");
+        assertThat(bookService.getBookById(book.getId()).price()).isEqualByComparingTo("1.00");
+
+        CompletableFuture<BigDecimal> seen = coalescer.submit(book.getId(), new BigDecimal("3.00"))
+                .thenApply(id -> bookService.getBookById(id).price());
+
+        assertThat(seen).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(new BigDecimal("3.00"));
+    }
+
+    @Test
+    void concurrentSubmitsToAnIdleFlusherAllComplete() throws Exception {
+        int threads = 8;
+        List<BookRecord> books = new ArrayList<>();
+        for (int i = 0; i < threads; i++) books.add(book("Concurrent " + i, "1.00"));
+        // a short window, so the flusher is idle again before each round
+        PriceUpdateCoalescer own = new PriceUpdateCoalescer(ctx, outbox, eventPublisher, true, Duration.ofMillis(1),
+                1000, 100_000);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 1; round <= 100; round++) {
+                BigDecimal price = BigDecimal.valueOf(round, 2);
+                CyclicBarrier start = new CyclicBarrier(threads);
+                List<Future<CompletableFuture<Long>>> submitted = new ArrayList<>();
+                for (BookRecord book : books) {
+                    submitted.add(executor.submit(() -> {
+                        start.await();
+                        return own.submit(book.getId(), price);
+                    }));
+                }
+                for (Future<CompletableFuture<Long>> f : submitted) {
+                    assertThat(f.get(5, TimeUnit.SECONDS)).succeedsWithin(Duration.ofSeconds(5));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            own.shutdown();
+        }
+        books.forEach(b -> assertThat(price(b.getId())).isEqualByComparingTo("1.00"));
+    }
+
+    @Test
+    void unknownBookFailsOnlyItsOwnUpdate() {
+        BookRecord book = book("Known", "1.00");
+
+        CompletableFuture<Long> known = coalescer.submit(book.getId(), new BigDecimal("2.00"));
+        CompletableFuture<Long> unknown = coalescer.submit(-1L, new BigDecimal("2.00"));
+
+        assertThat(known).succeedsWithin(Duration.ofSeconds(5));
+        assertThat(unknown).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(NoSuchElementException.class);
+        assertThat(price(book.getId())).isEqualByComparingTo("2.00");
+    }
+
+    @Test
+    void failedFlushWritesNothingAndFailsEveryUpdate() {
+        BookRecord fine = book("Fine", "1.00");
+        BookRecord overflow = book("Overflow", "1.00");
+
+        CompletableFuture<Long> first = coalescer.submit(fine.getId(), new BigDecimal("2.00"));
+        // does not fit DECIMAL(10, 2): the whole flush rolls back
+        CompletableFuture<Long> second = coalescer.submit(overflow.getId(), new BigDecimal("1000000000000.00"));
+
+        assertThat(first).failsWithin(Duration.ofSeconds(5));
+        assertThat(second).failsWithin(Duration.ofSeconds(5));
+        BookRecord stored = ctx.fetchOne(BOOK, BOOK.ID.eq(fine.getId()));
+        assertThat(stored.getPrice()).isEqualByComparingTo("1.00");
+        assertThat(stored.getVersion()).isEqualTo(fine.getVersion());
+        assertThat(ctx.fetchCount(OUTBOX_EVENT)).isZero();
+    }
+
+    @Test
+    void shutdownFlushesQueuedUpdatesAndRejectsBeyondMaxPending() throws Exception {
+        BookRecord book = book("Shutdown", "1.00");
+        // a window that never ends on its own, and room for a single queued update
+        PriceUpdateCoalescer own = new PriceUpdateCoalescer(ctx, outbox, eventPublisher, true, Duration.ofHours(1), 10, 1);
+
+        CompletableFuture<Long> queued = own.submit(book.getId(), new BigDecimal("7.00"));
+        CompletableFuture<Long> rejected = own.submit(book.getId(), new BigDecimal("8.00"));
+        assertThat(rejected).isCompletedExceptionally();
+        assertThat(queued.isDone()).isFalse();
+
+        own.shutdown();
+
+        assertThat(queued).isCompletedWithValue(book.getId());
+        assertThat(price(book.getId())).isEqualByComparingTo("7.00");
+        assertThat(own.submit(book.getId(), BigDecimal.ONE)).failsWithin(0, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    private BigDecimal price(Long id) {
+        return ctx.select(BOOK.PRICE).from(BOOK).where(BOOK.ID.eq(id)).fetchOne(BOOK.PRICE);
+    }
+
+    private BookRecord book(String title, String price) {
+        BookRecord book = ctx.newRecord(BOOK);
+        book.setTitle(title);
+        book.setPrice(new BigDecimal(price));
+        book.store();
+        return book;
+    }
+}
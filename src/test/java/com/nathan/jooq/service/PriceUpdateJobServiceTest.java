@@ -0,0 +1,110 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.PriceUpdateJobDTO;
+import com.nathan.jooq.dto.PriceUpdateJobStatus;
+import com.nathan.jooq.dto.UpdateBookPriceRequest;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static com.nathan.jooq.generated.Tables.PRICE_UPDATE_JOB;
+import static com.nathan.jooq.generated.Tables.PRICE_UPDATE_JOB_BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class PriceUpdateJobServiceTest {
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private PriceUpdateJobService jobs;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 100, 2000, 7);
+    }
+
+    @Test
+    void repricesEveryBookOfTheCountryExactlyOnce() throws Exception {
+        Map<Long, BigDecimal> before = prices();
+        List<Long> targets = ctx.selectDistinct(BOOK_AUTHOR.BOOK_ID)
+                .from(BOOK_AUTHOR)
+                .join(AUTHOR).on(AUTHOR.ID.eq(BOOK_AUTHOR.AUTHOR_ID))
+                .where(AUTHOR.COUNTRY.eq("UK"))
+                .fetch(BOOK_AUTHOR.BOOK_ID);
+
+        UpdateBookPriceRequest req = new UpdateBookPriceRequest();
+        req.setAuthorCountry("uk");
+        req.setPercent(BigDecimal.TEN);
+        PriceUpdateJobDTO job = awaitDone(jobs.submit(req, 100).id());
+
+        assertThat(job.status()).isEqualTo(PriceUpdateJobStatus.COMPLETED);
+        assertThat(job.totalBooks()).isEqualTo(targets.size());
+        assertThat(job.updatedBooks()).isEqualTo(targets.size());
+        Map<Long, BigDecimal> after = prices();
+        before.forEach((id, price) -> {
+            if (price == null) return;
+            BigDecimal expected = targets.contains(id)
+                    ? price.multiply(new BigDecimal("1.1")).setScale(2, RoundingMode.HALF_UP)
+                    : price;
+            assertThat(after.get(id)).as("book %d", id).isEqualByComparingTo(expected);
+        });
+    }
+
+    @Test
+    void interruptedJobResumesAfterItsLastCommittedChunk() throws Exception {
+        List<Long> bookIds = ctx.select(BOOK.ID).from(BOOK)
+                .where(BOOK.PRICE.isNotNull())
+                .orderBy(BOOK.ID)
+                .limit(40)
+                .fetch(BOOK.ID);
+        // as left by a process that died after committing the first 20 books of a +100% job
+        Long jobId = ctx.insertInto(PRICE_UPDATE_JOB)
+                .columns(PRICE_UPDATE_JOB.AUTHOR_NAME, PRICE_UPDATE_JOB.PERCENT, PRICE_UPDATE_JOB.STATUS,
+                        PRICE_UPDATE_JOB.CHUNK_SIZE, PRICE_UPDATE_JOB.TOTAL_BOOKS, PRICE_UPDATE_JOB.UPDATED_BOOKS,
+                        PRICE_UPDATE_JOB.LAST_BOOK_ID)
+                .values("Author", BigDecimal.valueOf(100), PriceUpdateJobStatus.RUNNING.name(), 7, 40, 20, bookIds.get(19))
+                .returning(PRICE_UPDATE_JOB.ID)
+                .fetchOne(PRICE_UPDATE_JOB.ID);
+        bookIds.forEach(id -> ctx.insertInto(PRICE_UPDATE_JOB_BOOK).values(jobId, id).execute());
+        Map<Long, BigDecimal> before = prices();
+
+        jobs.resumeUnfinished();
+        PriceUpdateJobDTO job = awaitDone(jobId);
+
+        assertThat(job.status()).isEqualTo(PriceUpdateJobStatus.COMPLETED);
+        assertThat(job.updatedBooks()).isEqualTo(40);
+        Map<Long, BigDecimal> after = prices();
+        for (int i = 0; i < bookIds.size(); i++) {
+            Long id = bookIds.get(i);
+            BigDecimal expected = i < 20 ? before.get(id) : before.get(id).multiply(BigDecimal.valueOf(2));
+            assertThat(after.get(id)).as("book %d", id).isEqualByComparingTo(expected);
+        }
+    }
+
+    private Map<Long, BigDecimal> prices() {
+        return ctx.select(BOOK.ID, BOOK.PRICE).from(BOOK).fetchMap(BOOK.ID, BOOK.PRICE);
+    }
+
+    private PriceUpdateJobDTO awaitDone(Long jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            PriceUpdateJobDTO job = jobs.get(jobId);
+            if (job.status() == PriceUpdateJobStatus.COMPLETED || job.status() == PriceUpdateJobStatus.FAILED) return job;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("job " + jobId + " did not finish");
+    }
+}
@@ -0,0 +1,81 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.generated.tables.records.BookRecord;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Both strategies under contention on one row: every update must land exactly once, which the version column
+ * counts for us.
+ */
+@SpringBootTest(properties = "app.books.price-update.max-attempts=100")
+@ActiveProfiles("h2")
+class PriceUpdaterTest {
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 20;
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private PriceUpdater priceUpdater;
+
+    @BeforeEach
+    void clean() {
+        TestData.clear(ctx);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PriceUpdater.Strategy.class)
+    void concurrentUpdatesOfOneBookAreNeitherLostNorFailed(PriceUpdater.Strategy strategy) throws Exception {
+        BookRecord book = ctx.newRecord(BOOK);
+        book.setTitle("Contended");
+        book.setPrice(BigDecimal.ZERO);
+        book.store();
+        Long id = book.getId();
+        int initialVersion = book.getVersion();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int n = 1; n <= UPDATES_PER_THREAD; n++) {
+                        // distinct prices, so no update is skipped as a no-op
+                        priceUpdater.update(id, BigDecimal.valueOf(thread * 1000L + n), strategy);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        BookRecord stored = ctx.fetchOne(BOOK, BOOK.ID.eq(id));
+        assertThat(stored.getVersion() - initialVersion).isEqualTo(THREADS * UPDATES_PER_THREAD);
+        assertThat(stored.getUpdatedAt()).isNotNull();
+    }
+}
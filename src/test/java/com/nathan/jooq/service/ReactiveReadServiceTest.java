@@ -0,0 +1,111 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.event.BooksChangedEvent;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The reactive reads must answer exactly like the blocking ones. JDBC and R2DBC share one named in-memory H2
+ * (with a password: r2dbc-h2 does not authenticate with an empty one).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.reactive.r2dbc.url=r2dbc:h2:mem:///reactive?options=DB_CLOSE_DELAY=-1",
+        "spring.datasource.password=reactive",
+        "app.reactive.r2dbc.username=sa",
+        "app.reactive.r2dbc.password=reactive"
+})
+@ActiveProfiles({"h2", "reactive"})
+class ReactiveReadServiceTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private ReactiveReadService reactiveReadService;
+    @Autowired
+    private BookCache bookCache;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 40, 500, 11);
+    }
+
+    @Test
+    void searchPagesMatchTheBlockingSearch() {
+        for (TotalMode mode : new TotalMode[]{TotalMode.EXACT, TotalMode.WINDOW, TotalMode.NONE}) {
+            // several pages, the last one partial, and one past the end; the two drivers agree on created_at ties
+            // only because the pages are ordered by id after it
+            for (int page : new int[]{0, 3, 13, 1000}) {
+                PageResult<BookDTO> expected = bookService.search(null, null, new BigDecimal("20"), null, page, 37, mode);
+                PageResult<BookDTO> actual = reactiveReadService
+                        .search(null, null, new BigDecimal("20"), null, page, 37, mode).block();
+                assertThat(actual).as("%s page %d", mode, page).isEqualTo(expected);
+            }
+            for (int page : new int[]{0, 1}) {
+                assertThat(reactiveReadService.search("Author 1", null, null, null, page, 20, mode).block())
+                        .as("%s author page %d", mode, page)
+                        .isEqualTo(bookService.search("Author 1", null, null, null, page, 20, mode));
+            }
+        }
+    }
+
+    @Test
+    void getByIdMatchesTheDatabase() {
+        for (Long id : ctx.select(BOOK.ID).from(BOOK).orderBy(BOOK.ID).limit(20).fetch(BOOK.ID)) {
+            // read through an empty cache, and compared with the rows rather than with what it cached
+            bookCache.onBooksChanged(new BooksChangedEvent(List.of(id)));
+            assertThat(reactiveReadService.getBookById(id).block()).isEqualTo(new BookLoader(ctx).book(id).get());
+        }
+        assertThat(reactiveReadService.getBookById(-1L).block()).isNull();
+    }
+
+    @Test
+    void reportsMatchTheBlockingReports() {
+        // authors tied on their total and average, which only the tiebreak by id orders alike on both drivers
+        for (int i = 0; i < 3; i++) {
+            Long author = ctx.insertInto(AUTHOR, AUTHOR.NAME, AUTHOR.COUNTRY)
+                    .values("Tied " + i, "Tiedland")
+                    .returning(AUTHOR.ID).fetchOne(AUTHOR.ID);
+            Long book = ctx.insertInto(BOOK, BOOK.TITLE, BOOK.PUBLISHED_YEAR, BOOK.PRICE)
+                    .values("Tied book " + i, 2000, new BigDecimal("999.99"))
+                    .returning(BOOK.ID).fetchOne(BOOK.ID);
+            ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID).values(book, author).execute();
+        }
+
+        assertThat(reactiveReadService.yearlyStats(2000).collectList().block())
+                .isEqualTo(reportService.yearlyStats(2000));
+        assertThat(reactiveReadService.reportAuthorBookValue().collectList().block())
+                .isEqualTo(reportService.reportAuthorBookValue());
+        assertThat(reactiveReadService.reportBookByYear().collectList().block())
+                .isEqualTo(reportService.reportBookByYear());
+        assertThat(reactiveReadService.topAuthorsByAvgPrice().collectList().block())
+                .isEqualTo(reportService.topAuthorsByAvgPrice());
+        assertThat(reactiveReadService.rankCountriesByBookValue().collectList().block())
+                .isEqualTo(reportService.rankCountriesByBookValue());
+        assertThat(reactiveReadService.findInactiveAuthors(2).collectList().block())
+                .isEqualTo(reportService.findInactiveAuthors(2));
+        assertThat(reactiveReadService.getAuthorRankings().collectList().block())
+                .isEqualTo(reportService.getAuthorRankings());
+    }
+}
@@ -0,0 +1,157 @@
+package com.nathan.jooq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.jooq.dto.AuthorAssignment;
+import com.nathan.jooq.dto.AuthorDTO;
+import com.nathan.jooq.dto.BookCreateRequest;
+import com.nathan.jooq.dto.BookDTO;
+import com.nathan.jooq.dto.UpdateBookPriceRequest;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Differential test: every report served from the snapshot must equal the live SQL one, value for value (including
+ * BigDecimal scale and the order of ties), after a reconcile and after incremental refreshes of writes made through
+ * the services.
+ */
+@SpringBootTest(properties = {
+        "app.reports.snapshot.enabled=true",
+        // refreshes and reconciles are run by the test alone
+        "app.reports.snapshot.initial-delay=1h",
+        "app.reports.snapshot.refresh-interval=1h",
+        "app.reports.snapshot.reconcile-interval=1h",
+        "app.reports.snapshot.max-staleness=1h"})
+@ActiveProfiles("h2")
+class ReportSnapshotServiceTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private ReportSnapshotService snapshots;
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private BookImportService importService;
+    @Autowired
+    private ObjectMapper json;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 40, 900, 11);
+        addEdgeCases();
+        snapshots.reconcile();
+    }
+
+    @Test
+    void aReconciledSnapshotMatchesSql() {
+        assertMatchesSql();
+    }
+
+    @Test
+    void refreshesApplyCommittedWrites() throws Exception {
+        AuthorDTO author = authorService.create("Snapshot Author", "snapshot@example.com", LocalDate.of(1980, 1, 1), "Peru");
+        Long existingAuthor = ctx.select(AUTHOR.ID).from(AUTHOR).orderBy(AUTHOR.ID).limit(1).fetchOne(AUTHOR.ID);
+        BookDTO book = bookService.create(new BookCreateRequest("Snapshot Book", "isbn-snapshot", 2031,
+                new BigDecimal("77.70"), List.of(
+                        new AuthorAssignment(author.id(), "Author"),
+                        new AuthorAssignment(existingAuthor, "Co-author"))));
+        snapshots.refresh();
+        assertMatchesSql();
+
+        Long repriced = ctx.select(BOOK.ID).from(BOOK).orderBy(BOOK.ID).limit(1).fetchOne(BOOK.ID);
+        bookService.updatePrice(repriced, new BigDecimal("1234.56"));
+        bookService.updatePrice(book.id(), new BigDecimal("0.10"));
+        snapshots.refresh();
+        assertMatchesSql();
+
+        UpdateBookPriceRequest req = new UpdateBookPriceRequest();
+        req.setAuthorCountry("France");
+        req.setPercent(new BigDecimal("12.5"));
+        bookService.updateBookPriceByAuthor(req);
+        snapshots.refresh();
+        assertMatchesSql();
+
+        List<BookCreateRequest> imported = List.of(
+                new BookCreateRequest("Imported undated", null, null, new BigDecimal("5.55"),
+                        List.of(new AuthorAssignment(author.id(), "Author"))),
+                new BookCreateRequest("Imported new year", null, 1850, new BigDecimal("19.99"),
+                        List.of(new AuthorAssignment(existingAuthor, "Author"))));
+        importService.importBooks(new ByteArrayInputStream(json.writeValueAsBytes(imported)), null, null);
+        snapshots.refresh();
+        assertMatchesSql();
+    }
+
+    @Test
+    void aReconcileRepairsWritesTheRefreshNeverHeardOf() {
+        ctx.update(BOOK).set(BOOK.PRICE, new BigDecimal("4321.00")).where(BOOK.PUBLISHED_YEAR.eq(2001)).execute();
+        snapshots.refresh();
+        assertThat(snapshots.freshSnapshot().bookByYear()).isNotEqualTo(reportService.reportBookByYear());
+
+        snapshots.reconcile();
+        assertMatchesSql();
+    }
+
+    @Test
+    void aSnapshotPastItsMaxStalenessIsNotServed() throws Exception {
+        ReportSnapshotService impatient = new ReportSnapshotService(ctx, true, Duration.ofMillis(1));
+        assertThat(impatient.freshSnapshot()).isNull();
+
+        impatient.reconcile();
+        Thread.sleep(10);
+        assertThat(impatient.freshSnapshot()).isNull();
+        assertThat(new ReportSnapshotService(ctx, false, Duration.ofHours(1)).freshSnapshot()).isNull();
+    }
+
+    private void assertMatchesSql() {
+        ReportSnapshot snapshot = snapshots.freshSnapshot();
+        assertThat(snapshot).isNotNull();
+
+        for (int minYear : new int[]{Integer.MIN_VALUE, 1990, 2010, 2031, 3000}) {
+            assertThat(snapshot.yearlyStats(minYear)).as("yearlyStats(%d)", minYear)
+                    .isEqualTo(reportService.yearlyStats(minYear));
+        }
+        assertThat(snapshot.bookByYear()).isEqualTo(reportService.reportBookByYear());
+        assertThat(snapshot.topAuthorsByAvgPrice()).isEqualTo(reportService.topAuthorsByAvgPrice());
+        assertThat(snapshot.countryRankings()).isEqualTo(reportService.rankCountriesByBookValue());
+        assertThat(snapshot.authorRankings()).isEqualTo(reportService.getAuthorRankings());
+        assertThat(snapshot.authorBookValue()).isEqualTo(reportService.reportAuthorBookValue());
+    }
+
+    /** Ties on every ranked value, authors without priced books, and authors without books. */
+    private void addEdgeCases() {
+        for (int i = 0; i < 3; i++) {
+            Long author = ctx.insertInto(AUTHOR, AUTHOR.NAME, AUTHOR.COUNTRY)
+                    .values("Tied " + i, i == 0 ? "Tiedland" : "Otherland" + i)
+                    .returning(AUTHOR.ID).fetchOne(AUTHOR.ID);
+            Long book = ctx.insertInto(BOOK, BOOK.TITLE, BOOK.PUBLISHED_YEAR, BOOK.PRICE)
+                    .values("Tied book " + i, 2000, new BigDecimal("999.99"))
+                    .returning(BOOK.ID).fetchOne(BOOK.ID);
+            ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID).values(book, author).execute();
+        }
+        Long unpriced = ctx.insertInto(AUTHOR, AUTHOR.NAME).values("Unpriced").returning(AUTHOR.ID).fetchOne(AUTHOR.ID);
+        Long book = ctx.insertInto(BOOK, BOOK.TITLE).values("Unpriced book").returning(BOOK.ID).fetchOne(BOOK.ID);
+        ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID).values(book, unpriced).execute();
+        ctx.insertInto(AUTHOR, AUTHOR.NAME, AUTHOR.COUNTRY).values("No books", "Nowhere").execute();
+    }
+}
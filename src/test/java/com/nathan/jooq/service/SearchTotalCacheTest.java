@@ -0,0 +1,100 @@
+package com.nathan.jooq.service;
+
+import com.nathan.jooq.dto.BookSearchFilter;
+import com.nathan.jooq.dto.PageResult;
+import com.nathan.jooq.dto.TotalMode;
+import com.nathan.jooq.support.TestData;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link TotalMode#CACHED} totals: requests whose filters normalize alike share one total, which is the one the
+ * page itself would count, until it expires.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class SearchTotalCacheTest {
+
+    @Autowired
+    private DSLContext ctx;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private AuthorNameIndex authorIndex;
+
+    @BeforeEach
+    void seed() {
+        TestData.clear(ctx);
+        TestData.seed(ctx, 20, 300, 13);
+        authorIndex.reload();
+    }
+
+    @Test
+    void spellingsOfOneFilterShareTheTotalThePageCounts() {
+        BigDecimal min = new BigDecimal("50.00");
+        int exact = bookService.search("Author 1", null, min, null, 0, 10, TotalMode.EXACT).total();
+        assertThat(exact).isPositive();
+
+        assertThat(cachedTotal("Author 1", min)).isEqualTo(exact);
+
+        // books added behind the cache: the spellings that normalize alike are served the cached total
+        Long author = ctx.select(AUTHOR.ID).from(AUTHOR).where(AUTHOR.NAME.eq("Author 1")).fetchOne(AUTHOR.ID);
+        Long book = ctx.insertInto(BOOK, BOOK.TITLE, BOOK.PRICE).values("Uncounted", new BigDecimal("60.00"))
+                .returning(BOOK.ID).fetchOne(BOOK.ID);
+        ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID).values(book, author).execute();
+        authorIndex.reload();
+        for (String spelling : new String[]{"Author 1", "  author 1 ", "AUTHOR 1"}) {
+            assertThat(cachedTotal(spelling, new BigDecimal("50"))).as(spelling).isEqualTo(exact);
+        }
+        assertThat(bookService.search("Author 1", null, min, null, 0, 10, TotalMode.EXACT).total())
+                .isEqualTo(exact + 1);
+
+        // a different filter is counted afresh
+        assertThat(cachedTotal("author 1", new BigDecimal("50.01")))
+                .isEqualTo(bookService.search("author 1", null, new BigDecimal("50.01"), null, 0, 10, TotalMode.EXACT).total());
+    }
+
+    @Test
+    void aNormalizedSpellingCountsWhatItsPageFinds() {
+        // the first request for the key decides its total, whatever its spelling
+        int total = cachedTotal("  AUTHOR 2 ", null);
+        assertThat(total).isEqualTo(bookService.search("Author 2", null, null, null, 0, 10, TotalMode.EXACT).total());
+        assertThat(bookService.search("  AUTHOR 2 ", null, null, null, 0, 1000, TotalMode.NONE).content())
+                .hasSize(total);
+    }
+
+    @Test
+    void totalsExpireAfterTheirTtl() {
+        AtomicLong now = new AtomicLong();
+        SearchTotalCache cache = new SearchTotalCache(Duration.ofSeconds(30), 100, now::get);
+        BookSearchFilter filter = BookSearchFilter.of("Author 1", null, null, null);
+        AtomicInteger counted = new AtomicInteger();
+
+        assertThat(cache.get(filter, counted::incrementAndGet)).isEqualTo(1);
+        now.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertThat(cache.get(BookSearchFilter.of(" author 1", null, null, null), counted::incrementAndGet)).isEqualTo(1);
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertThat(cache.get(filter, counted::incrementAndGet)).isEqualTo(2);
+        assertThat(counted).hasValue(2);
+    }
+
+    private int cachedTotal(String author, BigDecimal minPrice) {
+        PageResult<?> page = bookService.search(author, null, minPrice, null, 0, 10, TotalMode.CACHED);
+        return page.total();
+    }
+}
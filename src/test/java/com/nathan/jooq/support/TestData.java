@@ -0,0 +1,96 @@
+package com.nathan.jooq.support;
+
+import org.jooq.DSLContext;
+import org.jooq.Row4;
+import org.jooq.Row5;
+import org.jooq.impl.DSL;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.nathan.jooq.generated.Tables.AUTHOR;
+import static com.nathan.jooq.generated.Tables.BOOK;
+import static com.nathan.jooq.generated.Tables.BOOK_AUTHOR;
+import static com.nathan.jooq.generated.Tables.OUTBOX_EVENT;
+import static com.nathan.jooq.generated.Tables.PRICE_UPDATE_JOB;
+import static com.nathan.jooq.generated.Tables.PRICE_UPDATE_JOB_BOOK;
+
+/**
+ * Seeds a deterministic, randomized catalog: each book gets one to three distinct authors.
+ */
+public final class TestData {
+    private static final String[] COUNTRIES = {"Vietnam", "USA", "France", "UK", "Singapore", "Germany", "Japan", null};
+    private static final int CHUNK = 1000;
+
+    public static void clear(DSLContext ctx) {
+        ctx.deleteFrom(PRICE_UPDATE_JOB_BOOK).execute();
+        ctx.deleteFrom(PRICE_UPDATE_JOB).execute();
+        ctx.deleteFrom(BOOK_AUTHOR).execute();
+        ctx.deleteFrom(BOOK).execute();
+        ctx.deleteFrom(AUTHOR).execute();
+        ctx.deleteFrom(OUTBOX_EVENT).execute();
+    }
+
+    public static void seed(DSLContext ctx, int authors, int books, long seed) {
+        Random random = new Random(seed);
+
+        List<Row5<String, String, LocalDate, String, LocalDateTime>> authorRows = new ArrayList<>();
+        for (int i = 0; i < authors; i++) {
+            authorRows.add(DSL.row("Author " + i, "author" + i + "@example.com",
+                    LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000)),
+                    COUNTRIES[random.nextInt(COUNTRIES.length)],
+                    LocalDateTime.of(2020, 1, 1, 0, 0)));
+            if (authorRows.size() == CHUNK || i == authors - 1) {
+                ctx.insertInto(AUTHOR, AUTHOR.NAME, AUTHOR.EMAIL, AUTHOR.BIRTH_DATE, AUTHOR.COUNTRY, AUTHOR.CREATED_AT)
+                        .valuesOfRows(authorRows)
+                        .execute();
+                authorRows.clear();
+            }
+        }
+        List<Long> authorIds = ctx.select(AUTHOR.ID).from(AUTHOR).orderBy(AUTHOR.ID).fetch(AUTHOR.ID);
+
+        LocalDateTime start = LocalDateTime.of(2015, 1, 1, 0, 0);
+        List<Row5<String, String, Integer, BigDecimal, LocalDateTime>> bookRows = new ArrayList<>();
+        for (int i = 0; i < books; i++) {
+            BigDecimal price = random.nextInt(50) == 0 ? null : BigDecimal.valueOf(500 + random.nextInt(20_000), 2);
+            Integer year = random.nextInt(50) == 0 ? null : 1990 + random.nextInt(36);
+            // coarse timestamps so that created_at ties are common
+            bookRows.add(DSL.row("Book " + i, "isbn-" + i, year, price, start.plusMinutes(random.nextInt(books))));
+            if (bookRows.size() == CHUNK || i == books - 1) {
+                ctx.insertInto(BOOK, BOOK.TITLE, BOOK.ISBN, BOOK.PUBLISHED_YEAR, BOOK.PRICE, BOOK.CREATED_AT)
+                        .valuesOfRows(bookRows)
+                        .execute();
+                bookRows.clear();
+            }
+        }
+
+        List<Row4<Long, Long, String, LocalDateTime>> links = new ArrayList<>();
+        for (Long bookId : ctx.select(BOOK.ID).from(BOOK).orderBy(BOOK.ID).fetch(BOOK.ID)) {
+            int count = 1 + random.nextInt(3);
+            int first = random.nextInt(authorIds.size());
+            for (int a = 0; a < Math.min(count, authorIds.size()); a++) {
+                links.add(DSL.row(bookId, authorIds.get((first + a) % authorIds.size()),
+                        a == 0 ? "Author" : "Co-author", start));
+            }
+            if (links.size() >= CHUNK) {
+                insertLinks(ctx, links);
+            }
+        }
+        insertLinks(ctx, links);
+    }
+
+    private static void insertLinks(DSLContext ctx, List<Row4<Long, Long, String, LocalDateTime>> links) {
+        if (links.isEmpty()) return;
+        ctx.insertInto(BOOK_AUTHOR, BOOK_AUTHOR.BOOK_ID, BOOK_AUTHOR.AUTHOR_ID, BOOK_AUTHOR.CONTRIBUTION, BOOK_AUTHOR.CREATED_AT)
+                .valuesOfRows(links)
+                .execute();
+        links.clear();
+    }
+
+    private TestData() {
+    }
+}
@@ -0,0 +1,88 @@
+-- H2 (MySQL mode) equivalent of the migrations in src/main/resources/db/migration
+CREATE SCHEMA IF NOT EXISTS jooq;
+
+CREATE TABLE jooq.author
+(
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name       VARCHAR(255),
+    email      VARCHAR(255),
+    birth_date DATE,
+    country    VARCHAR(100),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE jooq.book
+(
+    id             BIGINT AUTO_INCREMENT PRIMARY KEY,
+    title          VARCHAR(255),
+    isbn           VARCHAR(50),
+    published_year INT,
+    price          DECIMAL(10, 2),
+    created_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at     TIMESTAMP,
+    version        INT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_book_title UNIQUE (title)
+);
+
+CREATE TABLE jooq.book_author
+(
+    book_id      BIGINT NOT NULL,
+    author_id    BIGINT NOT NULL,
+    contribution VARCHAR(255),
+    created_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (book_id, author_id),
+    CONSTRAINT fk_book_author_author FOREIGN KEY (author_id) REFERENCES jooq.author (id),
+    CONSTRAINT fk_book_author_book FOREIGN KEY (book_id) REFERENCES jooq.book (id)
+);
+CREATE INDEX fk_book_author_author ON jooq.book_author (author_id);
+
+-- V2__search_and_report_indexes
+CREATE INDEX idx_book_created_at ON jooq.book (created_at, id);
+CREATE INDEX idx_book_year_created_price ON jooq.book (published_year, created_at, price);
+CREATE INDEX idx_book_price ON jooq.book (price);
+CREATE INDEX idx_author_country ON jooq.author (country);
+
+CREATE TABLE jooq.price_update_job
+(
+    id             BIGINT AUTO_INCREMENT PRIMARY KEY,
+    author_name    VARCHAR(255),
+    author_country VARCHAR(100),
+    percent        DECIMAL(10, 4) NOT NULL,
+    status         VARCHAR(20)    NOT NULL,
+    chunk_size     INT            NOT NULL,
+    total_books    INT            NOT NULL DEFAULT 0,
+    updated_books  INT            NOT NULL DEFAULT 0,
+    last_book_id   BIGINT         NOT NULL DEFAULT 0,
+    error          VARCHAR(1000),
+    created_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    started_at     TIMESTAMP,
+    finished_at    TIMESTAMP
+);
+CREATE INDEX idx_price_update_job_status ON jooq.price_update_job (status);
+
+CREATE TABLE jooq.price_update_job_book
+(
+    job_id  BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    PRIMARY KEY (job_id, book_id),
+    CONSTRAINT fk_price_update_job_book_job FOREIGN KEY (job_id) REFERENCES jooq.price_update_job (id)
+);
+
+CREATE TABLE jooq.outbox_event
+(
+    id             BIGINT AUTO_INCREMENT PRIMARY KEY,
+    aggregate_type VARCHAR(20)  NOT NULL,
+    aggregate_id   BIGINT       NOT NULL,
+    event_type     VARCHAR(40)  NOT NULL,
+    payload        CLOB         NOT NULL,
+    created_at     TIMESTAMP(3) NOT NULL,
+    published_at   TIMESTAMP(3)
+);
+CREATE INDEX idx_outbox_event_published_at ON jooq.outbox_event (published_at, id);
+
+-- V4__outbox_delivery_order
+ALTER TABLE jooq.outbox_event ADD COLUMN seq BIGINT;
+ALTER TABLE jooq.outbox_event ADD COLUMN attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE jooq.outbox_event ADD COLUMN dead_lettered_at TIMESTAMP(3);
+ALTER TABLE jooq.outbox_event ADD CONSTRAINT uk_outbox_event_seq UNIQUE (seq);
+CREATE INDEX idx_outbox_event_pending ON jooq.outbox_event (published_at, seq);